@@ -1,5 +1,6 @@
 CREATE NAMESPACE IF NOT EXISTS "shopping";
 CREATE NAMESPACE IF NOT EXISTS "inventory";
+CREATE NAMESPACE IF NOT EXISTS "bff";
 
 CREATE TABLE IF NOT EXISTS shopping.order (
   id TEXT,
@@ -9,9 +10,59 @@ CREATE TABLE IF NOT EXISTS shopping.order (
   PRIMARY KEY ((id))
 );
 
+CREATE INDEX IF NOT EXISTS ON shopping.order (product_id);
+
+CREATE TABLE IF NOT EXISTS shopping.order_by_time (
+  bucket BIGINT,
+  order_datetime TIMESTAMP,
+  id TEXT,
+  product_id INT,
+  order_qty INT,
+  PRIMARY KEY ((bucket), order_datetime, id)
+);
+
+CREATE TABLE IF NOT EXISTS shopping.product_order_total (
+  product_id INT,
+  order_count BIGINT,
+  total_qty BIGINT,
+  PRIMARY KEY ((product_id))
+);
+
+CREATE TABLE IF NOT EXISTS shopping.order_saga (
+  order_id TEXT,
+  product_id INT,
+  order_qty INT,
+  order_datetime TIMESTAMP,
+  status TEXT,
+  message TEXT,
+  attempts INT,
+  created_at BIGINT,
+  updated_at BIGINT,
+  PRIMARY KEY ((order_id))
+);
+
+CREATE INDEX IF NOT EXISTS ON shopping.order_saga (status);
+
 CREATE TABLE IF NOT EXISTS inventory.product (
   id INT,
   product_name TEXT,
   stock INT,
   PRIMARY KEY ((id))
-);
\ No newline at end of file
+);
+
+CREATE TABLE IF NOT EXISTS inventory.stock_escrow (
+  product_id INT,
+  node_id TEXT,
+  quota INT,
+  updated_at BIGINT,
+  PRIMARY KEY ((product_id), node_id)
+);
+
+CREATE TABLE IF NOT EXISTS bff.idempotency_key (
+  idempotency_key TEXT,
+  code INT,
+  message TEXT,
+  fingerprint TEXT,
+  created_at BIGINT,
+  PRIMARY KEY ((idempotency_key))
+);
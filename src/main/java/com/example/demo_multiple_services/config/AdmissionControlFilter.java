@@ -0,0 +1,192 @@
+package com.example.demo_multiple_services.config;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.util.AimdLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admission control for the ScalarDB-bound endpoints
+ *
+ * Each endpoint group has its own adaptive concurrency limit (see {@link AimdLimiter}), so a slow
+ * ScalarDB Cluster sheds raw SQL scans before it starves order placement:
+ * - READ: GET requests on the standard and 1PC services
+ * - WRITE: other requests on the standard and 1PC services
+ * - BFF: BFF orchestrations (blocking and reactive)
+ * - SQL: /generic-sql and the execute-sql endpoints
+ *
+ * Requests over the limit are rejected before reaching the controller with 429 and error code 9700.
+ * Calls that join an existing distributed transaction (ScalarDB-Transaction-ID header) and order
+ * placement are critical: they may use the share of the limit reserved by
+ * admission-control.critical-reserve, because rejecting them wastes the work already done.
+ * The limit backs off on slow requests and on 429/503/504 responses only (see isCongestion).
+ *
+ * Exported metrics (tagged by group): admission.limit, admission.inflight, admission.rejected
+ */
+@Slf4j
+@Component
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public enum EndpointGroup { READ, WRITE, BFF, SQL }
+
+    private final Map<EndpointGroup, AimdLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${admission-control.enabled:true}")
+    private boolean enabled;
+
+    public AdmissionControlFilter(MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                                  @Value("${admission-control.initial-limit:20}") int initialLimit,
+                                  @Value("${admission-control.min-limit:2}") int minLimit,
+                                  @Value("${admission-control.max-limit:200}") int maxLimit,
+                                  @Value("${admission-control.backoff-ratio:0.9}") double backoffRatio,
+                                  @Value("${admission-control.latency-threshold-ms:1000}") long latencyThresholdMillis,
+                                  @Value("${admission-control.critical-reserve:0.2}") double criticalReserve) {
+        this.objectMapper = objectMapper;
+        for (EndpointGroup group : EndpointGroup.values()) {
+            AimdLimiter limiter = new AimdLimiter(initialLimit, minLimit, maxLimit, backoffRatio,
+                latencyThresholdMillis, criticalReserve);
+            limiters.put(group, limiter);
+            String tag = group.name().toLowerCase();
+            Gauge.builder("admission.limit", limiter, AimdLimiter::getLimit)
+                .description("Current concurrency limit")
+                .tag("group", tag)
+                .register(meterRegistry);
+            Gauge.builder("admission.inflight", limiter, AimdLimiter::getInFlight)
+                .description("Requests currently admitted")
+                .tag("group", tag)
+                .register(meterRegistry);
+            FunctionCounter.builder("admission.rejected", limiter, AimdLimiter::getRejectedCount)
+                .description("Requests rejected with 429 because the group was over its limit")
+                .tag("group", tag)
+                .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || classify(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        EndpointGroup group = classify(request);
+        AimdLimiter limiter = limiters.get(group);
+        if (!limiter.tryAcquire(isCritical(request))) {
+            reject(response, group);
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // Reactive controllers complete later; release when the async request does
+                async = true;
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release(limiter, released, startedAt, isCongestion(response.getStatus()));
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        release(limiter, released, startedAt, true);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        release(limiter, released, startedAt, isCongestion(response.getStatus()));
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            release(limiter, released, startedAt, false);
+            throw e;
+        } finally {
+            if (!async) {
+                release(limiter, released, startedAt, isCongestion(response.getStatus()));
+            }
+        }
+    }
+
+    /**
+     * Map a request to its endpoint group
+     *
+     * @param request The HTTP request
+     * @return The group, or null for endpoints that are not admission controlled
+     */
+    EndpointGroup classify(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        if (uri.startsWith("/generic-sql") || uri.endsWith("/execute-sql")) {
+            return EndpointGroup.SQL;
+        }
+        if (uri.contains("-bff")) {
+            return EndpointGroup.BFF;
+        }
+        if (uri.startsWith("/product") || uri.startsWith("/order")) {
+            return "GET".equals(request.getMethod()) ? EndpointGroup.READ : EndpointGroup.WRITE;
+        }
+        return null;
+    }
+
+    /**
+     * Whether a response status signals that the backend is overloaded
+     *
+     * Only timeouts (504), unavailable participants (503) and overload rejections (429) feed the
+     * limiter; other 5xx and business errors (e.g. 9400, 9100) say nothing about capacity.
+     * Slowness is covered separately by the latency threshold.
+     */
+    static boolean isCongestion(int status) {
+        return status == HttpStatus.GATEWAY_TIMEOUT.value()
+            || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+            || status == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    private boolean isCritical(HttpServletRequest request) {
+        return request.getHeader("ScalarDB-Transaction-ID") != null
+            || request.getRequestURI().startsWith("/place-order");
+    }
+
+    private void release(AimdLimiter limiter, AtomicBoolean released, long startedAt, boolean congested) {
+        if (released.compareAndSet(false, true)) {
+            limiter.release(System.nanoTime() - startedAt, congested);
+        }
+    }
+
+    private void reject(HttpServletResponse response, EndpointGroup group) throws IOException {
+        log.debug("Rejecting request: {} endpoints over their concurrency limit", group);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        ApiResponse<Void> body = ApiResponse.error(9700,
+            "Too many concurrent " + group.name().toLowerCase() + " requests, retry later");
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo_multiple_services.config;
+
+import com.example.demo_multiple_services.dto.BulkExportManifestDto;
+import com.example.demo_multiple_services.service.BulkExportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Command-line bulk export
+ *
+ * Active when bulk-export.tables is set, e.g. for a nightly snapshot:
+ *   java -jar app.jar --spring.main.web-application-type=none --bulk-export.tables=product,order
+ *
+ * Exports the tables, logs one line per manifest and exits with status 1 if an export failed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bulk-export.tables")
+public class BulkExportRunner implements ApplicationRunner {
+
+    private final BulkExportService bulkExportService;
+    private final ApplicationContext applicationContext;
+
+    @Value("${bulk-export.tables}")
+    private List<String> tables;
+
+    public BulkExportRunner(BulkExportService bulkExportService, ApplicationContext applicationContext) {
+        this.bulkExportService = bulkExportService;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            for (BulkExportManifestDto manifest : bulkExportService.exportTables(tables)) {
+                log.info("Exported {}.{}: {} rows in {} segments", manifest.getNamespace(), manifest.getTable(),
+                    manifest.getRows(), manifest.getSegments().size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Bulk export failed", e);
+            exitCode = 1;
+        }
+        int status = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> status));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.demo_multiple_services.config;
+
+import com.example.demo_multiple_services.dto.BulkImportReportDto;
+import com.example.demo_multiple_services.dto.BulkImportRequestDto;
+import com.example.demo_multiple_services.service.BulkImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command-line bulk import
+ *
+ * Active when bulk-import.file is set, e.g.
+ *   java -jar app.jar --spring.main.web-application-type=none \
+ *     --bulk-import.entity=product --bulk-import.file=products.csv [--bulk-import.resume=true]
+ *
+ * Runs the import, logs the report and exits with status 1 if any row failed.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bulk-import.file")
+public class BulkImportRunner implements ApplicationRunner {
+
+    private final BulkImportService bulkImportService;
+    private final ApplicationContext applicationContext;
+
+    @Value("${bulk-import.entity:product}")
+    private String entity;
+
+    @Value("${bulk-import.file}")
+    private String file;
+
+    @Value("${bulk-import.format:#{null}}")
+    private String format;
+
+    @Value("${bulk-import.resume:false}")
+    private boolean resume;
+
+    public BulkImportRunner(BulkImportService bulkImportService, ApplicationContext applicationContext) {
+        this.bulkImportService = bulkImportService;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        BulkImportReportDto report = bulkImportService.runImport(BulkImportRequestDto.builder()
+            .entity(entity)
+            .file(file)
+            .format(format)
+            .resume(resume)
+            .build());
+        log.info("Bulk import report: {}", report);
+        int exitCode = "COMPLETED".equals(report.getStatus()) && report.getRowsFailed() == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.demo_multiple_services.config;
+
+import com.example.demo_multiple_services.service.ReadCoalescer;
+import com.example.demo_multiple_services.util.RequestDeadline;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Binds the Request-Budget-Ms header sent by the BFF to the request thread as a RequestDeadline,
+ * and unbinds it when the request completes. Also records when the request arrived, for the
+ * ReadCoalescer.
+ */
+@Slf4j
+@Component
+public class RequestDeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(ReadCoalescer.REQUEST_STARTED_AT, System.nanoTime());
+        String budget = request.getHeader(RequestDeadline.HEADER);
+        if (budget != null) {
+            try {
+                RequestDeadline.start(Long.parseLong(budget.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring invalid {} header: {}", RequestDeadline.HEADER, budget);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestDeadline.clear();
+    }
+}
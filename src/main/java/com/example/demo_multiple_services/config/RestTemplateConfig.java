@@ -1,27 +1,56 @@
 package com.example.demo_multiple_services.config;
 
+import com.example.demo_multiple_services.util.RequestDeadline;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
 /**
  * RestTemplate Configuration
  *
  * Provides a RestTemplate bean for making HTTP requests to other microservices.
  * Used by BffService to coordinate distributed transactions across services.
  *
+ * Connect and read timeouts are bounded so that a hung 1PC call fails the orchestration
+ * (and rolls back its transaction) instead of blocking the BFF thread indefinitely. When a
+ * RequestDeadline is bound to the calling thread, both timeouts are further capped by the
+ * remaining budget, giving every participant call a per-call timeout.
+ *
  * Note: In production environments, consider:
  * - Adding connection pooling configuration
- * - Setting appropriate timeouts
  * - Adding retry logic
- * - Implementing circuit breaker patterns (e.g., with Resilience4j)
  * - Using service discovery (e.g., with Spring Cloud)
  */
 @Configuration
 public class RestTemplateConfig {
 
+    @Value("${rest-template.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${rest-template.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+
     @Bean
     public RestTemplate restTemplate() {
-        return new RestTemplate();
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                long remaining = RequestDeadline.remainingMillis();
+                if (remaining < readTimeoutMs) {
+                    int timeout = (int) Math.max(1, remaining);
+                    connection.setReadTimeout(timeout);
+                    connection.setConnectTimeout(Math.min(timeout, connectTimeoutMs));
+                }
+            }
+        };
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(requestFactory);
     }
 }
@@ -0,0 +1,54 @@
+package com.example.demo_multiple_services.config;
+
+import com.scalar.db.api.TwoPhaseCommitTransactionManager;
+import com.scalar.db.service.TransactionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Two-Phase Commit Configuration
+ *
+ * Active when two-phase-commit.enabled=true. In a real deployment the coordinator (BFF) and each
+ * participant service run their own TwoPhaseCommitTransactionManager; since this demo hosts all
+ * of them in one application, each role gets its own manager so that joining, preparing and
+ * committing a transaction in one role does not act on another role's handle of it.
+ *
+ * twoPhaseCommitExecutor runs the prepare/validate/commit/rollback calls to the participants
+ * concurrently.
+ */
+@Configuration
+@ConditionalOnProperty(name = "two-phase-commit.enabled", havingValue = "true")
+public class ScalarDbTwoPhaseCommitConfig {
+
+    @Value("${scalardb.config.file:scalardb.properties}")
+    private String scalarDbConfigFile;
+
+    @Value("${two-phase-commit.executor-threads:16}")
+    private int executorThreads;
+
+    @Bean
+    public TwoPhaseCommitTransactionManager twoPhaseCommitCoordinatorManager() throws IOException {
+        return TransactionFactory.create(scalarDbConfigFile).getTwoPhaseCommitTransactionManager();
+    }
+
+    @Bean
+    public TwoPhaseCommitTransactionManager productTwoPhaseCommitManager() throws IOException {
+        return TransactionFactory.create(scalarDbConfigFile).getTwoPhaseCommitTransactionManager();
+    }
+
+    @Bean
+    public TwoPhaseCommitTransactionManager orderTwoPhaseCommitManager() throws IOException {
+        return TransactionFactory.create(scalarDbConfigFile).getTwoPhaseCommitTransactionManager();
+    }
+
+    @Bean
+    public ExecutorService twoPhaseCommitExecutor() {
+        return Executors.newFixedThreadPool(executorThreads);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo_multiple_services.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs such as the transaction deadline sweep.
+ *
+ * The jobs share Spring Boot's task scheduler, which runs a single thread unless
+ * spring.task.scheduling.pool.size says otherwise. Some jobs block, e.g. the participant health
+ * probes wait up to participants.health.timeout-ms per instance, so the pool is sized in
+ * application.properties to keep them from delaying the deadline sweep and the other jobs.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,38 @@
+package com.example.demo_multiple_services.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * WebClient Configuration
+ *
+ * Provides the non-blocking WebClient used by the reactive BFF services to call 1PC services,
+ * and a bounded scheduler onto which the blocking ScalarDB calls (start, commit, rollback)
+ * are offloaded so that they never run on the Netty event loop.
+ *
+ * The scheduler size caps how many ScalarDB calls run at once; HTTP calls to the participants
+ * do not occupy any of its threads while they are in flight.
+ */
+@Configuration
+public class WebClientConfig {
+
+    @Value("${bff.reactive.scalardb-threads:16}")
+    private int scalarDbThreads;
+
+    @Value("${bff.reactive.scalardb-queue-size:10000}")
+    private int scalarDbQueueSize;
+
+    @Bean
+    public WebClient webClient(WebClient.Builder builder) {
+        return builder.build();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler scalarDbScheduler() {
+        return Schedulers.newBoundedElastic(scalarDbThreads, scalarDbQueueSize, "scalardb");
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.BulkImportReportDto;
+import com.example.demo_multiple_services.dto.BulkImportRequestDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.BulkImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Bulk Import Controller
+ *
+ * Starts imports of product or order files from bulk-import.base-dir in the background and
+ * reports their progress.
+ */
+@RequestMapping(value = "/admin/bulk-import")
+@RestController
+public class BulkImportController {
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<BulkImportReportDto>> startImport(@RequestBody BulkImportRequestDto request) {
+        BulkImportReportDto result = bulkImportService.startImport(request);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<ApiResponse<BulkImportReportDto>> getImport(@PathVariable("jobId") String jobId) {
+        BulkImportReportDto result = bulkImportService.getImport(jobId);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @ExceptionHandler(value = CustomException.class)
+    public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
+        ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
+        return switch (ex.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.ChangeBatchDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.ChangeLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Change Log Controller
+ *
+ * Long-poll endpoint over the log of committed product and order mutations. A consumer passes the
+ * nextOffset of its previous response; when nothing new has been committed the request is held
+ * for up to waitMs, without occupying a request thread, and then answered with an empty batch.
+ */
+@RequestMapping(value = "/changes")
+@RestController
+public class ChangeLogController {
+    private static final long MAX_WAIT_MILLIS = 25000;
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @GetMapping
+    public CompletableFuture<ResponseEntity<ApiResponse<ChangeBatchDto>>> getChanges(
+            @RequestParam(value = "offset", defaultValue = "0") long offset,
+            @RequestParam(value = "max", defaultValue = "100") int max,
+            @RequestParam(value = "waitMs", defaultValue = "10000") long waitMs) {
+        if (offset < 0 || max < 1 || max > 10000) {
+            throw new CustomException("offset must be >= 0 and max between 1 and 10000", 9400);
+        }
+        return changeLog.poll(offset, max, Math.min(waitMs, MAX_WAIT_MILLIS))
+            .thenApply(result -> ResponseEntity.ok(ApiResponse.success(result)));
+    }
+
+    @ExceptionHandler(value = CustomException.class)
+    public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
+        ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
+        return switch (ex.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo_multiple_services.controller;
 
 import com.example.demo_multiple_services.service.GenericSqlService;
 import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.ColumnarResultDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.dto.SqlCommandDto;
 import com.example.demo_multiple_services.exception.CustomException;
@@ -15,6 +16,8 @@ import java.util.Map;
 @RequestMapping(value = "/generic-sql")
 @RestController
 public class GenericSqlController {
+    public static final String COLUMNAR_MEDIA_TYPE = "application/vnd.scalardb.columnar+json";
+
     @Autowired
     private GenericSqlService genericSqlService;
 
@@ -24,6 +27,13 @@ public class GenericSqlController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    // Selected with "Accept: application/vnd.scalardb.columnar+json"
+    @PostMapping(value = "/execute", produces = COLUMNAR_MEDIA_TYPE)
+    public ResponseEntity<ApiResponse<ColumnarResultDto>> executeSQLColumnar(@RequestBody SqlCommandDto sqlCommandDto) {
+        ColumnarResultDto result = genericSqlService.executeSQLColumnar(sqlCommandDto);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @ExceptionHandler(value = CustomException.class)
     public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
         ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
@@ -3,16 +3,22 @@ package com.example.demo_multiple_services.controller;
 import com.example.demo_multiple_services.service.OrderService;
 import com.example.demo_multiple_services.dto.OrderDto;
 import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.OrderPageDto;
+import com.example.demo_multiple_services.dto.OrderQtyAggregateDto;
+import com.example.demo_multiple_services.dto.OrderTotalsCheckDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.dto.SqlCommandDto;
 import com.example.demo_multiple_services.exception.CustomException;
 import com.scalar.db.exception.transaction.CrudException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import java.lang.reflect.InvocationTargetException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RequestMapping(value = "/order")
@@ -21,6 +27,10 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    // Earlier pages are skipped on the scanner, so deep pages cost a scan of every earlier page
+    @Value("${order.by-product.max-page:1000}")
+    private int maxProductOrderPage;
+
     @PostMapping
     public ResponseEntity<ApiResponse<Void>> insertOrder(@RequestBody OrderDto orderDto) {
         ResponseStatusDto status = orderService.insertOrder(orderDto);
@@ -66,12 +76,62 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @GetMapping("/by-product/{productId}")
+    public ResponseEntity<ApiResponse<OrderPageDto>> getOrderListByProductId(
+            @PathVariable("productId") Integer productId,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        if (page > maxProductOrderPage) {
+            throw new CustomException("page must be <= " + maxProductOrderPage, 9400);
+        }
+        OrderPageDto result = orderService.getOrderListByProductId(productId, page, size);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/by-time")
+    public ResponseEntity<ApiResponse<List<OrderDto>>> getOrderListByTimeRange(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        List<OrderDto> result = orderService.getOrderListByTimeRange(from, to);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @PostMapping("/by-time/migrate")
+    public ResponseEntity<ApiResponse<Long>> migrateOrdersByTime() {
+        Long result = orderService.migrateOrdersByTime();
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @GetMapping("/scan-all")
     public ResponseEntity<ApiResponse<List<OrderDto>>> getOrderListAll() {
         List<OrderDto> result = orderService.getOrderListAll();
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @GetMapping("/aggregate/qty-by-product")
+    public ResponseEntity<ApiResponse<List<OrderQtyAggregateDto>>> aggregateQtyByProduct() {
+        List<OrderQtyAggregateDto> result = orderService.aggregateQtyByProduct();
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/totals/{productId}")
+    public ResponseEntity<ApiResponse<OrderQtyAggregateDto>> getProductOrderTotal(@PathVariable("productId") Integer productId) {
+        OrderQtyAggregateDto result = orderService.getProductOrderTotal(productId);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @PostMapping("/totals/rebuild")
+    public ResponseEntity<ApiResponse<List<OrderQtyAggregateDto>>> rebuildProductOrderTotals() {
+        List<OrderQtyAggregateDto> result = orderService.rebuildProductOrderTotals();
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/totals/check")
+    public ResponseEntity<ApiResponse<OrderTotalsCheckDto>> checkProductOrderTotals() {
+        OrderTotalsCheckDto result = orderService.checkProductOrderTotals();
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @PostMapping("/execute-sql")
     public ResponseEntity<ApiResponse<List<OrderDto>>> executeSQL(@RequestBody SqlCommandDto sqlCommandDto) {
         List<OrderDto> result = orderService.executeSQL(sqlCommandDto);
@@ -84,6 +144,7 @@ public class OrderController {
         return switch (ex.getErrorCode()) {
             case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
             case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
             default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         };
     }
@@ -5,6 +5,7 @@ import com.example.demo_multiple_services.dto.OrderDto;
 import com.example.demo_multiple_services.dto.ApiResponse;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.IdempotencyService;
 import com.scalar.db.exception.transaction.CrudException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +25,7 @@ import java.util.List;
  * - Orchestrates calls to multiple 1PC services
  * - Manages transaction lifecycle (start, propagate, commit/rollback)
  * - No SQL execution endpoints
+ * - Write endpoints accept an optional Idempotency-Key header to make client retries safe
  */
 @RequestMapping(value = "/order-one-pc-bff")
 @RestController
@@ -31,15 +33,24 @@ public class OrderOnePCBffController {
     @Autowired
     private OrderOnePCBffService orderOnePCBffService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @PostMapping
-    public ResponseEntity<ApiResponse<Void>> insertOrder(@RequestBody OrderDto orderDto) {
-        ResponseStatusDto status = orderOnePCBffService.insertOrder(orderDto);
+    public ResponseEntity<ApiResponse<Void>> insertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseStatusDto status = idempotencyService.execute("POST /order-one-pc-bff", idempotencyKey, orderDto,
+            () -> orderOnePCBffService.insertOrder(orderDto));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
     @PostMapping("/upsert")
-    public ResponseEntity<ApiResponse<Void>> upsertOrder(@RequestBody OrderDto orderDto) {
-        ResponseStatusDto status = orderOnePCBffService.upsertOrder(orderDto);
+    public ResponseEntity<ApiResponse<Void>> upsertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseStatusDto status = idempotencyService.execute("POST /order-one-pc-bff/upsert", idempotencyKey, orderDto,
+            () -> orderOnePCBffService.upsertOrder(orderDto));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
@@ -53,17 +64,23 @@ public class OrderOnePCBffController {
     }
 
     @PutMapping
-    public ResponseEntity<ApiResponse<Void>> updateOrder(@RequestBody OrderDto orderDto) {
-        ResponseStatusDto status = orderOnePCBffService.updateOrder(orderDto);
+    public ResponseEntity<ApiResponse<Void>> updateOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseStatusDto status = idempotencyService.execute("PUT /order-one-pc-bff", idempotencyKey, orderDto,
+            () -> orderOnePCBffService.updateOrder(orderDto));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<ApiResponse<Void>> deleteOrder(@PathVariable("id") String id) {
+    public ResponseEntity<ApiResponse<Void>> deleteOrder(
+            @PathVariable("id") String id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         OrderDto orderDto = OrderDto.builder()
             .id(id)
             .build();
-        ResponseStatusDto status = orderOnePCBffService.deleteOrder(orderDto);
+        ResponseStatusDto status = idempotencyService.execute("DELETE /order-one-pc-bff/" + id, idempotencyKey, orderDto,
+            () -> orderOnePCBffService.deleteOrder(orderDto));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
@@ -88,6 +105,9 @@ public class OrderOnePCBffController {
         return switch (ex.getErrorCode()) {
             case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
             case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            case 9800 -> new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+            case 9900 -> new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
             default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         };
     }
@@ -3,6 +3,8 @@ package com.example.demo_multiple_services.controller;
 import com.example.demo_multiple_services.service.OrderOnePCService;
 import com.example.demo_multiple_services.dto.OrderDto;
 import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.BatchOperationDto;
+import com.example.demo_multiple_services.dto.BatchResultDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.exception.CustomException;
 import com.scalar.db.exception.transaction.CrudException;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.lang.reflect.InvocationTargetException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -97,12 +100,37 @@ public class OrderOnePCController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchResultDto<OrderDto>>>> executeBatch(
+            @RequestBody List<BatchOperationDto<OrderDto>> operations,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        List<BatchResultDto<OrderDto>> results = orderService.executeBatch(operations, transactionId);
+        BatchResultDto<OrderDto> failed = results.stream().filter(result -> !result.isSuccess()).findFirst().orElse(null);
+        if (failed == null) {
+            return ResponseEntity.ok(ApiResponse.success(results));
+        }
+        // Keep the per-operation results in the error response so the caller can see which one failed
+        ApiResponse<List<BatchResultDto<OrderDto>>> errorResponse = ApiResponse.<List<BatchResultDto<OrderDto>>>builder()
+            .success(false)
+            .message("Batch operation " + failed.getIndex() + " (" + failed.getOperation() + ") failed: " + failed.getMessage())
+            .errorCode(failed.getErrorCode())
+            .data(results)
+            .timestamp(LocalDateTime.now())
+            .build();
+        return switch (failed.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+
     @ExceptionHandler(value = CustomException.class)
     public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
         ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
         return switch (ex.getErrorCode()) {
             case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
             case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
             default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         };
     }
@@ -0,0 +1,108 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.service.OrderTwoPCService;
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Two-Phase Commit (2PC) participant Controller for Order
+ *
+ * Receives the transaction ID via the ScalarDB-Transaction-ID header like the 1PC controller,
+ * and additionally exposes the prepare, validate, commit and rollback steps that the
+ * coordinating BFF calls on every participant.
+ */
+@RequestMapping(value = "/order-two-pc")
+@RestController
+@ConditionalOnProperty(name = "two-phase-commit.enabled", havingValue = "true")
+public class OrderTwoPCController {
+    @Autowired
+    private OrderTwoPCService orderService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<Void>> insertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = orderService.insertOrder(orderDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/upsert")
+    public ResponseEntity<ApiResponse<Void>> upsertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = orderService.upsertOrder(orderDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<OrderDto>> getOrder(
+            @PathVariable("id") String id,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        OrderDto orderDto = OrderDto.builder()
+            .id(id)
+            .build();
+        OrderDto result = orderService.getOrder(orderDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @PutMapping
+    public ResponseEntity<ApiResponse<Void>> updateOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = orderService.updateOrder(orderDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> deleteOrder(
+            @PathVariable("id") String id,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        OrderDto orderDto = OrderDto.builder()
+            .id(id)
+            .build();
+        ResponseStatusDto status = orderService.deleteOrder(orderDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/prepare")
+    public ResponseEntity<ApiResponse<Void>> prepare(@RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = orderService.prepare(transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/validate")
+    public ResponseEntity<ApiResponse<Void>> validate(@RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = orderService.validate(transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/commit")
+    public ResponseEntity<ApiResponse<Void>> commit(@RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = orderService.commit(transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/rollback")
+    public ResponseEntity<ApiResponse<Void>> rollback(@RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = orderService.rollback(transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @ExceptionHandler(value = CustomException.class)
+    public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
+        ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
+        return switch (ex.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
@@ -2,8 +2,11 @@ package com.example.demo_multiple_services.controller;
 
 import com.example.demo_multiple_services.dto.ApiResponse;
 import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.OrderSagaDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.IdempotencyService;
+import com.example.demo_multiple_services.service.OrderSagaService;
 import com.example.demo_multiple_services.service.PlaceOrderOnePCBffService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -20,6 +23,8 @@ import org.springframework.web.bind.annotation.*;
  * - Orchestrates calls to multiple 1PC services
  * - Manages transaction lifecycle (start, propagate, commit/rollback)
  * - No SQL execution endpoints
+ * - Write endpoints accept an optional Idempotency-Key header to make client retries safe
+ * - mode=saga accepts the order immediately (202) and settles it asynchronously, see OrderSagaService
  */
 @RequestMapping(value = "/place-order-one-pc-bff")
 @RestController
@@ -27,18 +32,42 @@ public class PlaceOrderOnePCBffController {
     @Autowired
     private PlaceOrderOnePCBffService placeOrderOnePCBffService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private OrderSagaService orderSagaService;
+
     @PostMapping
-    public ResponseEntity<ApiResponse<Void>> insertOrder(@RequestBody OrderDto orderDto) {
-        ResponseStatusDto status = placeOrderOnePCBffService.placeOrder(orderDto);
+    public ResponseEntity<ApiResponse<Void>> insertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestParam(value = "mode", defaultValue = "one-pc") String mode,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if ("saga".equals(mode)) {
+            ResponseStatusDto status = idempotencyService.execute("POST /place-order-one-pc-bff?mode=saga", idempotencyKey, orderDto,
+                () -> orderSagaService.submit(orderDto));
+            return new ResponseEntity<>(ApiResponse.fromResponseStatus(status), HttpStatus.ACCEPTED);
+        }
+        ResponseStatusDto status = idempotencyService.execute("POST /place-order-one-pc-bff", idempotencyKey, orderDto,
+            () -> placeOrderOnePCBffService.placeOrder(orderDto));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
+    @GetMapping("/saga/{orderId}")
+    public ResponseEntity<ApiResponse<OrderSagaDto>> getOrderSaga(@PathVariable("orderId") String orderId) {
+        OrderSagaDto result = orderSagaService.getOrderSaga(orderId);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @ExceptionHandler(value = CustomException.class)
     public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
         ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
         return switch (ex.getErrorCode()) {
             case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
             case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            case 9800 -> new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+            case 9900 -> new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
             default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         };
     }
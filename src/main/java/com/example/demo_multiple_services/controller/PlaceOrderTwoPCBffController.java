@@ -0,0 +1,52 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.IdempotencyService;
+import com.example.demo_multiple_services.service.PlaceOrderTwoPCBffService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Two-Phase Commit BFF Controller for placing an Order
+ *
+ * Same operation as PlaceOrderOnePCBffController, coordinated with ScalarDB two-phase commit
+ * instead of a shared one-phase transaction. Enabled with two-phase-commit.enabled=true.
+ */
+@RequestMapping(value = "/place-order-two-pc-bff")
+@RestController
+@ConditionalOnProperty(name = "two-phase-commit.enabled", havingValue = "true")
+public class PlaceOrderTwoPCBffController {
+    @Autowired
+    private PlaceOrderTwoPCBffService placeOrderTwoPCBffService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<Void>> insertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseStatusDto status = idempotencyService.execute("POST /place-order-two-pc-bff", idempotencyKey, orderDto,
+            () -> placeOrderTwoPCBffService.placeOrder(orderDto));
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @ExceptionHandler(value = CustomException.class)
+    public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
+        ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
+        return switch (ex.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            case 9800 -> new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+            case 9900 -> new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
@@ -3,6 +3,7 @@ package com.example.demo_multiple_services.controller;
 import com.example.demo_multiple_services.service.ProductService;
 import com.example.demo_multiple_services.dto.ProductDto;
 import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.StockAggregateDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.dto.SqlCommandDto;
 import com.example.demo_multiple_services.exception.CustomException;
@@ -72,6 +73,12 @@ public class ProductController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @GetMapping("/aggregate/stock")
+    public ResponseEntity<ApiResponse<StockAggregateDto>> aggregateStock() {
+        StockAggregateDto result = productService.aggregateStock();
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @PostMapping("/execute-sql")
     public ResponseEntity<ApiResponse<List<ProductDto>>> executeSQL(@RequestBody SqlCommandDto sqlCommandDto) {
         List<ProductDto> result = productService.executeSQL(sqlCommandDto);
@@ -84,6 +91,7 @@ public class ProductController {
         return switch (ex.getErrorCode()) {
             case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
             case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
             default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         };
     }
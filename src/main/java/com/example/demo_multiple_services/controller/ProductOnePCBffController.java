@@ -5,6 +5,7 @@ import com.example.demo_multiple_services.dto.ProductDto;
 import com.example.demo_multiple_services.dto.ApiResponse;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.IdempotencyService;
 import com.scalar.db.exception.transaction.CrudException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -24,6 +25,7 @@ import java.util.List;
  * - Orchestrates calls to multiple 1PC services
  * - Manages transaction lifecycle (start, propagate, commit/rollback)
  * - No SQL execution endpoints
+ * - Write endpoints accept an optional Idempotency-Key header to make client retries safe
  */
 @RequestMapping(value = "/product-one-pc-bff")
 @RestController
@@ -31,15 +33,33 @@ public class ProductOnePCBffController {
     @Autowired
     private ProductOnePCBffService productOnePCBffService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
     @PostMapping
-    public ResponseEntity<ApiResponse<Void>> insertProduct(@RequestBody ProductDto productDto) {
-        ResponseStatusDto status = productOnePCBffService.insertProduct(productDto);
+    public ResponseEntity<ApiResponse<Void>> insertProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseStatusDto status = idempotencyService.execute("POST /product-one-pc-bff", idempotencyKey, productDto,
+            () -> productOnePCBffService.insertProduct(productDto));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
     @PostMapping("/upsert")
-    public ResponseEntity<ApiResponse<Void>> upsertProduct(@RequestBody ProductDto productDto) {
-        ResponseStatusDto status = productOnePCBffService.upsertProduct(productDto);
+    public ResponseEntity<ApiResponse<Void>> upsertProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseStatusDto status = idempotencyService.execute("POST /product-one-pc-bff/upsert", idempotencyKey, productDto,
+            () -> productOnePCBffService.upsertProduct(productDto));
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/upsert-batch")
+    public ResponseEntity<ApiResponse<Void>> upsertProducts(
+            @RequestBody List<ProductDto> productDtos,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseStatusDto status = idempotencyService.execute("POST /product-one-pc-bff/upsert-batch", idempotencyKey, productDtos,
+            () -> productOnePCBffService.upsertProducts(productDtos));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
@@ -53,17 +73,23 @@ public class ProductOnePCBffController {
     }
 
     @PutMapping
-    public ResponseEntity<ApiResponse<Void>> updateProduct(@RequestBody ProductDto productDto) {
-        ResponseStatusDto status = productOnePCBffService.updateProduct(productDto);
+    public ResponseEntity<ApiResponse<Void>> updateProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseStatusDto status = idempotencyService.execute("PUT /product-one-pc-bff", idempotencyKey, productDto,
+            () -> productOnePCBffService.updateProduct(productDto));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<ApiResponse<Void>> deleteProduct(@PathVariable("id") Integer id) {
+    public ResponseEntity<ApiResponse<Void>> deleteProduct(
+            @PathVariable("id") Integer id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         ProductDto productDto = ProductDto.builder()
             .id(id)
             .build();
-        ResponseStatusDto status = productOnePCBffService.deleteProduct(productDto);
+        ResponseStatusDto status = idempotencyService.execute("DELETE /product-one-pc-bff/" + id, idempotencyKey, productDto,
+            () -> productOnePCBffService.deleteProduct(productDto));
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
@@ -88,6 +114,9 @@ public class ProductOnePCBffController {
         return switch (ex.getErrorCode()) {
             case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
             case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            case 9800 -> new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+            case 9900 -> new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
             default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         };
     }
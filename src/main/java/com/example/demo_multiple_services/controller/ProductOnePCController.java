@@ -3,7 +3,10 @@ package com.example.demo_multiple_services.controller;
 import com.example.demo_multiple_services.service.ProductOnePCService;
 import com.example.demo_multiple_services.dto.ProductDto;
 import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.BatchOperationDto;
+import com.example.demo_multiple_services.dto.BatchResultDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
 import com.example.demo_multiple_services.exception.CustomException;
 import com.scalar.db.exception.transaction.CrudException;
 import org.springframework.http.HttpStatus;
@@ -12,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.lang.reflect.InvocationTargetException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -79,6 +83,15 @@ public class ProductOnePCController {
         return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
     }
 
+    @PostMapping("/{id}/reserve")
+    public ResponseEntity<ApiResponse<StockReservationDto>> reserveStock(
+            @PathVariable("id") Integer id,
+            @RequestBody StockReservationDto reservationDto,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        StockReservationDto result = productService.reserveStock(id, reservationDto.getQuantity(), transactionId);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @GetMapping("/scan-by-pk/{id}")
     public ResponseEntity<ApiResponse<List<ProductDto>>> getProductByPk(
             @PathVariable("id") Integer id,
@@ -97,12 +110,37 @@ public class ProductOnePCController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchResultDto<ProductDto>>>> executeBatch(
+            @RequestBody List<BatchOperationDto<ProductDto>> operations,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        List<BatchResultDto<ProductDto>> results = productService.executeBatch(operations, transactionId);
+        BatchResultDto<ProductDto> failed = results.stream().filter(result -> !result.isSuccess()).findFirst().orElse(null);
+        if (failed == null) {
+            return ResponseEntity.ok(ApiResponse.success(results));
+        }
+        // Keep the per-operation results in the error response so the caller can see which one failed
+        ApiResponse<List<BatchResultDto<ProductDto>>> errorResponse = ApiResponse.<List<BatchResultDto<ProductDto>>>builder()
+            .success(false)
+            .message("Batch operation " + failed.getIndex() + " (" + failed.getOperation() + ") failed: " + failed.getMessage())
+            .errorCode(failed.getErrorCode())
+            .data(results)
+            .timestamp(LocalDateTime.now())
+            .build();
+        return switch (failed.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+
     @ExceptionHandler(value = CustomException.class)
     public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
         ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
         return switch (ex.getErrorCode()) {
             case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
             case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
             default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
         };
     }
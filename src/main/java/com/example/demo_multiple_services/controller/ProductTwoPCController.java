@@ -0,0 +1,118 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.service.ProductTwoPCService;
+import com.example.demo_multiple_services.dto.ProductDto;
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Two-Phase Commit (2PC) participant Controller for Product
+ *
+ * Receives the transaction ID via the ScalarDB-Transaction-ID header like the 1PC controller,
+ * and additionally exposes the prepare, validate, commit and rollback steps that the
+ * coordinating BFF calls on every participant.
+ */
+@RequestMapping(value = "/product-two-pc")
+@RestController
+@ConditionalOnProperty(name = "two-phase-commit.enabled", havingValue = "true")
+public class ProductTwoPCController {
+    @Autowired
+    private ProductTwoPCService productService;
+
+    @PostMapping
+    public ResponseEntity<ApiResponse<Void>> insertProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = productService.insertProduct(productDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/upsert")
+    public ResponseEntity<ApiResponse<Void>> upsertProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = productService.upsertProduct(productDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponse<ProductDto>> getProduct(
+            @PathVariable("id") Integer id,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ProductDto productDto = ProductDto.builder()
+            .id(id)
+            .build();
+        ProductDto result = productService.getProduct(productDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @PutMapping
+    public ResponseEntity<ApiResponse<Void>> updateProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = productService.updateProduct(productDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> deleteProduct(
+            @PathVariable("id") Integer id,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ProductDto productDto = ProductDto.builder()
+            .id(id)
+            .build();
+        ResponseStatusDto status = productService.deleteProduct(productDto, transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/{id}/reserve")
+    public ResponseEntity<ApiResponse<StockReservationDto>> reserveStock(
+            @PathVariable("id") Integer id,
+            @RequestBody StockReservationDto reservationDto,
+            @RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        StockReservationDto result = productService.reserveStock(id, reservationDto.getQuantity(), transactionId);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @PostMapping("/prepare")
+    public ResponseEntity<ApiResponse<Void>> prepare(@RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = productService.prepare(transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/validate")
+    public ResponseEntity<ApiResponse<Void>> validate(@RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = productService.validate(transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/commit")
+    public ResponseEntity<ApiResponse<Void>> commit(@RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = productService.commit(transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @PostMapping("/rollback")
+    public ResponseEntity<ApiResponse<Void>> rollback(@RequestHeader("ScalarDB-Transaction-ID") String transactionId) {
+        ResponseStatusDto status = productService.rollback(transactionId);
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+
+    @ExceptionHandler(value = CustomException.class)
+    public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
+        ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
+        return switch (ex.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
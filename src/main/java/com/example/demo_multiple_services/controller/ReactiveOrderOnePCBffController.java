@@ -0,0 +1,107 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.service.ReactiveOrderOnePCBffService;
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.IdempotencyService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive One-Phase Commit BFF Controller for Order
+ *
+ * Same operations as OrderOnePCBffController, but the orchestration runs as a non-blocking
+ * pipeline: the request thread is released as soon as the Mono is returned, and the response
+ * is written when the distributed transaction has been committed or rolled back.
+ */
+@RequestMapping(value = "/order-one-pc-bff-reactive")
+@RestController
+public class ReactiveOrderOnePCBffController {
+    @Autowired
+    private ReactiveOrderOnePCBffService orderOnePCBffService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @PostMapping
+    public Mono<ResponseEntity<ApiResponse<Void>>> insertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.executeReactive("POST /order-one-pc-bff-reactive", idempotencyKey, orderDto,
+                () -> orderOnePCBffService.insertOrder(orderDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @PostMapping("/upsert")
+    public Mono<ResponseEntity<ApiResponse<Void>>> upsertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.executeReactive("POST /order-one-pc-bff-reactive/upsert", idempotencyKey, orderDto,
+                () -> orderOnePCBffService.upsertOrder(orderDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ApiResponse<OrderDto>>> getOrder(@PathVariable("id") String id) {
+        OrderDto orderDto = OrderDto.builder()
+            .id(id)
+            .build();
+        return orderOnePCBffService.getOrder(orderDto)
+            .map(result -> ResponseEntity.ok(ApiResponse.success(result)));
+    }
+
+    @PutMapping
+    public Mono<ResponseEntity<ApiResponse<Void>>> updateOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.executeReactive("PUT /order-one-pc-bff-reactive", idempotencyKey, orderDto,
+                () -> orderOnePCBffService.updateOrder(orderDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<ApiResponse<Void>>> deleteOrder(
+            @PathVariable("id") String id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        OrderDto orderDto = OrderDto.builder()
+            .id(id)
+            .build();
+        return idempotencyService.executeReactive("DELETE /order-one-pc-bff-reactive/" + id, idempotencyKey, orderDto,
+                () -> orderOnePCBffService.deleteOrder(orderDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @GetMapping("/scan-by-pk/{id}")
+    public Mono<ResponseEntity<ApiResponse<List<OrderDto>>>> getOrderByPk(@PathVariable("id") String id) {
+        OrderDto orderDto = OrderDto.builder()
+            .id(id)
+            .build();
+        return orderOnePCBffService.getOrderListByPk(orderDto)
+            .map(result -> ResponseEntity.ok(ApiResponse.success(result)));
+    }
+
+    @GetMapping("/scan-all")
+    public Mono<ResponseEntity<ApiResponse<List<OrderDto>>>> getOrderListAll() {
+        return orderOnePCBffService.getOrderListAll()
+            .map(result -> ResponseEntity.ok(ApiResponse.success(result)));
+    }
+
+    @ExceptionHandler(value = CustomException.class)
+    public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
+        ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
+        return switch (ex.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            case 9800 -> new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+            case 9900 -> new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.ReactivePlaceOrderOnePCBffService;
+import com.example.demo_multiple_services.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive One-Phase Commit BFF Controller for placing an Order
+ *
+ * Same operation as PlaceOrderOnePCBffController, but the orchestration runs as a non-blocking
+ * pipeline, so a single node can hold many in-flight distributed transactions with few threads.
+ */
+@RequestMapping(value = "/place-order-one-pc-bff-reactive")
+@RestController
+public class ReactivePlaceOrderOnePCBffController {
+    @Autowired
+    private ReactivePlaceOrderOnePCBffService placeOrderOnePCBffService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @PostMapping
+    public Mono<ResponseEntity<ApiResponse<Void>>> insertOrder(
+            @RequestBody OrderDto orderDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.executeReactive("POST /place-order-one-pc-bff-reactive", idempotencyKey, orderDto,
+                () -> placeOrderOnePCBffService.placeOrder(orderDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @ExceptionHandler(value = CustomException.class)
+    public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
+        ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
+        return switch (ex.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            case 9800 -> new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+            case 9900 -> new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.service.ReactiveProductOnePCBffService;
+import com.example.demo_multiple_services.dto.ProductDto;
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.service.IdempotencyService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive One-Phase Commit BFF Controller for Product
+ *
+ * Same operations as ProductOnePCBffController, but the orchestration runs as a non-blocking
+ * pipeline: the request thread is released as soon as the Mono is returned, and the response
+ * is written when the distributed transaction has been committed or rolled back.
+ */
+@RequestMapping(value = "/product-one-pc-bff-reactive")
+@RestController
+public class ReactiveProductOnePCBffController {
+    @Autowired
+    private ReactiveProductOnePCBffService productOnePCBffService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @PostMapping
+    public Mono<ResponseEntity<ApiResponse<Void>>> insertProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.executeReactive("POST /product-one-pc-bff-reactive", idempotencyKey, productDto,
+                () -> productOnePCBffService.insertProduct(productDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @PostMapping("/upsert")
+    public Mono<ResponseEntity<ApiResponse<Void>>> upsertProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.executeReactive("POST /product-one-pc-bff-reactive/upsert", idempotencyKey, productDto,
+                () -> productOnePCBffService.upsertProduct(productDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ApiResponse<ProductDto>>> getProduct(@PathVariable("id") Integer id) {
+        ProductDto productDto = ProductDto.builder()
+            .id(id)
+            .build();
+        return productOnePCBffService.getProduct(productDto)
+            .map(result -> ResponseEntity.ok(ApiResponse.success(result)));
+    }
+
+    @PutMapping
+    public Mono<ResponseEntity<ApiResponse<Void>>> updateProduct(
+            @RequestBody ProductDto productDto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotencyService.executeReactive("PUT /product-one-pc-bff-reactive", idempotencyKey, productDto,
+                () -> productOnePCBffService.updateProduct(productDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<ApiResponse<Void>>> deleteProduct(
+            @PathVariable("id") Integer id,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ProductDto productDto = ProductDto.builder()
+            .id(id)
+            .build();
+        return idempotencyService.executeReactive("DELETE /product-one-pc-bff-reactive/" + id, idempotencyKey, productDto,
+                () -> productOnePCBffService.deleteProduct(productDto))
+            .map(status -> ResponseEntity.ok(ApiResponse.fromResponseStatus(status)));
+    }
+
+    @GetMapping("/scan-by-pk/{id}")
+    public Mono<ResponseEntity<ApiResponse<List<ProductDto>>>> getProductByPk(@PathVariable("id") Integer id) {
+        ProductDto productDto = ProductDto.builder()
+            .id(id)
+            .build();
+        return productOnePCBffService.getProductListByPk(productDto)
+            .map(result -> ResponseEntity.ok(ApiResponse.success(result)));
+    }
+
+    @GetMapping("/scan-all")
+    public Mono<ResponseEntity<ApiResponse<List<ProductDto>>>> getProductListAll() {
+        return productOnePCBffService.getProductListAll()
+            .map(result -> ResponseEntity.ok(ApiResponse.success(result)));
+    }
+
+    @ExceptionHandler(value = CustomException.class)
+    public ResponseEntity<ApiResponse<Void>> handleScalarDbException(CustomException ex) {
+        ApiResponse<Void> errorResponse = ApiResponse.error(ex.getErrorCode(), ex.getMessage());
+        return switch (ex.getErrorCode()) {
+            case 9100, 9400 -> new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
+            case 9200, 9300 -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+            case 9600 -> new ResponseEntity<>(errorResponse, HttpStatus.GATEWAY_TIMEOUT);
+            case 9800 -> new ResponseEntity<>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+            case 9900 -> new ResponseEntity<>(errorResponse, HttpStatus.UNPROCESSABLE_ENTITY);
+            default -> new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.demo_multiple_services.controller;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.TransactionInfoDto;
+import com.example.demo_multiple_services.service.TransactionTracker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Admin Controller for active distributed transactions
+ *
+ * Exposes the TransactionTracker registry so operators can see which transactions are open,
+ * where they came from and which participants they touched, and roll back a stuck one by hand.
+ */
+@RequestMapping(value = "/admin/transactions")
+@RestController
+public class TransactionAdminController {
+    @Autowired
+    private TransactionTracker transactionTracker;
+
+    @GetMapping
+    public ResponseEntity<ApiResponse<List<TransactionInfoDto>>> getActiveTransactions() {
+        List<TransactionInfoDto> result = transactionTracker.getActiveTransactions();
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse<Void>> abortTransaction(@PathVariable("id") String id) {
+        if (!transactionTracker.abort(id)) {
+            return new ResponseEntity<>(ApiResponse.error(9400, "No active transaction: " + id), HttpStatus.NOT_FOUND);
+        }
+        ResponseStatusDto status = ResponseStatusDto.builder().code(0).message("Transaction aborted").build();
+        return ResponseEntity.ok(ApiResponse.fromResponseStatus(status));
+    }
+}
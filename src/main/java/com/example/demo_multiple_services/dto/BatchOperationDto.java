@@ -0,0 +1,21 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One operation of a 1PC batch request
+ *
+ * operation is one of get, insert, upsert, update, delete; data carries the record (only the
+ * key fields are needed for get and delete).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchOperationDto<T> {
+    private String operation;
+    private T data;
+}
@@ -0,0 +1,64 @@
+package com.example.demo_multiple_services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of one operation of a 1PC batch request, in request order
+ *
+ * Execution stops at the first failed operation and rolls the transaction back. Every operation
+ * still gets a result, whose status says what happened to it: applied, failed, rolled_back (it
+ * succeeded before the failure, but the rollback undid it) or not_executed (it came after the
+ * failure).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResultDto<T> {
+    public static final String APPLIED = "applied";
+    public static final String FAILED = "failed";
+    public static final String ROLLED_BACK = "rolled_back";
+    public static final String NOT_EXECUTED = "not_executed";
+
+    private int index;
+    private String operation;
+    private boolean success;
+    private String status;
+    private T data;
+    private Integer errorCode;
+    private String message;
+
+    public static <T> BatchResultDto<T> success(int index, String operation, T data) {
+        return BatchResultDto.<T>builder().index(index).operation(operation).success(true).status(APPLIED).data(data).build();
+    }
+
+    public static <T> BatchResultDto<T> failure(int index, String operation, int errorCode, String message) {
+        return BatchResultDto.<T>builder().index(index).operation(operation).success(false).status(FAILED)
+            .errorCode(errorCode).message(message).build();
+    }
+
+    /**
+     * Complete the results of a batch that stopped at its last result, a failure
+     *
+     * @param results The results up to and including the failed operation
+     * @param operations All operations of the batch
+     */
+    public static <T> void abort(List<BatchResultDto<T>> results, List<? extends BatchOperationDto<?>> operations) {
+        for (BatchResultDto<T> result : results) {
+            if (result.isSuccess()) {
+                result.setStatus(ROLLED_BACK);
+            }
+        }
+        for (int i = results.size(); i < operations.size(); i++) {
+            String operation = operations.get(i).getOperation() != null ? operations.get(i).getOperation().toLowerCase() : "";
+            results.add(BatchResultDto.<T>builder().index(i).operation(operation).success(false).status(NOT_EXECUTED).build());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Manifest written next to the segments of one exported table
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkExportManifestDto {
+    private String namespace;
+    private String table;
+    private List<String> columns;
+    private String format;
+    private long startedAt;
+    private long finishedAt;
+    private long rows;
+    private double rowsPerSecond;
+    private List<Segment> segments;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Segment {
+        private String file;
+        private long rows;
+        private long bytes;
+    }
+}
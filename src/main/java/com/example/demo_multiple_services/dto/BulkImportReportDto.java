@@ -0,0 +1,31 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkImportReportDto {
+    private String jobId;
+    private String entity;
+    private String file;
+    // RUNNING, COMPLETED or FAILED
+    private String status;
+    private long rowsRead;
+    private long rowsSkipped;
+    private long rowsImported;
+    private long rowsFailed;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    // Last data line covered by the checkpoint
+    private long checkpointLine;
+    // Rows that could not be parsed, with their line numbers, next to the input file
+    private String rejectsFile;
+    private List<String> failures;
+}
@@ -0,0 +1,21 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkImportRequestDto {
+    // "product" or "order"
+    private String entity;
+    // File name, relative to bulk-import.base-dir
+    private String file;
+    // "csv" (with a header row) or "ndjson"; derived from the file extension when omitted
+    private String format;
+    // Continue after the last checkpoint of a previous run instead of starting over
+    private boolean resume;
+}
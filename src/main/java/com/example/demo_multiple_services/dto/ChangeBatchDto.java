@@ -0,0 +1,18 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ChangeBatchDto {
+    private List<ChangeEventDto> changes;
+    // Offset to pass on the next poll
+    private long nextOffset;
+}
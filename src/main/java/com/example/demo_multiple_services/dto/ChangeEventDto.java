@@ -0,0 +1,28 @@
+package com.example.demo_multiple_services.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One committed mutation in the change log
+ *
+ * data holds the written record for inserts, updates and upserts, and only the key for deletes.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEventDto {
+    private long offset;
+    private String transactionId;
+    private String namespace;
+    private String table;
+    private String operation;
+    private Object key;
+    private Object data;
+    private long committedAt;
+}
@@ -0,0 +1,29 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Compact SQL result: the column header is sent once and each row is a plain array of values
+ * in header order, instead of a map repeating every column name.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ColumnarResultDto {
+    private List<Column> columns;
+    private List<Object[]> rows;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Column {
+        private String name;
+        private String type;
+    }
+}
@@ -15,7 +15,7 @@ import java.nio.ByteBuffer;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 public class OrderDto {
     private String id;
     private Integer productId;
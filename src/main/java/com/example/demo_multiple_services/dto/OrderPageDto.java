@@ -0,0 +1,19 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderPageDto {
+    private List<OrderDto> orders;
+    private int page;
+    private int size;
+    private boolean hasNext;
+}
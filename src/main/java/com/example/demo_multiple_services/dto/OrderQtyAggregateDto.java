@@ -0,0 +1,16 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderQtyAggregateDto {
+    private Integer productId;
+    private long orderCount;
+    private long totalQty;
+}
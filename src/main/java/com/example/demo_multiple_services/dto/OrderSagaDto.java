@@ -0,0 +1,27 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of an order placed in saga mode
+ *
+ * status is one of PENDING, STOCK_RESERVED, COMPENSATING (in progress) or COMPLETED, FAILED,
+ * COMPENSATED (settled); message explains a failure.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderSagaDto {
+    private String orderId;
+    private Integer productId;
+    private Integer orderQty;
+    private String status;
+    private String message;
+    private Integer attempts;
+    private Long createdAt;
+    private Long updatedAt;
+}
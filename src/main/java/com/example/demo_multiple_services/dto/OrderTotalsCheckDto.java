@@ -0,0 +1,32 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of comparing the product_order_total summary table with the order table
+ *
+ * expected is computed from the order table, actual is the stored summary (null if missing).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderTotalsCheckDto {
+    private boolean consistent;
+    private int checkedProducts;
+    private List<Mismatch> mismatches;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Mismatch {
+        private Integer productId;
+        private OrderQtyAggregateDto expected;
+        private OrderQtyAggregateDto actual;
+    }
+}
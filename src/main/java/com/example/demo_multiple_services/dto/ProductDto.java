@@ -15,7 +15,7 @@ import java.nio.ByteBuffer;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
-@SuperBuilder
+@SuperBuilder(toBuilder = true)
 public class ProductDto {
     private Integer id;
     private String productName;
@@ -0,0 +1,19 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockAggregateDto {
+    private long productCount;
+    private long totalStock;
+    // Stock moved from the product rows into node escrow (escrow.enabled); available = totalStock + escrowedStock
+    private long escrowedStock;
+    private Integer minStock;
+    private Integer maxStock;
+}
@@ -0,0 +1,23 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request and result of a stock reservation
+ *
+ * The caller sends the quantity; the result tells whether it was reserved and how much stock
+ * is left (or was available, when it was not reserved).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StockReservationDto {
+    private Integer productId;
+    private Integer quantity;
+    private boolean reserved;
+    private Integer remainingStock;
+}
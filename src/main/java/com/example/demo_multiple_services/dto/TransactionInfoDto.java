@@ -0,0 +1,20 @@
+package com.example.demo_multiple_services.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionInfoDto {
+    private String transactionId;
+    private String origin;
+    private List<String> participants;
+    private long startedAt;
+    private long ageMillis;
+}
@@ -0,0 +1,8 @@
+package com.example.demo_multiple_services.exception;
+
+public class ParticipantUnavailableException extends RuntimeException {
+
+    public ParticipantUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo_multiple_services.model;
+
+import lombok.*;
+import com.scalar.db.io.Key;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    public static final String NAMESPACE = "bff";
+    public static final String TABLE = "idempotency_key";
+    public static final String IDEMPOTENCY_KEY = "idempotency_key";
+    public static final String CODE = "code";
+    public static final String MESSAGE = "message";
+    public static final String FINGERPRINT = "fingerprint";
+    public static final String CREATED_AT = "created_at";
+
+    private String idempotencyKey;
+    private Integer code;
+    private String message;
+    private String fingerprint;
+    private Long createdAt;
+
+    public Key getPartitionKey() {
+        return Key.newBuilder().addText(IDEMPOTENCY_KEY, getIdempotencyKey()).build();
+    }
+
+}
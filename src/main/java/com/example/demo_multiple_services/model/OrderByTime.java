@@ -0,0 +1,48 @@
+package com.example.demo_multiple_services.model;
+
+import lombok.*;
+import com.scalar.db.io.Key;
+import java.time.*;
+
+/**
+ * Copy of an order in the time-bucketed layout
+ *
+ * Partitioned by the hour of order_datetime and clustered by order_datetime and id, so a time
+ * range only reads the hourly partitions it overlaps, in datetime order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderByTime {
+
+    public static final String NAMESPACE = Order.NAMESPACE;
+    public static final String TABLE = "order_by_time";
+    public static final String BUCKET = "bucket";
+    public static final String ORDER_DATETIME = "order_datetime";
+    public static final String ID = "id";
+    public static final String PRODUCT_ID = "product_id";
+    public static final String ORDER_QTY = "order_qty";
+
+    // Changing the bucket size requires rebuilding the table
+    public static final long BUCKET_SECONDS = 3600;
+
+    private Long bucket;
+    private LocalDateTime orderDatetime;
+    private String id;
+    private Integer productId;
+    private Integer orderQty;
+
+    public static long bucketOf(LocalDateTime orderDatetime) {
+        return Math.floorDiv(orderDatetime.toEpochSecond(ZoneOffset.UTC), BUCKET_SECONDS);
+    }
+
+    public Key getPartitionKey() {
+        return Key.newBuilder().addBigInt(BUCKET, getBucket()).build();
+    }
+
+    public Key getClusteringKey() {
+        return Key.newBuilder().addTimestamp(ORDER_DATETIME, getOrderDatetime()).addText(ID, getId()).build();
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.example.demo_multiple_services.model;
+
+import lombok.*;
+import com.scalar.db.io.Key;
+import java.time.*;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderSaga {
+
+    // Kept next to the order table; the saga record doubles as the pending order
+    public static final String NAMESPACE = Order.NAMESPACE;
+    public static final String TABLE = "order_saga";
+    public static final String ORDER_ID = "order_id";
+    public static final String PRODUCT_ID = "product_id";
+    public static final String ORDER_QTY = "order_qty";
+    public static final String ORDER_DATETIME = "order_datetime";
+    public static final String STATUS = "status";
+    public static final String MESSAGE = "message";
+    public static final String ATTEMPTS = "attempts";
+    public static final String CREATED_AT = "created_at";
+    public static final String UPDATED_AT = "updated_at";
+
+    // PENDING -> STOCK_RESERVED -> COMPLETED
+    // PENDING -> FAILED (out of stock or too many attempts)
+    // STOCK_RESERVED -> COMPENSATING -> COMPENSATED (order could not be recorded, stock released)
+    public enum Status {
+        PENDING, STOCK_RESERVED, COMPENSATING, COMPLETED, FAILED, COMPENSATED;
+
+        public boolean isTerminal() {
+            return this == COMPLETED || this == FAILED || this == COMPENSATED;
+        }
+    }
+
+    private String orderId;
+    private Integer productId;
+    private Integer orderQty;
+    private LocalDateTime orderDatetime;
+    private Status status;
+    private String message;
+    private Integer attempts;
+    private Long createdAt;
+    private Long updatedAt;
+
+    public Key getPartitionKey() {
+        return Key.newBuilder().addText(ORDER_ID, getOrderId()).build();
+    }
+
+}
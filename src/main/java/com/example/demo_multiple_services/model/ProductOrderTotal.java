@@ -0,0 +1,27 @@
+package com.example.demo_multiple_services.model;
+
+import lombok.*;
+import com.scalar.db.io.Key;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductOrderTotal {
+
+    // Kept next to the order table so that both are written by the same participant
+    public static final String NAMESPACE = Order.NAMESPACE;
+    public static final String TABLE = "product_order_total";
+    public static final String PRODUCT_ID = "product_id";
+    public static final String ORDER_COUNT = "order_count";
+    public static final String TOTAL_QTY = "total_qty";
+
+    private Integer productId;
+    private Long orderCount;
+    private Long totalQty;
+
+    public Key getPartitionKey() {
+        return Key.newBuilder().addInt(PRODUCT_ID, getProductId()).build();
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.example.demo_multiple_services.model;
+
+import lombok.*;
+import com.scalar.db.io.Key;
+
+/**
+ * Stock held in escrow by one application node
+ *
+ * Moved out of the product row in bulk, so that the node can take orders for the product by
+ * writing only its own escrow row.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockEscrow {
+
+    public static final String NAMESPACE = Product.NAMESPACE;
+    public static final String TABLE = "stock_escrow";
+    public static final String PRODUCT_ID = "product_id";
+    public static final String NODE_ID = "node_id";
+    public static final String QUOTA = "quota";
+    public static final String UPDATED_AT = "updated_at";
+
+    private Integer productId;
+    private String nodeId;
+    private Integer quota;
+    private Long updatedAt;
+
+    public Key getPartitionKey() {
+        return Key.newBuilder().addInt(PRODUCT_ID, getProductId()).build();
+    }
+
+    public Key getClusteringKey() {
+        return Key.newBuilder().addText(NODE_ID, getNodeId()).build();
+    }
+
+}
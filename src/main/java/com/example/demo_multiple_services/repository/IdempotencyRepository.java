@@ -0,0 +1,70 @@
+package com.example.demo_multiple_services.repository;
+
+import com.example.demo_multiple_services.model.IdempotencyRecord;
+import java.util.Optional;
+
+import com.scalar.db.api.*;
+import com.scalar.db.exception.transaction.*;
+import com.scalar.db.io.Key;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class IdempotencyRepository {
+
+    // Get Record by Partition Key, empty if the key has not been used yet
+    public Optional<IdempotencyRecord> getIdempotencyRecord(TransactionCrudOperable transaction, String idempotencyKey) throws CrudException {
+        Get get = Get.newBuilder()
+            .namespace(IdempotencyRecord.NAMESPACE)
+            .table(IdempotencyRecord.TABLE)
+            .partitionKey(Key.ofText(IdempotencyRecord.IDEMPOTENCY_KEY, idempotencyKey))
+            .projections(IdempotencyRecord.IDEMPOTENCY_KEY, IdempotencyRecord.CODE, IdempotencyRecord.MESSAGE, IdempotencyRecord.FINGERPRINT, IdempotencyRecord.CREATED_AT)
+            .build();
+        Optional<Result> result = transaction.get(get);
+        return result.map(this::buildIdempotencyRecord);
+    }
+
+    // Upsert Record
+    public IdempotencyRecord upsertIdempotencyRecord(TransactionCrudOperable transaction, IdempotencyRecord record) throws CrudException {
+        Key partitionKey = record.getPartitionKey();
+
+        Upsert upsert = Upsert.newBuilder()
+            .namespace(IdempotencyRecord.NAMESPACE)
+            .table(IdempotencyRecord.TABLE)
+            .partitionKey(partitionKey)
+            .intValue(IdempotencyRecord.CODE, record.getCode())
+            .textValue(IdempotencyRecord.MESSAGE, record.getMessage())
+            .textValue(IdempotencyRecord.FINGERPRINT, record.getFingerprint())
+            .bigIntValue(IdempotencyRecord.CREATED_AT, record.getCreatedAt())
+            .build();
+        transaction.upsert(upsert);
+        return record;
+    }
+
+    // Insert Record, fails on commit if another transaction recorded the same key first
+    public IdempotencyRecord insertIdempotencyRecord(TransactionCrudOperable transaction, IdempotencyRecord record) throws CrudException {
+        Key partitionKey = record.getPartitionKey();
+
+        Insert insert = Insert.newBuilder()
+            .namespace(IdempotencyRecord.NAMESPACE)
+            .table(IdempotencyRecord.TABLE)
+            .partitionKey(partitionKey)
+            .intValue(IdempotencyRecord.CODE, record.getCode())
+            .textValue(IdempotencyRecord.MESSAGE, record.getMessage())
+            .textValue(IdempotencyRecord.FINGERPRINT, record.getFingerprint())
+            .bigIntValue(IdempotencyRecord.CREATED_AT, record.getCreatedAt())
+            .build();
+        transaction.insert(insert);
+        return record;
+    }
+
+    // Object Builder from ScalarDB Result
+    private IdempotencyRecord buildIdempotencyRecord(Result result) {
+        return IdempotencyRecord.builder()
+            .idempotencyKey(result.getText(IdempotencyRecord.IDEMPOTENCY_KEY))
+            .code(result.getInt(IdempotencyRecord.CODE))
+            .message(result.getText(IdempotencyRecord.MESSAGE))
+            .fingerprint(result.getText(IdempotencyRecord.FINGERPRINT))
+            .createdAt(result.getBigInt(IdempotencyRecord.CREATED_AT))
+            .build();
+    }
+}
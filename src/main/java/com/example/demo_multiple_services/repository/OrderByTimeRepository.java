@@ -0,0 +1,87 @@
+package com.example.demo_multiple_services.repository;
+
+import com.example.demo_multiple_services.model.Order;
+import com.example.demo_multiple_services.model.OrderByTime;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.scalar.db.api.*;
+import com.scalar.db.exception.transaction.*;
+import com.scalar.db.io.Key;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class OrderByTimeRepository {
+
+    // Upsert Record (copy of the order under its time bucket)
+    public void upsertOrderByTime(TransactionCrudOperable transaction, Order order) throws CrudException {
+        OrderByTime orderByTime = toOrderByTime(order);
+        Upsert upsert = Upsert.newBuilder()
+            .namespace(OrderByTime.NAMESPACE)
+            .table(OrderByTime.TABLE)
+            .partitionKey(orderByTime.getPartitionKey())
+            .clusteringKey(orderByTime.getClusteringKey())
+            .intValue(OrderByTime.PRODUCT_ID, orderByTime.getProductId())
+            .intValue(OrderByTime.ORDER_QTY, orderByTime.getOrderQty())
+            .build();
+        transaction.upsert(upsert);
+    }
+
+    // Delete Record
+    public void deleteOrderByTime(TransactionCrudOperable transaction, Order order) throws CrudException {
+        OrderByTime orderByTime = toOrderByTime(order);
+        Delete delete = Delete.newBuilder()
+            .namespace(OrderByTime.NAMESPACE)
+            .table(OrderByTime.TABLE)
+            .partitionKey(orderByTime.getPartitionKey())
+            .clusteringKey(orderByTime.getClusteringKey())
+            .build();
+        transaction.delete(delete);
+    }
+
+    // Scan Records with from <= order_datetime < to, oldest first, reading only the overlapping buckets
+    public List<Order> getOrderListByTimeRange(TransactionCrudOperable transaction, LocalDateTime from, LocalDateTime to, int limit) throws CrudException {
+        List<Order> orderList = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return orderList;
+        }
+        long lastBucket = OrderByTime.bucketOf(to.minusNanos(1));
+        for (long bucket = OrderByTime.bucketOf(from); bucket <= lastBucket && orderList.size() < limit; bucket++) {
+            Scan scan = Scan.newBuilder()
+                .namespace(OrderByTime.NAMESPACE)
+                .table(OrderByTime.TABLE)
+                .partitionKey(Key.ofBigInt(OrderByTime.BUCKET, bucket))
+                .start(Key.ofTimestamp(OrderByTime.ORDER_DATETIME, from), true)
+                .end(Key.ofTimestamp(OrderByTime.ORDER_DATETIME, to), false)
+                .ordering(Scan.Ordering.asc(OrderByTime.ORDER_DATETIME))
+                .projections(OrderByTime.ID, OrderByTime.PRODUCT_ID, OrderByTime.ORDER_QTY, OrderByTime.ORDER_DATETIME)
+                .limit(limit - orderList.size())
+                .build();
+            for (Result result : transaction.scan(scan)) {
+                orderList.add(buildOrder(result));
+            }
+        }
+        return orderList;
+    }
+
+    private OrderByTime toOrderByTime(Order order) {
+        return OrderByTime.builder()
+            .bucket(OrderByTime.bucketOf(order.getOrderDatetime()))
+            .orderDatetime(order.getOrderDatetime())
+            .id(order.getId())
+            .productId(order.getProductId())
+            .orderQty(order.getOrderQty())
+            .build();
+    }
+
+    // Object Builder from ScalarDB Result
+    private Order buildOrder(Result result) {
+        return Order.builder()
+            .id(result.getText(OrderByTime.ID))
+            .productId(result.getInt(OrderByTime.PRODUCT_ID))
+            .orderQty(result.getInt(OrderByTime.ORDER_QTY))
+            .orderDatetime(result.getTimestamp(OrderByTime.ORDER_DATETIME))
+            .build();
+    }
+}
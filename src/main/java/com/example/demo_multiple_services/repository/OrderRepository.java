@@ -1,19 +1,44 @@
 package com.example.demo_multiple_services.repository;
 
+import com.example.demo_multiple_services.dto.OrderQtyAggregateDto;
+import com.example.demo_multiple_services.mapper.OrderMapper;
 import com.example.demo_multiple_services.model.Order;
+import com.example.demo_multiple_services.service.ChangeLog;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.scalar.db.api.*;
 import com.scalar.db.exception.transaction.*;
 import com.scalar.db.io.Key;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class OrderRepository {
 
     private int scanLimit = 100; // Default scan limit
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private ProductOrderTotalRepository productOrderTotalRepository;
+
+    // Maintain the per-product summary table in the same transaction as every order mutation
+    @Value("${order-totals.enabled:false}")
+    private boolean orderTotalsEnabled;
+
+    @Autowired
+    private OrderByTimeRepository orderByTimeRepository;
+
+    // Mirror every order mutation into the time-bucketed order_by_time table
+    @Value("${order-by-time.dual-write:false}")
+    private boolean orderByTimeEnabled;
     
     public void setScanLimit(int scanLimit) {
         this.scanLimit = scanLimit;
@@ -24,7 +49,7 @@ public class OrderRepository {
     }
 
     // Get Record by Partition & Clustering Key
-    public Order getOrder(DistributedTransaction transaction, Order order) throws CrudException {
+    public Order getOrder(TransactionCrudOperable transaction, Order order) throws CrudException {
         Key partitionKey = order.getPartitionKey();
         
         Get get = Get.newBuilder()
@@ -42,7 +67,7 @@ public class OrderRepository {
     }
 
     // Insert Record
-    public Order insertOrder(DistributedTransaction transaction, Order order) throws CrudException {
+    public Order insertOrder(TransactionCrudOperable transaction, Order order) throws CrudException {
         Key partitionKey = order.getPartitionKey();
         
         Insert insert = Insert.newBuilder()
@@ -54,12 +79,15 @@ public class OrderRepository {
             .timestampValue(Order.ORDER_DATETIME, order.getOrderDatetime())
             .build();
         transaction.insert(insert);
+        changeLog.stage(transaction, Order.NAMESPACE, Order.TABLE, "INSERT", order.getId(), () -> OrderMapper.mapToOrderDto(order));
+        maintainDerivedTables(transaction, Optional.empty(), order);
         return order;
     }
 
     // Update Record
-    public Order updateOrder(DistributedTransaction transaction, Order order) throws CrudException {
+    public Order updateOrder(TransactionCrudOperable transaction, Order order) throws CrudException {
         Key partitionKey = order.getPartitionKey();
+        Optional<Order> previous = needsPreviousOrder() ? findOrder(transaction, partitionKey) : Optional.empty();
         
         MutationCondition condition = ConditionBuilder.updateIfExists();
 
@@ -73,12 +101,25 @@ public class OrderRepository {
             .condition(condition)
             .build();
         transaction.update(update);
+        changeLog.stage(transaction, Order.NAMESPACE, Order.TABLE, "UPDATE", order.getId(), () -> OrderMapper.mapToOrderDto(order));
+        if (previous.isPresent()) {
+            maintainDerivedTables(transaction, previous, order);
+        }
         return order;
     }
 
     // Upsert Record
-    public Order upsertOrder(DistributedTransaction transaction, Order order) throws CrudException {
+    public Order upsertOrder(TransactionCrudOperable transaction, Order order) throws CrudException {
+        return upsertOrder(transaction, order, orderTotalsEnabled);
+    }
+
+    // Upsert Record, leaving product_order_total alone unless maintainTotals is set
+    // Maintaining the totals reads the previous order first (one extra Get per upsert), so bulk
+    // loads skip it and rebuild the totals once afterwards
+    public Order upsertOrder(TransactionCrudOperable transaction, Order order, boolean maintainTotals) throws CrudException {
         Key partitionKey = order.getPartitionKey();
+        boolean totals = maintainTotals && orderTotalsEnabled;
+        Optional<Order> previous = totals || orderByTimeEnabled ? findOrder(transaction, partitionKey) : Optional.empty();
         
         Upsert upsert = Upsert.newBuilder()
             .namespace(Order.NAMESPACE)
@@ -89,12 +130,15 @@ public class OrderRepository {
             .timestampValue(Order.ORDER_DATETIME, order.getOrderDatetime())
             .build();
         transaction.upsert(upsert);
+        changeLog.stage(transaction, Order.NAMESPACE, Order.TABLE, "UPSERT", order.getId(), () -> OrderMapper.mapToOrderDto(order));
+        maintainDerivedTables(transaction, previous, order, totals);
         return order;
     }
 
     // Delete Record
-    public void deleteOrder(DistributedTransaction transaction, Order order) throws CrudException {
+    public void deleteOrder(TransactionCrudOperable transaction, Order order) throws CrudException {
         Key partitionKey = order.getPartitionKey();
+        Optional<Order> previous = needsPreviousOrder() ? findOrder(transaction, partitionKey) : Optional.empty();
         
         MutationCondition condition = ConditionBuilder.deleteIfExists();
         Delete delete = Delete.newBuilder()
@@ -105,10 +149,14 @@ public class OrderRepository {
             .condition(condition)
             .build();
         transaction.delete(delete);
+        changeLog.stage(transaction, Order.NAMESPACE, Order.TABLE, "DELETE", order.getId(), null);
+        if (previous.isPresent()) {
+            maintainDerivedTables(transaction, previous, null);
+        }
     }
 
     // Scan All Records
-    public List<Order> getOrderListAll(DistributedTransaction transaction) throws CrudException {
+    public List<Order> getOrderListAll(TransactionCrudOperable transaction) throws CrudException {
         Scan scan = Scan.newBuilder()
             .namespace(Order.NAMESPACE)
             .table(Order.TABLE)
@@ -124,8 +172,75 @@ public class OrderRepository {
         return orderList;
     }
 
+    // Stream All Records to the action, page by page (not bounded by scanLimit)
+    public void forEachOrder(TransactionCrudOperable transaction, Consumer<Order> action) throws CrudException {
+        Scan scan = Scan.newBuilder()
+            .namespace(Order.NAMESPACE)
+            .table(Order.TABLE)
+            .all()
+            .projections(Order.ID, Order.PRODUCT_ID, Order.ORDER_QTY, Order.ORDER_DATETIME)
+            .build();
+        try (TransactionCrudOperable.Scanner scanner = transaction.getScanner(scan)) {
+            for (Result result : scanner) {
+                action.accept(buildOrder(result));
+            }
+        }
+    }
+
+    // Aggregate order count and quantity per product over all records (not bounded by scanLimit)
+    // The scanner fetches results page by page; each product keeps a long[] {count, qty} accumulator
+    public List<OrderQtyAggregateDto> aggregateQtyByProduct(TransactionCrudOperable transaction) throws CrudException {
+        Scan scan = Scan.newBuilder()
+            .namespace(Order.NAMESPACE)
+            .table(Order.TABLE)
+            .all()
+            .projections(Order.PRODUCT_ID, Order.ORDER_QTY)
+            .build();
+        Map<Integer, long[]> totals = new HashMap<>();
+        try (TransactionCrudOperable.Scanner scanner = transaction.getScanner(scan)) {
+            for (Result result : scanner) {
+                long[] accumulator = totals.computeIfAbsent(result.getInt(Order.PRODUCT_ID), k -> new long[2]);
+                accumulator[0]++;
+                accumulator[1] += result.getInt(Order.ORDER_QTY);
+            }
+        }
+        List<OrderQtyAggregateDto> aggregates = new ArrayList<>(totals.size());
+        totals.forEach((productId, accumulator) -> aggregates.add(OrderQtyAggregateDto.builder()
+            .productId(productId)
+            .orderCount(accumulator[0])
+            .totalQty(accumulator[1])
+            .build()));
+        aggregates.sort((a, b) -> Integer.compare(a.getProductId(), b.getProductId()));
+        return aggregates;
+    }
+
+    // Scan Records by the product_id secondary index
+    // ScalarDB scans have no offset, so earlier pages are skipped on the scanner; one extra
+    // record is read to tell whether another page follows
+    public List<Order> getOrderListByProductId(TransactionCrudOperable transaction, Integer productId, int page, int size) throws CrudException {
+        Scan scan = Scan.newBuilder()
+            .namespace(Order.NAMESPACE)
+            .table(Order.TABLE)
+            .indexKey(Key.ofInt(Order.PRODUCT_ID, productId))
+            .projections(Order.ID, Order.PRODUCT_ID, Order.ORDER_QTY, Order.ORDER_DATETIME)
+            .limit((int) Math.min((page + 1L) * size + 1, Integer.MAX_VALUE))
+            .build();
+        List<Order> orderList = new ArrayList<>();
+        long skip = (long) page * size;
+        try (TransactionCrudOperable.Scanner scanner = transaction.getScanner(scan)) {
+            for (Result result : scanner) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                orderList.add(buildOrder(result));
+            }
+        }
+        return orderList;
+    }
+
     // Scan Records by Partition Key
-    public List<Order> getOrderListByPk(DistributedTransaction transaction, Key partitionKey) throws CrudException {
+    public List<Order> getOrderListByPk(TransactionCrudOperable transaction, Key partitionKey) throws CrudException {
         Scan scan = Scan.newBuilder()
             .namespace(Order.NAMESPACE)
             .table(Order.TABLE)
@@ -141,6 +256,64 @@ public class OrderRepository {
         return orderList;
     }
 
+    // Get Record by Partition Key, empty if it does not exist
+    private Optional<Order> findOrder(TransactionCrudOperable transaction, Key partitionKey) throws CrudException {
+        Get get = Get.newBuilder()
+            .namespace(Order.NAMESPACE)
+            .table(Order.TABLE)
+            .partitionKey(partitionKey)
+            .projections(Order.ID, Order.PRODUCT_ID, Order.ORDER_QTY, Order.ORDER_DATETIME)
+            .build();
+        return transaction.get(get).map(this::buildOrder);
+    }
+
+    // Whether upserts keep product_order_total up to date
+    public boolean isOrderTotalsEnabled() {
+        return orderTotalsEnabled;
+    }
+
+    private boolean needsPreviousOrder() {
+        return orderTotalsEnabled || orderByTimeEnabled;
+    }
+
+    // Bring the enabled derived tables in line with an order mutation
+    // previous is the stored order before the mutation (empty for new orders), current is null for deletes
+    private void maintainDerivedTables(TransactionCrudOperable transaction, Optional<Order> previous, Order current) throws CrudException {
+        maintainDerivedTables(transaction, previous, current, orderTotalsEnabled);
+    }
+
+    private void maintainDerivedTables(TransactionCrudOperable transaction, Optional<Order> previous, Order current,
+                                       boolean totals) throws CrudException {
+        if (totals) {
+            if (previous.isPresent() && current != null) {
+                updateOrderTotals(transaction, previous.get(), current);
+            } else if (previous.isPresent()) {
+                productOrderTotalRepository.applyDelta(transaction, previous.get().getProductId(), -1, -previous.get().getOrderQty());
+            } else if (current != null) {
+                productOrderTotalRepository.applyDelta(transaction, current.getProductId(), 1, current.getOrderQty());
+            }
+        }
+        if (orderByTimeEnabled) {
+            // order_datetime is part of the key there, so a changed datetime moves the record
+            if (previous.isPresent() && (current == null || !previous.get().getOrderDatetime().equals(current.getOrderDatetime()))) {
+                orderByTimeRepository.deleteOrderByTime(transaction, previous.get());
+            }
+            if (current != null) {
+                orderByTimeRepository.upsertOrderByTime(transaction, current);
+            }
+        }
+    }
+
+    // Move an order's contribution from its previous state to its new state
+    private void updateOrderTotals(TransactionCrudOperable transaction, Order previous, Order current) throws CrudException {
+        if (previous.getProductId().equals(current.getProductId())) {
+            productOrderTotalRepository.applyDelta(transaction, current.getProductId(), 0, current.getOrderQty() - previous.getOrderQty());
+            return;
+        }
+        productOrderTotalRepository.applyDelta(transaction, previous.getProductId(), -1, -previous.getOrderQty());
+        productOrderTotalRepository.applyDelta(transaction, current.getProductId(), 1, current.getOrderQty());
+    }
+
     // Object Builder from ScalarDB Result
     private Order buildOrder(Result result) {
         return Order.builder()
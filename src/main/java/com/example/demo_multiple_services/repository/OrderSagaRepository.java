@@ -0,0 +1,91 @@
+package com.example.demo_multiple_services.repository;
+
+import com.example.demo_multiple_services.model.OrderSaga;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.scalar.db.api.*;
+import com.scalar.db.exception.transaction.*;
+import com.scalar.db.io.Key;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class OrderSagaRepository {
+
+    // Get Record by Partition Key, empty if no saga exists for the order
+    public Optional<OrderSaga> getOrderSaga(TransactionCrudOperable transaction, String orderId) throws CrudException {
+        Get get = Get.newBuilder()
+            .namespace(OrderSaga.NAMESPACE)
+            .table(OrderSaga.TABLE)
+            .partitionKey(Key.ofText(OrderSaga.ORDER_ID, orderId))
+            .build();
+        Optional<Result> result = transaction.get(get);
+        return result.map(this::buildOrderSaga);
+    }
+
+    // Insert Record (fails if a saga already exists for the order)
+    public OrderSaga insertOrderSaga(TransactionCrudOperable transaction, OrderSaga saga) throws CrudException {
+        Insert insert = Insert.newBuilder()
+            .namespace(OrderSaga.NAMESPACE)
+            .table(OrderSaga.TABLE)
+            .partitionKey(saga.getPartitionKey())
+            .intValue(OrderSaga.PRODUCT_ID, saga.getProductId())
+            .intValue(OrderSaga.ORDER_QTY, saga.getOrderQty())
+            .timestampValue(OrderSaga.ORDER_DATETIME, saga.getOrderDatetime())
+            .textValue(OrderSaga.STATUS, saga.getStatus().name())
+            .textValue(OrderSaga.MESSAGE, saga.getMessage())
+            .intValue(OrderSaga.ATTEMPTS, saga.getAttempts())
+            .bigIntValue(OrderSaga.CREATED_AT, saga.getCreatedAt())
+            .bigIntValue(OrderSaga.UPDATED_AT, saga.getUpdatedAt())
+            .build();
+        transaction.insert(insert);
+        return saga;
+    }
+
+    // Update the saga's progress
+    public OrderSaga updateOrderSaga(TransactionCrudOperable transaction, OrderSaga saga) throws CrudException {
+        Update update = Update.newBuilder()
+            .namespace(OrderSaga.NAMESPACE)
+            .table(OrderSaga.TABLE)
+            .partitionKey(saga.getPartitionKey())
+            .textValue(OrderSaga.STATUS, saga.getStatus().name())
+            .textValue(OrderSaga.MESSAGE, saga.getMessage())
+            .intValue(OrderSaga.ATTEMPTS, saga.getAttempts())
+            .bigIntValue(OrderSaga.UPDATED_AT, saga.getUpdatedAt())
+            .condition(ConditionBuilder.updateIfExists())
+            .build();
+        transaction.update(update);
+        return saga;
+    }
+
+    // Scan Records in the given status via the status secondary index
+    public List<OrderSaga> getOrderSagaListByStatus(TransactionCrudOperable transaction, OrderSaga.Status status, int limit) throws CrudException {
+        Scan scan = Scan.newBuilder()
+            .namespace(OrderSaga.NAMESPACE)
+            .table(OrderSaga.TABLE)
+            .indexKey(Key.ofText(OrderSaga.STATUS, status.name()))
+            .limit(limit)
+            .build();
+        List<OrderSaga> sagas = new ArrayList<>();
+        for (Result result : transaction.scan(scan)) {
+            sagas.add(buildOrderSaga(result));
+        }
+        return sagas;
+    }
+
+    // Object Builder from ScalarDB Result
+    private OrderSaga buildOrderSaga(Result result) {
+        return OrderSaga.builder()
+            .orderId(result.getText(OrderSaga.ORDER_ID))
+            .productId(result.getInt(OrderSaga.PRODUCT_ID))
+            .orderQty(result.getInt(OrderSaga.ORDER_QTY))
+            .orderDatetime(result.getTimestamp(OrderSaga.ORDER_DATETIME))
+            .status(OrderSaga.Status.valueOf(result.getText(OrderSaga.STATUS)))
+            .message(result.getText(OrderSaga.MESSAGE))
+            .attempts(result.getInt(OrderSaga.ATTEMPTS))
+            .createdAt(result.getBigInt(OrderSaga.CREATED_AT))
+            .updatedAt(result.getBigInt(OrderSaga.UPDATED_AT))
+            .build();
+    }
+}
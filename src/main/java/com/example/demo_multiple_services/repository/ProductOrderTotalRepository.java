@@ -0,0 +1,86 @@
+package com.example.demo_multiple_services.repository;
+
+import com.example.demo_multiple_services.model.ProductOrderTotal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.scalar.db.api.*;
+import com.scalar.db.exception.transaction.*;
+import com.scalar.db.io.Key;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class ProductOrderTotalRepository {
+
+    // Get Record by Partition Key, empty if the product has no orders yet
+    public Optional<ProductOrderTotal> getProductOrderTotal(TransactionCrudOperable transaction, Integer productId) throws CrudException {
+        Get get = Get.newBuilder()
+            .namespace(ProductOrderTotal.NAMESPACE)
+            .table(ProductOrderTotal.TABLE)
+            .partitionKey(Key.ofInt(ProductOrderTotal.PRODUCT_ID, productId))
+            .projections(ProductOrderTotal.PRODUCT_ID, ProductOrderTotal.ORDER_COUNT, ProductOrderTotal.TOTAL_QTY)
+            .build();
+        Optional<Result> result = transaction.get(get);
+        return result.map(this::buildProductOrderTotal);
+    }
+
+    // Add the deltas to the product's totals, creating the record on first use
+    public void applyDelta(TransactionCrudOperable transaction, Integer productId, long countDelta, long qtyDelta) throws CrudException {
+        if (countDelta == 0 && qtyDelta == 0) {
+            return;
+        }
+        ProductOrderTotal current = getProductOrderTotal(transaction, productId)
+            .orElse(new ProductOrderTotal(productId, 0L, 0L));
+        current.setOrderCount(current.getOrderCount() + countDelta);
+        current.setTotalQty(current.getTotalQty() + qtyDelta);
+        upsertProductOrderTotal(transaction, current);
+    }
+
+    // Upsert Record
+    public ProductOrderTotal upsertProductOrderTotal(TransactionCrudOperable transaction, ProductOrderTotal total) throws CrudException {
+        Upsert upsert = Upsert.newBuilder()
+            .namespace(ProductOrderTotal.NAMESPACE)
+            .table(ProductOrderTotal.TABLE)
+            .partitionKey(total.getPartitionKey())
+            .bigIntValue(ProductOrderTotal.ORDER_COUNT, total.getOrderCount())
+            .bigIntValue(ProductOrderTotal.TOTAL_QTY, total.getTotalQty())
+            .build();
+        transaction.upsert(upsert);
+        return total;
+    }
+
+    // Delete Record
+    public void deleteProductOrderTotal(TransactionCrudOperable transaction, Integer productId) throws CrudException {
+        Delete delete = Delete.newBuilder()
+            .namespace(ProductOrderTotal.NAMESPACE)
+            .table(ProductOrderTotal.TABLE)
+            .partitionKey(Key.ofInt(ProductOrderTotal.PRODUCT_ID, productId))
+            .build();
+        transaction.delete(delete);
+    }
+
+    // Scan All Records (one per ordered product, not bounded by a scan limit)
+    public List<ProductOrderTotal> getProductOrderTotalListAll(TransactionCrudOperable transaction) throws CrudException {
+        Scan scan = Scan.newBuilder()
+            .namespace(ProductOrderTotal.NAMESPACE)
+            .table(ProductOrderTotal.TABLE)
+            .all()
+            .projections(ProductOrderTotal.PRODUCT_ID, ProductOrderTotal.ORDER_COUNT, ProductOrderTotal.TOTAL_QTY)
+            .build();
+        List<ProductOrderTotal> totals = new ArrayList<>();
+        for (Result result : transaction.scan(scan)) {
+            totals.add(buildProductOrderTotal(result));
+        }
+        return totals;
+    }
+
+    // Object Builder from ScalarDB Result
+    private ProductOrderTotal buildProductOrderTotal(Result result) {
+        return ProductOrderTotal.builder()
+            .productId(result.getInt(ProductOrderTotal.PRODUCT_ID))
+            .orderCount(result.getBigInt(ProductOrderTotal.ORDER_COUNT))
+            .totalQty(result.getBigInt(ProductOrderTotal.TOTAL_QTY))
+            .build();
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.demo_multiple_services.repository;
 
+import com.example.demo_multiple_services.dto.StockAggregateDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.example.demo_multiple_services.mapper.ProductMapper;
 import com.example.demo_multiple_services.model.Product;
+import com.example.demo_multiple_services.model.StockEscrow;
+import com.example.demo_multiple_services.service.ChangeLog;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -8,12 +13,23 @@ import java.util.Optional;
 import com.scalar.db.api.*;
 import com.scalar.db.exception.transaction.*;
 import com.scalar.db.io.Key;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class ProductRepository {
 
     private int scanLimit = 100; // Default scan limit
+
+    @Autowired
+    private ChangeLog changeLog;
+
+    @Autowired
+    private StockEscrowRepository stockEscrowRepository;
+
+    @Value("${escrow.enabled:false}")
+    private boolean escrowEnabled;
     
     public void setScanLimit(int scanLimit) {
         this.scanLimit = scanLimit;
@@ -24,7 +40,7 @@ public class ProductRepository {
     }
 
     // Get Record by Partition & Clustering Key
-    public Product getProduct(DistributedTransaction transaction, Product product) throws CrudException {
+    public Product getProduct(TransactionCrudOperable transaction, Product product) throws CrudException {
         Key partitionKey = product.getPartitionKey();
         
         Get get = Get.newBuilder()
@@ -42,7 +58,7 @@ public class ProductRepository {
     }
 
     // Insert Record
-    public Product insertProduct(DistributedTransaction transaction, Product product) throws CrudException {
+    public Product insertProduct(TransactionCrudOperable transaction, Product product) throws CrudException {
         Key partitionKey = product.getPartitionKey();
         
         Insert insert = Insert.newBuilder()
@@ -53,11 +69,12 @@ public class ProductRepository {
             .intValue(Product.STOCK, product.getStock())
             .build();
         transaction.insert(insert);
+        changeLog.stage(transaction, Product.NAMESPACE, Product.TABLE, "INSERT", product.getId(), () -> ProductMapper.mapToProductDto(product));
         return product;
     }
 
     // Update Record
-    public Product updateProduct(DistributedTransaction transaction, Product product) throws CrudException {
+    public Product updateProduct(TransactionCrudOperable transaction, Product product) throws CrudException {
         Key partitionKey = product.getPartitionKey();
         
         MutationCondition condition = ConditionBuilder.updateIfExists();
@@ -71,11 +88,13 @@ public class ProductRepository {
             .condition(condition)
             .build();
         transaction.update(update);
+        reclaimEscrow(transaction, product.getId());
+        changeLog.stage(transaction, Product.NAMESPACE, Product.TABLE, "UPDATE", product.getId(), () -> ProductMapper.mapToProductDto(product));
         return product;
     }
 
     // Upsert Record
-    public Product upsertProduct(DistributedTransaction transaction, Product product) throws CrudException {
+    public Product upsertProduct(TransactionCrudOperable transaction, Product product) throws CrudException {
         Key partitionKey = product.getPartitionKey();
         
         Upsert upsert = Upsert.newBuilder()
@@ -86,11 +105,13 @@ public class ProductRepository {
             .intValue(Product.STOCK, product.getStock())
             .build();
         transaction.upsert(upsert);
+        reclaimEscrow(transaction, product.getId());
+        changeLog.stage(transaction, Product.NAMESPACE, Product.TABLE, "UPSERT", product.getId(), () -> ProductMapper.mapToProductDto(product));
         return product;
     }
 
     // Delete Record
-    public void deleteProduct(DistributedTransaction transaction, Product product) throws CrudException {
+    public void deleteProduct(TransactionCrudOperable transaction, Product product) throws CrudException {
         Key partitionKey = product.getPartitionKey();
         
         MutationCondition condition = ConditionBuilder.deleteIfExists();
@@ -102,10 +123,100 @@ public class ProductRepository {
             .condition(condition)
             .build();
         transaction.delete(delete);
+        reclaimEscrow(transaction, product.getId());
+        changeLog.stage(transaction, Product.NAMESPACE, Product.TABLE, "DELETE", product.getId(), null);
+    }
+
+    // An absolute write replaces the product's whole available stock, so the quota that nodes hold
+    // in escrow for it is taken back in the same transaction; nodes refill on their next order
+    private void reclaimEscrow(TransactionCrudOperable transaction, Integer productId) throws CrudException {
+        if (!escrowEnabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (StockEscrow escrow : stockEscrowRepository.getStockEscrowListByProduct(transaction, productId)) {
+            if (escrow.getQuota() > 0) {
+                escrow.setQuota(0);
+                escrow.setUpdatedAt(now);
+                stockEscrowRepository.upsertStockEscrow(transaction, escrow);
+            }
+        }
+    }
+
+    // Decrement stock by quantity if at least that much is available
+    // The update carries the stock >= quantity condition, so it cannot commit a negative stock
+    public StockReservationDto reserveStock(TransactionCrudOperable transaction, Integer productId, int quantity) throws CrudException {
+        Key partitionKey = Key.ofInt(Product.ID, productId);
+        Get get = Get.newBuilder()
+            .namespace(Product.NAMESPACE)
+            .table(Product.TABLE)
+            .partitionKey(partitionKey)
+            .projections(Product.ID, Product.PRODUCT_NAME, Product.STOCK)
+            .build();
+        Optional<Result> result = transaction.get(get);
+        if (result.isEmpty()) {
+            throw new RuntimeException("No record found in Product");
+        }
+        Product product = buildProduct(result.get());
+        if (product.getStock() < quantity) {
+            return StockReservationDto.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .reserved(false)
+                .remainingStock(product.getStock())
+                .build();
+        }
+        product.setStock(product.getStock() - quantity);
+
+        MutationCondition condition = ConditionBuilder.updateIf(
+                ConditionBuilder.column(Product.STOCK).isGreaterThanOrEqualToInt(quantity))
+            .build();
+        Update update = Update.newBuilder()
+            .namespace(Product.NAMESPACE)
+            .table(Product.TABLE)
+            .partitionKey(partitionKey)
+            .intValue(Product.STOCK, product.getStock())
+            .condition(condition)
+            .build();
+        transaction.update(update);
+        changeLog.stage(transaction, Product.NAMESPACE, Product.TABLE, "UPDATE", productId, () -> ProductMapper.mapToProductDto(product));
+        return StockReservationDto.builder()
+            .productId(productId)
+            .quantity(quantity)
+            .reserved(true)
+            .remainingStock(product.getStock())
+            .build();
+    }
+
+    // Increment stock by quantity, undoing an earlier reservation
+    public Product releaseStock(TransactionCrudOperable transaction, Integer productId, int quantity) throws CrudException {
+        Key partitionKey = Key.ofInt(Product.ID, productId);
+        Get get = Get.newBuilder()
+            .namespace(Product.NAMESPACE)
+            .table(Product.TABLE)
+            .partitionKey(partitionKey)
+            .projections(Product.ID, Product.PRODUCT_NAME, Product.STOCK)
+            .build();
+        Optional<Result> result = transaction.get(get);
+        if (result.isEmpty()) {
+            throw new RuntimeException("No record found in Product");
+        }
+        Product product = buildProduct(result.get());
+        product.setStock(product.getStock() + quantity);
+
+        Update update = Update.newBuilder()
+            .namespace(Product.NAMESPACE)
+            .table(Product.TABLE)
+            .partitionKey(partitionKey)
+            .intValue(Product.STOCK, product.getStock())
+            .build();
+        transaction.update(update);
+        changeLog.stage(transaction, Product.NAMESPACE, Product.TABLE, "UPDATE", productId, () -> ProductMapper.mapToProductDto(product));
+        return product;
     }
 
     // Scan All Records
-    public List<Product> getProductListAll(DistributedTransaction transaction) throws CrudException {
+    public List<Product> getProductListAll(TransactionCrudOperable transaction) throws CrudException {
         Scan scan = Scan.newBuilder()
             .namespace(Product.NAMESPACE)
             .table(Product.TABLE)
@@ -121,8 +232,48 @@ public class ProductRepository {
         return productList;
     }
 
+    // Aggregate stock over all records (not bounded by scanLimit)
+    // The scanner fetches results page by page, so only the running totals are kept in memory
+    public StockAggregateDto aggregateStock(TransactionCrudOperable transaction) throws CrudException {
+        Scan scan = Scan.newBuilder()
+            .namespace(Product.NAMESPACE)
+            .table(Product.TABLE)
+            .all()
+            .projections(Product.STOCK)
+            .build();
+        long count = 0;
+        long total = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        try (TransactionCrudOperable.Scanner scanner = transaction.getScanner(scan)) {
+            for (Result result : scanner) {
+                count++;
+                if (result.isNull(Product.STOCK)) {
+                    continue;
+                }
+                int stock = result.getInt(Product.STOCK);
+                total += stock;
+                min = Math.min(min, stock);
+                max = Math.max(max, stock);
+            }
+        }
+        long escrowed = 0;
+        if (escrowEnabled) {
+            for (StockEscrow escrow : stockEscrowRepository.getStockEscrowListAll(transaction)) {
+                escrowed += escrow.getQuota();
+            }
+        }
+        return StockAggregateDto.builder()
+            .productCount(count)
+            .totalStock(total)
+            .escrowedStock(escrowed)
+            .minStock(min <= max ? min : null)
+            .maxStock(min <= max ? max : null)
+            .build();
+    }
+
     // Scan Records by Partition Key
-    public List<Product> getProductListByPk(DistributedTransaction transaction, Key partitionKey) throws CrudException {
+    public List<Product> getProductListByPk(TransactionCrudOperable transaction, Key partitionKey) throws CrudException {
         Scan scan = Scan.newBuilder()
             .namespace(Product.NAMESPACE)
             .table(Product.TABLE)
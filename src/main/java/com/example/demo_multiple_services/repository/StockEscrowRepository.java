@@ -0,0 +1,82 @@
+package com.example.demo_multiple_services.repository;
+
+import com.example.demo_multiple_services.model.StockEscrow;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import com.scalar.db.api.*;
+import com.scalar.db.exception.transaction.*;
+import com.scalar.db.io.Key;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class StockEscrowRepository {
+
+    // Get Record by Primary Key, empty if the node holds no escrow for the product
+    public Optional<StockEscrow> getStockEscrow(TransactionCrudOperable transaction, Integer productId, String nodeId) throws CrudException {
+        Get get = Get.newBuilder()
+            .namespace(StockEscrow.NAMESPACE)
+            .table(StockEscrow.TABLE)
+            .partitionKey(Key.ofInt(StockEscrow.PRODUCT_ID, productId))
+            .clusteringKey(Key.ofText(StockEscrow.NODE_ID, nodeId))
+            .projections(StockEscrow.PRODUCT_ID, StockEscrow.NODE_ID, StockEscrow.QUOTA, StockEscrow.UPDATED_AT)
+            .build();
+        Optional<Result> result = transaction.get(get);
+        return result.map(this::buildStockEscrow);
+    }
+
+    // Upsert Record
+    public StockEscrow upsertStockEscrow(TransactionCrudOperable transaction, StockEscrow escrow) throws CrudException {
+        Upsert upsert = Upsert.newBuilder()
+            .namespace(StockEscrow.NAMESPACE)
+            .table(StockEscrow.TABLE)
+            .partitionKey(escrow.getPartitionKey())
+            .clusteringKey(escrow.getClusteringKey())
+            .intValue(StockEscrow.QUOTA, escrow.getQuota())
+            .bigIntValue(StockEscrow.UPDATED_AT, escrow.getUpdatedAt())
+            .build();
+        transaction.upsert(upsert);
+        return escrow;
+    }
+
+    // Scan Records by Partition Key (one per node holding escrow for the product)
+    public List<StockEscrow> getStockEscrowListByProduct(TransactionCrudOperable transaction, Integer productId) throws CrudException {
+        Scan scan = Scan.newBuilder()
+            .namespace(StockEscrow.NAMESPACE)
+            .table(StockEscrow.TABLE)
+            .partitionKey(Key.ofInt(StockEscrow.PRODUCT_ID, productId))
+            .projections(StockEscrow.PRODUCT_ID, StockEscrow.NODE_ID, StockEscrow.QUOTA, StockEscrow.UPDATED_AT)
+            .build();
+        List<StockEscrow> escrows = new ArrayList<>();
+        for (Result result : transaction.scan(scan)) {
+            escrows.add(buildStockEscrow(result));
+        }
+        return escrows;
+    }
+
+    // Scan All Records (one per product and node, not bounded by a scan limit)
+    public List<StockEscrow> getStockEscrowListAll(TransactionCrudOperable transaction) throws CrudException {
+        Scan scan = Scan.newBuilder()
+            .namespace(StockEscrow.NAMESPACE)
+            .table(StockEscrow.TABLE)
+            .all()
+            .projections(StockEscrow.PRODUCT_ID, StockEscrow.NODE_ID, StockEscrow.QUOTA, StockEscrow.UPDATED_AT)
+            .build();
+        List<StockEscrow> escrows = new ArrayList<>();
+        for (Result result : transaction.scan(scan)) {
+            escrows.add(buildStockEscrow(result));
+        }
+        return escrows;
+    }
+
+    // Object Builder from ScalarDB Result
+    private StockEscrow buildStockEscrow(Result result) {
+        return StockEscrow.builder()
+            .productId(result.getInt(StockEscrow.PRODUCT_ID))
+            .nodeId(result.getText(StockEscrow.NODE_ID))
+            .quota(result.getInt(StockEscrow.QUOTA))
+            .updatedAt(result.getBigInt(StockEscrow.UPDATED_AT))
+            .build();
+    }
+}
@@ -1,16 +1,27 @@
 package com.example.demo_multiple_services.service;
 
 import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.BatchOperationDto;
+import com.example.demo_multiple_services.dto.BatchResultDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
+import com.example.demo_multiple_services.exception.ParticipantUnavailableException;
+import com.example.demo_multiple_services.util.RequestDeadline;
 import com.scalar.db.api.DistributedTransaction;
 import com.scalar.db.api.DistributedTransactionManager;
 import com.scalar.db.exception.transaction.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Base class for One-Phase Commit BFF Services
  *
@@ -19,6 +30,13 @@ import org.springframework.web.client.RestTemplate;
  * - Managing ScalarDB distributed transaction lifecycle
  * - Providing reusable REST API call methods
  * - Handling transaction commits and rollbacks
+ * - Registering transactions and their participants with the TransactionTracker
+ * - Serializing transactions on the same hot key on this node (KeySerializer)
+ * - Propagating the remaining time budget to participants and bounding each call by it
+ * - Sending relative participant URLs to an instance chosen by the ParticipantLoadBalancer,
+ *   keeping all calls of a transaction on the same instance
+ * - Failing fast when a participant's bulkhead is full or its circuit is open (ParticipantIsolation)
+ * - Recording the request's Idempotency-Key in the transaction it commits (IdempotencyService)
  * - Centralizing error handling and response validation
  *
  * All OnePC BFF service classes should extend this base class to inherit these capabilities.
@@ -29,12 +47,57 @@ public abstract class BaseOnePCBffService {
     @Autowired
     protected RestTemplate restTemplate;
 
+    @Autowired
+    protected TransactionTracker transactionTracker;
+
+    @Autowired
+    protected KeySerializer keySerializer;
+
+    @Autowired
+    protected ParticipantLoadBalancer participantLoadBalancer;
+
+    @Autowired
+    protected ParticipantIsolation participantIsolation;
+
+    @Autowired
+    protected IdempotencyService idempotencyService;
+
+    @Value("${bff.request.budget-ms:10000}")
+    protected long requestBudgetMillis;
+
     protected DistributedTransactionManager manager;
 
     protected BaseOnePCBffService(DistributedTransactionManager manager) {
         this.manager = manager;
     }
 
+    /**
+     * Start a distributed transaction and register it with the TransactionTracker
+     *
+     * @return The started transaction
+     * @throws TransactionException if the transaction cannot be started
+     */
+    protected DistributedTransaction startTransaction() throws TransactionException {
+        DistributedTransaction transaction = manager.start();
+        transactionTracker.track(transaction);
+        return transaction;
+    }
+
+    /**
+     * Commit a distributed transaction and unregister it from the TransactionTracker
+     *
+     * @param transaction The transaction to commit
+     * @throws TransactionException if the commit fails
+     */
+    protected void commitTransaction(DistributedTransaction transaction) throws TransactionException {
+        if (transactionTracker.isExpired(transaction.getId())) {
+            throw new DeadlineExceededException("Transaction " + transaction.getId() + " expired before commit");
+        }
+        idempotencyService.stage(transaction);
+        transaction.commit();
+        transactionTracker.complete(transaction.getId(), true);
+    }
+
     /**
      * Execute HTTP POST operation for insert/upsert operations
      *
@@ -47,19 +110,46 @@ public abstract class BaseOnePCBffService {
     protected <T> void executePost(String url, T dto, HttpHeaders headers) throws CustomException {
         HttpEntity<T> request = new HttpEntity<>(dto, headers);
 
-        ResponseEntity<ApiResponse<Void>> response = restTemplate.exchange(
-            url,
-            HttpMethod.POST,
-            request,
-            new ParameterizedTypeReference<ApiResponse<Void>>() {}
-        );
+        exchange(url, HttpMethod.POST, request, new ParameterizedTypeReference<ApiResponse<Void>>() {});
+    }
 
-        ApiResponse<Void> body = response.getBody();
-        if (!response.getStatusCode().is2xxSuccessful() || body == null || !body.isSuccess()) {
-            String errorMsg = body != null ? body.getMessage() : "POST operation failed";
-            Integer errorCode = body != null ? body.getErrorCode() : 9100;
-            throw new CustomException("POST operation failed: " + errorMsg, errorCode != null ? errorCode : 9100);
-        }
+    /**
+     * Execute HTTP POST operation that returns data
+     *
+     * @param url The target URL
+     * @param dto The DTO object to send in the request body
+     * @param headers HTTP headers including transaction ID
+     * @param typeRef ParameterizedTypeReference for the response type
+     * @param <T> The type of the DTO
+     * @param <R> The type of data returned
+     * @return The data from the response
+     * @throws CustomException if the operation fails
+     */
+    protected <T, R> R executePostForData(String url, T dto, HttpHeaders headers,
+                                          ParameterizedTypeReference<ApiResponse<R>> typeRef) throws CustomException {
+        HttpEntity<T> request = new HttpEntity<>(dto, headers);
+
+        return exchange(url, HttpMethod.POST, request, typeRef).getData();
+    }
+
+    /**
+     * Execute HTTP POST operation that ends a participant's transaction
+     *
+     * Not subject to the participant's bulkhead and circuit breaker: refusing a 2PC commit or
+     * rollback would leave the participant's transaction to be resolved later instead of now.
+     *
+     * @param url The target URL
+     * @param headers HTTP headers including transaction ID
+     * @throws CustomException if the operation fails
+     */
+    protected void executeFinishingPost(String url, HttpHeaders headers) throws CustomException {
+        HttpEntity<Void> request = new HttpEntity<>(headers);
+        String transactionId = headers.getFirst("ScalarDB-Transaction-ID");
+        ParticipantLoadBalancer.Instance instance = url.startsWith("/")
+            ? participantLoadBalancer.select(url, transactionId)
+            : participantLoadBalancer.find(url);
+
+        exchange(url, instance, HttpMethod.POST, request, new ParameterizedTypeReference<ApiResponse<Void>>() {}, false);
     }
 
     /**
@@ -74,19 +164,7 @@ public abstract class BaseOnePCBffService {
     protected <T> void executePut(String url, T dto, HttpHeaders headers) throws CustomException {
         HttpEntity<T> request = new HttpEntity<>(dto, headers);
 
-        ResponseEntity<ApiResponse<Void>> response = restTemplate.exchange(
-            url,
-            HttpMethod.PUT,
-            request,
-            new ParameterizedTypeReference<ApiResponse<Void>>() {}
-        );
-
-        ApiResponse<Void> body = response.getBody();
-        if (!response.getStatusCode().is2xxSuccessful() || body == null || !body.isSuccess()) {
-            String errorMsg = body != null ? body.getMessage() : "PUT operation failed";
-            Integer errorCode = body != null ? body.getErrorCode() : 9100;
-            throw new CustomException("PUT operation failed: " + errorMsg, errorCode != null ? errorCode : 9100);
-        }
+        exchange(url, HttpMethod.PUT, request, new ParameterizedTypeReference<ApiResponse<Void>>() {});
     }
 
     /**
@@ -99,19 +177,7 @@ public abstract class BaseOnePCBffService {
     protected void executeDelete(String url, HttpHeaders headers) throws CustomException {
         HttpEntity<Void> request = new HttpEntity<>(headers);
 
-        ResponseEntity<ApiResponse<Void>> response = restTemplate.exchange(
-            url,
-            HttpMethod.DELETE,
-            request,
-            new ParameterizedTypeReference<ApiResponse<Void>>() {}
-        );
-
-        ApiResponse<Void> body = response.getBody();
-        if (!response.getStatusCode().is2xxSuccessful() || body == null || !body.isSuccess()) {
-            String errorMsg = body != null ? body.getMessage() : "DELETE operation failed";
-            Integer errorCode = body != null ? body.getErrorCode() : 9100;
-            throw new CustomException("DELETE operation failed: " + errorMsg, errorCode != null ? errorCode : 9100);
-        }
+        exchange(url, HttpMethod.DELETE, request, new ParameterizedTypeReference<ApiResponse<Void>>() {});
     }
 
     /**
@@ -127,21 +193,185 @@ public abstract class BaseOnePCBffService {
     protected <T> T executeGet(String url, HttpHeaders headers, ParameterizedTypeReference<ApiResponse<T>> typeRef) throws CustomException {
         HttpEntity<Void> request = new HttpEntity<>(headers);
 
-        ResponseEntity<ApiResponse<T>> response = restTemplate.exchange(
-            url,
-            HttpMethod.GET,
-            request,
-            typeRef
-        );
+        return exchange(url, HttpMethod.GET, request, typeRef).getData();
+    }
+
+    /**
+     * Start composing a batch of operations for a 1PC batch endpoint
+     *
+     * The operations are sent in one request and executed by the participant in order with a
+     * single resume of the transaction, instead of one round-trip per operation.
+     *
+     * @param url The batch endpoint URL (e.g. .../product-one-pc/batch)
+     * @param headers HTTP headers including transaction ID
+     * @param typeRef ParameterizedTypeReference for the batch response type
+     * @param <T> The type of the DTO
+     * @return A builder collecting the operations
+     */
+    protected <T> BatchBuilder<T> batch(String url, HttpHeaders headers,
+                                        ParameterizedTypeReference<ApiResponse<List<BatchResultDto<T>>>> typeRef) {
+        return new BatchBuilder<>(url, headers, typeRef);
+    }
+
+    /**
+     * Builder for a 1PC batch request
+     *
+     * @param <T> The type of the DTO
+     */
+    protected class BatchBuilder<T> {
+        private final String url;
+        private final HttpHeaders headers;
+        private final ParameterizedTypeReference<ApiResponse<List<BatchResultDto<T>>>> typeRef;
+        private final List<BatchOperationDto<T>> operations = new ArrayList<>();
+
+        private BatchBuilder(String url, HttpHeaders headers,
+                             ParameterizedTypeReference<ApiResponse<List<BatchResultDto<T>>>> typeRef) {
+            this.url = url;
+            this.headers = headers;
+            this.typeRef = typeRef;
+        }
+
+        public BatchBuilder<T> get(T dto) {
+            return add("get", dto);
+        }
+
+        public BatchBuilder<T> insert(T dto) {
+            return add("insert", dto);
+        }
+
+        public BatchBuilder<T> upsert(T dto) {
+            return add("upsert", dto);
+        }
+
+        public BatchBuilder<T> update(T dto) {
+            return add("update", dto);
+        }
+
+        public BatchBuilder<T> delete(T dto) {
+            return add("delete", dto);
+        }
+
+        /**
+         * Send the batch
+         *
+         * @return The per-operation results, in the order the operations were added
+         * @throws CustomException if any operation fails (the participant has rolled back)
+         */
+        public List<BatchResultDto<T>> execute() throws CustomException {
+            HttpEntity<List<BatchOperationDto<T>>> request = new HttpEntity<>(operations, headers);
+
+            return exchange(url, HttpMethod.POST, request, typeRef).getData();
+        }
+
+        private BatchBuilder<T> add(String operation, T dto) {
+            operations.add(new BatchOperationDto<>(operation, dto));
+            return this;
+        }
+    }
+
+    /**
+     * Call a 1PC endpoint and validate its ApiResponse
+     *
+     * @param url The target URL, or a path relative to the participant service's instances
+     * @param method The HTTP method
+     * @param request The request entity including the transaction ID header
+     * @param typeRef ParameterizedTypeReference for the response type
+     * @param <T> The type of data returned
+     * @return The successful response body
+     * @throws CustomException if the operation fails
+     */
+    private <T> ApiResponse<T> exchange(String url, HttpMethod method, HttpEntity<?> request,
+                                        ParameterizedTypeReference<ApiResponse<T>> typeRef) throws CustomException {
+        // Calls of one transaction stick to one instance, where the transaction is already resumed
+        ParticipantLoadBalancer.Instance instance = url.startsWith("/")
+            ? participantLoadBalancer.select(url, request.getHeaders().getFirst("ScalarDB-Transaction-ID"))
+            : participantLoadBalancer.find(url);
+        return exchange(url, instance, method, request, typeRef, true);
+    }
+
+    /**
+     * Call a 1PC endpoint on the given instance and validate its ApiResponse
+     *
+     * @param url The target URL, or a path relative to the instance
+     * @param instance The instance to call, or null for an absolute URL outside the configured instances
+     * @param method The HTTP method
+     * @param request The request entity including the transaction ID header
+     * @param typeRef ParameterizedTypeReference for the response type
+     * @param guarded Whether the call is subject to the participant's bulkhead and circuit breaker
+     * @param <T> The type of data returned
+     * @return The successful response body
+     * @throws CustomException if the operation fails
+     */
+    private <T> ApiResponse<T> exchange(String url, ParticipantLoadBalancer.Instance instance, HttpMethod method,
+                                        HttpEntity<?> request, ParameterizedTypeReference<ApiResponse<T>> typeRef,
+                                        boolean guarded) throws CustomException {
+        String transactionId = request.getHeaders().getFirst("ScalarDB-Transaction-ID");
+
+        long remaining = remainingBudgetMillis(transactionId);
+        if (remaining <= 0) {
+            throw new DeadlineExceededException("Request budget exhausted before " + method.name() + " " + url);
+        }
+
+        String target = url.startsWith("/") ? instance.getBaseUrl() + url : url;
+        transactionTracker.addParticipant(transactionId, target);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(request.getHeaders());
+        headers.set(RequestDeadline.HEADER, String.valueOf(remaining));
+        HttpEntity<?> budgetedRequest = new HttpEntity<>(request.getBody(), headers);
+
+        ResponseEntity<ApiResponse<T>> response;
+        ParticipantIsolation.Permit permit = guarded ? participantIsolation.acquire(ParticipantLoadBalancer.serviceOf(url)) : null;
+        long startedAt = System.nanoTime();
+        participantLoadBalancer.start(instance);
+        RuntimeException error = null;
+        try {
+            response = RequestDeadline.callWithin(remaining, () -> restTemplate.exchange(
+                target,
+                method,
+                budgetedRequest,
+                typeRef
+            ));
+        } catch (ResourceAccessException e) {
+            error = e;
+            if (e.getCause() instanceof SocketTimeoutException) {
+                throw new DeadlineExceededException(method.name() + " " + target + " timed out after " + remaining + " ms", e);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            long latencyNanos = System.nanoTime() - startedAt;
+            participantLoadBalancer.record(instance, latencyNanos, error);
+            participantIsolation.release(permit, latencyNanos, error);
+        }
 
         ApiResponse<T> body = response.getBody();
         if (!response.getStatusCode().is2xxSuccessful() || body == null || !body.isSuccess()) {
-            String errorMsg = body != null ? body.getMessage() : "GET operation failed";
+            String errorMsg = body != null ? body.getMessage() : method.name() + " operation failed";
             Integer errorCode = body != null ? body.getErrorCode() : 9100;
-            throw new CustomException("GET operation failed: " + errorMsg, errorCode != null ? errorCode : 9100);
+            throw new CustomException(method.name() + " operation failed: " + errorMsg, errorCode != null ? errorCode : 9100);
         }
+        return body;
+    }
 
-        return body.getData();
+    /**
+     * Remaining time budget for a call made within the given transaction
+     *
+     * The budget starts when the transaction is started and is additionally capped by any
+     * deadline propagated to this BFF request by its own caller. It is exhausted as soon as the
+     * TransactionTracker has expired the transaction, also on threads other than its owner.
+     *
+     * @param transactionId The transaction ID
+     * @return Remaining milliseconds
+     */
+    protected long remainingBudgetMillis(String transactionId) {
+        if (transactionTracker.isExpired(transactionId)) {
+            return 0;
+        }
+        long remaining = requestBudgetMillis - transactionTracker.elapsedMillis(transactionId);
+        return Math.min(remaining, RequestDeadline.remainingMillis());
     }
 
     /**
@@ -158,6 +388,7 @@ public abstract class BaseOnePCBffService {
             } catch (RollbackException ex) {
                 log.error(ex.getMessage(), ex);
             }
+            transactionTracker.complete(transaction.getId(), false);
         }
     }
 
@@ -168,6 +399,8 @@ public abstract class BaseOnePCBffService {
      * @return The appropriate error code
      */
     protected int determineErrorCode(Exception e) {
+        if (e instanceof DeadlineExceededException) return 9600;
+        if (e instanceof ParticipantUnavailableException) return 9800;
         if (e instanceof UnsatisfiedConditionException) return 9100;
         if (e instanceof UnknownTransactionStatusException) return 9200;
         if (e instanceof TransactionException) return 9300;
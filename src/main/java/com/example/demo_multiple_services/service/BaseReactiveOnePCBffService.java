@@ -0,0 +1,319 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
+import com.example.demo_multiple_services.exception.ParticipantUnavailableException;
+import com.example.demo_multiple_services.util.RequestDeadline;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.exception.transaction.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Base class for reactive One-Phase Commit BFF Services
+ *
+ * Non-blocking counterpart of {@link BaseOnePCBffService}. Each orchestration is expressed as a
+ * Mono pipeline of start -> participant calls -> commit/rollback, where:
+ * - Participant calls use a non-blocking WebClient, so no thread waits on the HTTP round-trip
+ * - ScalarDB's blocking calls (start, commit, rollback) are offloaded to the bounded scalarDbScheduler
+ * - Each participant call carries the remaining time budget and times out when it runs out; the
+ *   budget is capped by the deadline the caller itself was given, if any
+ * - Errors are mapped to CustomException with the same error codes as the blocking BFF services
+ * - Relative participant URLs are sent to an instance chosen by the ParticipantLoadBalancer,
+ *   keeping all calls of a transaction on the same instance
+ * - Calls fail fast when a participant's bulkhead is full or its circuit is open (ParticipantIsolation)
+ *
+ * All reactive OnePC BFF service classes should extend this base class.
+ */
+@Slf4j
+public abstract class BaseReactiveOnePCBffService {
+
+    @Autowired
+    protected WebClient webClient;
+
+    @Autowired
+    protected Scheduler scalarDbScheduler;
+
+    @Autowired
+    protected TransactionTracker transactionTracker;
+
+    @Autowired
+    protected ParticipantLoadBalancer participantLoadBalancer;
+
+    @Autowired
+    protected ParticipantIsolation participantIsolation;
+
+    @Autowired
+    protected IdempotencyService idempotencyService;
+
+    @Value("${bff.request.budget-ms:10000}")
+    protected long requestBudgetMillis;
+
+    // Reactor Context key of the caller's absolute deadline (epoch millis), captured at assembly
+    private static final String DEADLINE_CONTEXT_KEY = BaseReactiveOnePCBffService.class.getName() + ".deadline";
+
+    protected DistributedTransactionManager manager;
+
+    protected BaseReactiveOnePCBffService(DistributedTransactionManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * Run the given pipeline inside a distributed transaction
+     *
+     * The transaction is started on the ScalarDB scheduler, its ID is handed to the pipeline,
+     * and it is committed when the pipeline completes or rolled back when it fails or is cancelled.
+     * The Idempotency-Key claimed by IdempotencyService.executeReactive, if any, is recorded in
+     * the same transaction.
+     *
+     * @param body Function building the participant calls from the transaction ID
+     * @param <R> The type of the result
+     * @return Mono emitting the pipeline result after commit
+     */
+    protected <R> Mono<R> inTransaction(Function<String, Mono<R>> body) {
+        String origin = transactionTracker.currentOrigin();
+        // The pipeline runs on other threads, which do not see the caller's RequestDeadline
+        long callerDeadline = callerDeadline();
+        return Mono.deferContextual(ctx -> {
+                IdempotencyService.Claim claim = ctx.getOrDefault(IdempotencyService.CLAIM_CONTEXT_KEY, null);
+                return Mono.usingWhen(
+                    startTransaction(origin),
+                    transaction -> body.apply(transaction.getId()),
+                    transaction -> commitTransaction(transaction, claim),
+                    (transaction, e) -> rollbackTransaction(transaction),
+                    this::rollbackTransaction);
+            })
+            .onErrorMap(e -> !(e instanceof CustomException), e -> {
+                log.error("Transaction failed: {}", e.getMessage(), e);
+                return new CustomException(e.getMessage(), e, determineErrorCode(e));
+            })
+            .contextWrite(ctx -> ctx.put(DEADLINE_CONTEXT_KEY, callerDeadline));
+    }
+
+    /**
+     * Execute HTTP POST operation for insert/upsert operations
+     *
+     * @param url The target URL
+     * @param dto The DTO object to send in the request body
+     * @param transactionId The transaction ID to propagate
+     * @param <T> The type of the DTO
+     * @return Mono completing when the operation succeeded
+     */
+    protected <T> Mono<Void> executePost(String url, T dto, String transactionId) {
+        return exchange(HttpMethod.POST, url, dto, transactionId, new ParameterizedTypeReference<ApiResponse<Void>>() {}).then();
+    }
+
+    /**
+     * Execute HTTP POST operation that returns data
+     *
+     * @param url The target URL
+     * @param dto The DTO object to send in the request body
+     * @param transactionId The transaction ID to propagate
+     * @param typeRef ParameterizedTypeReference for the response type
+     * @param <T> The type of the DTO
+     * @param <R> The type of data returned
+     * @return Mono emitting the data from the response
+     */
+    protected <T, R> Mono<R> executePostForData(String url, T dto, String transactionId,
+                                                ParameterizedTypeReference<ApiResponse<R>> typeRef) {
+        return exchange(HttpMethod.POST, url, dto, transactionId, typeRef);
+    }
+
+    /**
+     * Execute HTTP PUT operation for update operations
+     *
+     * @param url The target URL
+     * @param dto The DTO object to send in the request body
+     * @param transactionId The transaction ID to propagate
+     * @param <T> The type of the DTO
+     * @return Mono completing when the operation succeeded
+     */
+    protected <T> Mono<Void> executePut(String url, T dto, String transactionId) {
+        return exchange(HttpMethod.PUT, url, dto, transactionId, new ParameterizedTypeReference<ApiResponse<Void>>() {}).then();
+    }
+
+    /**
+     * Execute HTTP DELETE operation
+     *
+     * @param url The target URL (should include path parameters)
+     * @param transactionId The transaction ID to propagate
+     * @return Mono completing when the operation succeeded
+     */
+    protected Mono<Void> executeDelete(String url, String transactionId) {
+        return exchange(HttpMethod.DELETE, url, null, transactionId, new ParameterizedTypeReference<ApiResponse<Void>>() {}).then();
+    }
+
+    /**
+     * Execute HTTP GET operation that returns data
+     *
+     * @param url The target URL
+     * @param transactionId The transaction ID to propagate
+     * @param typeRef ParameterizedTypeReference for the response type
+     * @param <T> The type of data returned
+     * @return Mono emitting the data from the response, or failing with 9400 if there is none
+     */
+    protected <T> Mono<T> executeGet(String url, String transactionId, ParameterizedTypeReference<ApiResponse<T>> typeRef) {
+        // Like the blocking BFF, a read without data is an error rather than an empty 200 response
+        return exchange(HttpMethod.GET, url, null, transactionId, typeRef)
+            .switchIfEmpty(Mono.error(() -> new CustomException("GET operation failed: no data returned from " + url, 9400)));
+    }
+
+    private <T> Mono<T> exchange(HttpMethod method, String url, Object dto, String transactionId,
+                                 ParameterizedTypeReference<ApiResponse<T>> typeRef) {
+        // Deferred so that the remaining budget is computed when the call is actually made
+        long assembledDeadline = callerDeadline();
+        return Mono.deferContextual(ctx -> call(method, url, dto, transactionId, typeRef,
+            ctx.getOrDefault(DEADLINE_CONTEXT_KEY, assembledDeadline)));
+    }
+
+    // Absolute deadline bound to the calling thread by RequestDeadline, or Long.MAX_VALUE if none
+    private static long callerDeadline() {
+        long remaining = RequestDeadline.remainingMillis();
+        return remaining == Long.MAX_VALUE ? Long.MAX_VALUE : System.currentTimeMillis() + Math.max(remaining, 0);
+    }
+
+    private <T> Mono<T> call(HttpMethod method, String url, Object dto, String transactionId,
+                             ParameterizedTypeReference<ApiResponse<T>> typeRef, long callerDeadline) {
+        long remaining = transactionTracker.isExpired(transactionId)
+            ? 0
+            : requestBudgetMillis - transactionTracker.elapsedMillis(transactionId);
+        if (callerDeadline != Long.MAX_VALUE) {
+            remaining = Math.min(remaining, callerDeadline - System.currentTimeMillis());
+        }
+        if (remaining <= 0) {
+            return Mono.<T>error(new DeadlineExceededException("Request budget exhausted before " + method.name() + " " + url));
+        }
+
+        boolean relative = url.startsWith("/");
+        ParticipantLoadBalancer.Instance instance = relative
+            ? participantLoadBalancer.select(url, transactionId)
+            : participantLoadBalancer.find(url);
+        String target = relative ? instance.getBaseUrl() + url : url;
+        transactionTracker.addParticipant(transactionId, target);
+
+        WebClient.RequestBodySpec request = webClient.method(method)
+            .uri(target)
+            .contentType(MediaType.APPLICATION_JSON)
+            .header("ScalarDB-Transaction-ID", transactionId)
+            .header(RequestDeadline.HEADER, String.valueOf(remaining));
+        WebClient.RequestHeadersSpec<?> spec = dto != null ? request.bodyValue(dto) : request;
+
+        ParticipantIsolation.Permit permit;
+        try {
+            permit = participantIsolation.acquire(ParticipantLoadBalancer.serviceOf(url));
+        } catch (ParticipantUnavailableException e) {
+            return Mono.error(e);
+        }
+        long startedAt = System.nanoTime();
+        AtomicBoolean settled = new AtomicBoolean();
+        participantLoadBalancer.start(instance);
+        return spec.exchangeToMono(response -> response.bodyToMono(typeRef)
+            .defaultIfEmpty(new ApiResponse<>())
+            .flatMap(body -> {
+                if (!response.statusCode().is2xxSuccessful() || !body.isSuccess()) {
+                    String errorMsg = body.getMessage() != null ? body.getMessage() : method.name() + " operation failed";
+                    Integer errorCode = body.getErrorCode() != null ? body.getErrorCode() : 9100;
+                    return Mono.<T>error(new CustomException(method.name() + " operation failed: " + errorMsg, errorCode));
+                }
+                return Mono.justOrEmpty(body.getData());
+            }))
+            .timeout(Duration.ofMillis(remaining))
+            .onErrorMap(TimeoutException.class, e ->
+                new DeadlineExceededException(method.name() + " " + target + " timed out after " + remaining + " ms", e))
+            .doOnSuccess(data -> recordOutcome(settled, instance, permit, startedAt, null))
+            .doOnError(e -> recordOutcome(settled, instance, permit, startedAt, e))
+            .doOnCancel(() -> {
+                // Abandoned by the caller (e.g. a sibling call failed): neither a success nor a
+                // failure, so only the in-flight slot and the bulkhead permit are handed back
+                if (settled.compareAndSet(false, true)) {
+                    participantLoadBalancer.cancel(instance);
+                    participantIsolation.cancel(permit);
+                }
+            });
+    }
+
+    private void recordOutcome(AtomicBoolean settled, ParticipantLoadBalancer.Instance instance,
+                               ParticipantIsolation.Permit permit, long startedAt, Throwable error) {
+        if (!settled.compareAndSet(false, true)) {
+            return;
+        }
+        long latencyNanos = System.nanoTime() - startedAt;
+        participantLoadBalancer.record(instance, latencyNanos, error);
+        participantIsolation.release(permit, latencyNanos, error);
+    }
+
+    private Mono<DistributedTransaction> startTransaction(String origin) {
+        return Mono.fromCallable(() -> {
+                DistributedTransaction transaction = manager.start();
+                transactionTracker.trackDetached(transaction, origin);
+                log.info("Starting distributed transaction: {}", transaction.getId());
+                return transaction;
+            })
+            .subscribeOn(scalarDbScheduler);
+    }
+
+    private Mono<Void> commitTransaction(DistributedTransaction transaction, IdempotencyService.Claim claim) {
+        return Mono.<Void>fromRunnable(() -> {
+                try {
+                    if (transactionTracker.isExpired(transaction.getId())) {
+                        throw new DeadlineExceededException("Transaction " + transaction.getId() + " expired before commit");
+                    }
+                    idempotencyService.stage(transaction, claim);
+                    transaction.commit();
+                    transactionTracker.complete(transaction.getId(), true);
+                    log.info("Distributed transaction committed: {}", transaction.getId());
+                } catch (TransactionException | DeadlineExceededException e) {
+                    try {
+                        transaction.rollback();
+                    } catch (RollbackException ex) {
+                        log.error(ex.getMessage(), ex);
+                    }
+                    transactionTracker.complete(transaction.getId(), false);
+                    throw new CustomException(e, determineErrorCode(e));
+                }
+            })
+            .subscribeOn(scalarDbScheduler);
+    }
+
+    private Mono<Void> rollbackTransaction(DistributedTransaction transaction) {
+        return Mono.<Void>fromRunnable(() -> {
+                try {
+                    transaction.rollback();
+                } catch (RollbackException ex) {
+                    log.error(ex.getMessage(), ex);
+                }
+                transactionTracker.complete(transaction.getId(), false);
+            })
+            .subscribeOn(scalarDbScheduler);
+    }
+
+    /**
+     * Determine error code based on exception type
+     *
+     * @param e The exception
+     * @return The appropriate error code
+     */
+    protected int determineErrorCode(Throwable e) {
+        if (e instanceof DeadlineExceededException) return 9600;
+        if (e instanceof ParticipantUnavailableException) return 9800;
+        if (e instanceof UnsatisfiedConditionException) return 9100;
+        if (e instanceof UnknownTransactionStatusException) return 9200;
+        if (e instanceof TransactionException) return 9300;
+        if (e instanceof RuntimeException) return 9400;
+        return 9500;
+    }
+}
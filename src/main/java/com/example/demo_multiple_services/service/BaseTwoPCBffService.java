@@ -0,0 +1,189 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.api.TwoPhaseCommitTransaction;
+import com.scalar.db.api.TwoPhaseCommitTransactionManager;
+import com.scalar.db.exception.transaction.RollbackException;
+import com.scalar.db.exception.transaction.TransactionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Base class for Two-Phase Commit BFF Services
+ *
+ * Coordinates ScalarDB two-phase commit transactions across participant services that each run
+ * their own TwoPhaseCommitTransactionManager:
+ * - The transaction is started on the coordinator manager and its ID propagated like in 1PC
+ * - Prepare (and validate, when two-phase-commit.validate is set) runs on the coordinator and
+ *   on all participants concurrently, so the phase costs one round-trip instead of one per participant
+ * - The coordinator commits first, which decides the outcome; the participants then commit concurrently
+ * - On failure, the coordinator and all participants are rolled back concurrently
+ *
+ * Participant CRUD calls, time budget propagation and error handling are inherited from
+ * BaseOnePCBffService.
+ */
+@Slf4j
+public abstract class BaseTwoPCBffService extends BaseOnePCBffService {
+
+    @Autowired
+    @Qualifier("twoPhaseCommitExecutor")
+    protected ExecutorService twoPhaseCommitExecutor;
+
+    @Value("${two-phase-commit.validate:false}")
+    protected boolean validate;
+
+    protected TwoPhaseCommitTransactionManager coordinatorManager;
+
+    protected BaseTwoPCBffService(DistributedTransactionManager manager, TwoPhaseCommitTransactionManager coordinatorManager) {
+        super(manager);
+        this.coordinatorManager = coordinatorManager;
+    }
+
+    /**
+     * Start a new two-phase commit transaction as coordinator and register it with the TransactionTracker
+     *
+     * @return The started transaction
+     * @throws TransactionException if the transaction cannot be started
+     */
+    protected TwoPhaseCommitTransaction startTwoPhaseTransaction() throws TransactionException {
+        TwoPhaseCommitTransaction transaction = coordinatorManager.start();
+        transactionTracker.track(transaction, transactionTracker.currentOrigin());
+        return transaction;
+    }
+
+    /**
+     * Pin a participant service to one of its instances for the whole transaction
+     *
+     * A 2PC participant keeps the joined transaction in its own process, so every call for the
+     * transaction (CRUD, prepare, commit, rollback) has to reach the instance that joined it.
+     *
+     * @param path The relative participant path (e.g. /product-two-pc)
+     * @return The absolute participant URL on the chosen instance
+     */
+    protected String pinParticipant(String path) {
+        return participantLoadBalancer.select(path).getBaseUrl() + path;
+    }
+
+    /**
+     * Prepare, validate and commit the transaction on the coordinator and all participants
+     *
+     * @param transaction The coordinator's transaction
+     * @param participantUrls Base URLs of the participants (e.g. .../product-two-pc)
+     * @param headers HTTP headers including transaction ID
+     * @throws TransactionException if the coordinator fails to prepare, validate or commit
+     * @throws CustomException if a participant fails to prepare or validate
+     */
+    protected void commitAll(TwoPhaseCommitTransaction transaction, List<String> participantUrls,
+                             HttpHeaders headers) throws TransactionException {
+        idempotencyService.stage(transaction);
+        runPhase("prepare", transaction::prepare, participantUrls, headers);
+        if (validate) {
+            runPhase("validate", transaction::validate, participantUrls, headers);
+        }
+
+        if (transactionTracker.isExpired(transaction.getId())) {
+            throw new DeadlineExceededException("Transaction " + transaction.getId() + " expired before commit");
+        }
+        transaction.commit();
+        transactionTracker.complete(transaction.getId(), true);
+
+        // The outcome is decided; a participant that fails to commit is recovered lazily by ScalarDB
+        List<CompletableFuture<Void>> commits = callParticipants("commit", participantUrls, headers);
+        for (CompletableFuture<Void> commit : commits) {
+            try {
+                commit.join();
+            } catch (CompletionException e) {
+                log.warn("Participant commit failed for transaction {}: {}", transaction.getId(), e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Roll back the transaction on the coordinator and all participants (best effort)
+     *
+     * @param transaction The coordinator's transaction, or null if it was not started
+     * @param participantUrls Base URLs of the participants
+     * @param headers HTTP headers including transaction ID
+     */
+    protected void rollbackAll(TwoPhaseCommitTransaction transaction, List<String> participantUrls, HttpHeaders headers) {
+        if (transaction == null) {
+            return;
+        }
+        List<CompletableFuture<Void>> rollbacks = callParticipants("rollback", participantUrls, headers);
+        try {
+            transaction.rollback();
+        } catch (RollbackException ex) {
+            log.error(ex.getMessage(), ex);
+        }
+        for (CompletableFuture<Void> rollback : rollbacks) {
+            try {
+                rollback.join();
+            } catch (CompletionException e) {
+                log.warn("Participant rollback failed for transaction {}: {}", transaction.getId(), e.getCause().getMessage());
+            }
+        }
+        transactionTracker.complete(transaction.getId(), false);
+    }
+
+    /**
+     * Run one protocol phase on the coordinator and all participants concurrently
+     *
+     * Waits for every participant even when the coordinator fails, so that a following rollback
+     * does not race with an in-flight prepare.
+     */
+    private void runPhase(String phase, CoordinatorStep coordinatorStep, List<String> participantUrls,
+                          HttpHeaders headers) throws TransactionException {
+        List<CompletableFuture<Void>> calls = callParticipants(phase, participantUrls, headers);
+        TransactionException coordinatorFailure = null;
+        try {
+            coordinatorStep.run();
+        } catch (TransactionException e) {
+            coordinatorFailure = e;
+        }
+
+        RuntimeException participantFailure = null;
+        for (CompletableFuture<Void> call : calls) {
+            try {
+                call.join();
+            } catch (CompletionException e) {
+                if (participantFailure == null) {
+                    participantFailure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (coordinatorFailure != null) {
+            throw coordinatorFailure;
+        }
+        if (participantFailure != null) {
+            throw participantFailure;
+        }
+    }
+
+    private List<CompletableFuture<Void>> callParticipants(String phase, List<String> participantUrls, HttpHeaders headers) {
+        List<CompletableFuture<Void>> calls = new ArrayList<>(participantUrls.size());
+        for (String url : participantUrls) {
+            String phaseUrl = url + "/" + phase;
+            Runnable call = "commit".equals(phase) || "rollback".equals(phase)
+                ? () -> executeFinishingPost(phaseUrl, headers)
+                : () -> executePost(phaseUrl, null, headers);
+            calls.add(CompletableFuture.runAsync(call, twoPhaseCommitExecutor));
+        }
+        return calls;
+    }
+
+    @FunctionalInterface
+    private interface CoordinatorStep {
+        void run() throws TransactionException;
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.BulkExportManifestDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.model.Order;
+import com.example.demo_multiple_services.model.Product;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.api.Result;
+import com.scalar.db.api.Scan;
+import com.scalar.db.api.TransactionCrudOperable;
+import com.scalar.db.exception.transaction.RollbackException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk Export Service
+ *
+ * Streams whole tables from a ScalarDB Scanner into gzip-compressed NDJSON segments, one JSON
+ * object per record written directly from the Result columns (no DTO mapping), so memory use is
+ * constant whatever the table size. Each table is exported in a read-only transaction to
+ * bulk-export.dir/<timestamp>/<namespace>.<table>/:
+ * - part-00000.ndjson.gz, part-00001.ndjson.gz, ... rotated every bulk-export.segment-rows records
+ * - manifest.json listing the columns, segments, row counts and throughput
+ *
+ * Segments are written under a .tmp name and renamed when complete. If the export of a table fails,
+ * its directory is deleted, so a partial export is never mistaken for a complete one. Up to
+ * bulk-export.parallelism tables are exported at the same time.
+ *
+ * The export transaction is tracked with its own deadline (bulk-export.transaction-timeout-ms,
+ * 0 = none) instead of the one for request transactions, which a large table would outlive.
+ *
+ * Exported metrics: bulk.export.rows (tagged by table)
+ */
+@Slf4j
+@Service
+public class BulkExportService {
+
+    private static final Map<String, ExportTable> TABLES = Map.of(
+        "product", new ExportTable(Product.NAMESPACE, Product.TABLE,
+            List.of(Product.ID, Product.PRODUCT_NAME, Product.STOCK)),
+        "order", new ExportTable(Order.NAMESPACE, Order.TABLE,
+            List.of(Order.ID, Order.PRODUCT_ID, Order.ORDER_QTY, Order.ORDER_DATETIME)));
+
+    DistributedTransactionManager manager;
+
+    private final ObjectMapper objectMapper;
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    TransactionTracker transactionTracker;
+
+    @Value("${bulk-export.dir:exports}")
+    private String exportDir;
+
+    @Value("${bulk-export.segment-rows:100000}")
+    private long segmentRows;
+
+    @Value("${bulk-export.parallelism:2}")
+    private int parallelism;
+
+    @Value("${bulk-export.transaction-timeout-ms:0}")
+    private long transactionTimeoutMillis;
+
+    public BulkExportService(DistributedTransactionManager manager, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.manager = manager;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Export the given tables into a new timestamped directory
+     *
+     * @param entities Table names as used by the endpoints ("product", "order")
+     * @return One manifest per table
+     */
+    public List<BulkExportManifestDto> exportTables(List<String> entities) throws CustomException {
+        for (String entity : entities) {
+            if (!TABLES.containsKey(entity)) {
+                throw new CustomException("Unknown table: " + entity + " (expected one of " + TABLES.keySet() + ")", 9400);
+            }
+        }
+        Path runDir = Paths.get(exportDir, LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, entities.size())));
+        try {
+            List<Future<BulkExportManifestDto>> futures = new ArrayList<>();
+            for (String entity : entities) {
+                futures.add(executor.submit(() -> exportTable(TABLES.get(entity), runDir)));
+            }
+            List<BulkExportManifestDto> manifests = new ArrayList<>();
+            for (Future<BulkExportManifestDto> future : futures) {
+                manifests.add(future.get());
+            }
+            return manifests;
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof CustomException customException) {
+                throw customException;
+            }
+            throw new CustomException(cause.getMessage(), cause, 9500);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BulkExportManifestDto exportTable(ExportTable table, Path runDir) {
+        Counter rowsCounter = Counter.builder("bulk.export.rows")
+            .description("Records written by the bulk export")
+            .tag("table", table.namespace + "." + table.table)
+            .register(meterRegistry);
+        Path tableDir = runDir.resolve(table.namespace + "." + table.table);
+        long startedAt = System.currentTimeMillis();
+        List<BulkExportManifestDto.Segment> segments = new ArrayList<>();
+        long rows = 0;
+
+        DistributedTransaction transaction = null;
+        SegmentWriter writer = null;
+        try {
+            Files.createDirectories(tableDir);
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction, "bulk-export " + table.namespace + "." + table.table, transactionTimeoutMillis);
+            Scan scan = Scan.newBuilder()
+                .namespace(table.namespace)
+                .table(table.table)
+                .all()
+                .projections(table.columns)
+                .build();
+            try (TransactionCrudOperable.Scanner scanner = transaction.getScanner(scan)) {
+                for (Result result : scanner) {
+                    if (writer == null || writer.rows >= segmentRows) {
+                        if (writer != null) {
+                            segments.add(writer.close());
+                        }
+                        writer = new SegmentWriter(tableDir, segments.size());
+                    }
+                    writer.write(result, table.columns);
+                    rows++;
+                    rowsCounter.increment();
+                }
+            }
+            if (writer != null) {
+                segments.add(writer.close());
+                writer = null;
+            }
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+        } catch (Exception e) {
+            log.error("Export of {}.{} failed after {} rows, discarding {}", table.namespace, table.table, rows, tableDir, e);
+            if (writer != null) {
+                writer.abort();
+            }
+            deleteExport(tableDir);
+            if (transaction != null) {
+                try {
+                    transaction.rollback();
+                } catch (RollbackException ex) {
+                    log.error(ex.getMessage(), ex);
+                }
+                transactionTracker.complete(transaction.getId(), false);
+            }
+            throw new CustomException("Export of " + table.namespace + "." + table.table + " failed: " + e.getMessage(), e, 9500);
+        }
+
+        long finishedAt = System.currentTimeMillis();
+        BulkExportManifestDto manifest = BulkExportManifestDto.builder()
+            .namespace(table.namespace)
+            .table(table.table)
+            .columns(table.columns)
+            .format("ndjson+gzip")
+            .startedAt(startedAt)
+            .finishedAt(finishedAt)
+            .rows(rows)
+            .rowsPerSecond(finishedAt > startedAt ? rows * 1000.0 / (finishedAt - startedAt) : rows)
+            .segments(segments)
+            .build();
+        try {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tableDir.resolve("manifest.json").toFile(), manifest);
+        } catch (IOException e) {
+            throw new CustomException("Failed to write manifest for " + table.namespace + "." + table.table, e, 9500);
+        }
+        log.info("Exported {} rows of {}.{} into {} segments ({} rows/s)", rows, table.namespace, table.table,
+            segments.size(), String.format("%.1f", manifest.getRowsPerSecond()));
+        return manifest;
+    }
+
+    // Remove the segments of a failed export, so that no truncated export is left behind
+    private void deleteExport(Path tableDir) {
+        if (!Files.exists(tableDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(tableDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(tableDir);
+        } catch (IOException e) {
+            log.error("Failed to delete the partial export in {}; it is incomplete and must not be used", tableDir, e);
+        }
+    }
+
+    // One gzip NDJSON segment, written under a temporary name until complete
+    private class SegmentWriter {
+        private final Path file;
+        private final Path tempFile;
+        private final OutputStream out;
+        private final JsonGenerator generator;
+        private long rows;
+
+        private SegmentWriter(Path dir, int index) throws IOException {
+            this.file = dir.resolve(String.format("part-%05d.ndjson.gz", index));
+            this.tempFile = dir.resolve(file.getFileName() + ".tmp");
+            this.out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile), 1 << 16), 1 << 16);
+            this.generator = objectMapper.getFactory().createGenerator(out);
+        }
+
+        private void write(Result result, List<String> columns) throws IOException {
+            generator.writeStartObject();
+            for (String column : columns) {
+                generator.writeFieldName(column);
+                if (result.isNull(column)) {
+                    generator.writeNull();
+                } else {
+                    generator.writeObject(result.getAsObject(column));
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            rows++;
+        }
+
+        private BulkExportManifestDto.Segment close() throws IOException {
+            generator.close();
+            out.close();
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new BulkExportManifestDto.Segment(file.getFileName().toString(), rows, Files.size(file));
+        }
+
+        private void abort() {
+            try {
+                generator.close();
+                out.close();
+            } catch (IOException e) {
+                log.warn("Failed to close {}", tempFile, e);
+            }
+        }
+    }
+
+    private record ExportTable(String namespace, String table, List<String> columns) {
+    }
+}
@@ -0,0 +1,589 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.BulkImportReportDto;
+import com.example.demo_multiple_services.dto.BulkImportRequestDto;
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.ProductDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.model.Order;
+import com.example.demo_multiple_services.model.Product;
+import com.example.demo_multiple_services.repository.OrderRepository;
+import com.example.demo_multiple_services.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.exception.transaction.RollbackException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulk Import Service for product and order files
+ *
+ * Streams a CSV (with header row) or NDJSON file through a buffered reader and writes the rows
+ * with upserts in chunked transactions:
+ * - Chunks of bulk-import.chunk-size rows are committed in parallel by bulk-import.parallelism writers
+ * - At most bulk-import.max-in-flight-chunks chunks are pending; beyond that the reader waits
+ * - A checkpoint file next to the input records the last line up to which every chunk has been
+ *   committed, so an interrupted or partly failed import can be resumed from there. Upserts make
+ *   re-importing the rows after the checkpoint harmless.
+ * - Rows that cannot be parsed are written with their line number to a rejects file next to the
+ *   checkpoint, since the checkpoint moves past them and a resumed import does not read them again
+ * - With order-totals.enabled, imported orders skip product_order_total (which would cost a Get
+ *   per row and make parallel chunks contend on the summary rows); it is rebuilt once at the end
+ *
+ * Files are only read from bulk-import.base-dir. Imports run one at a time.
+ */
+@Slf4j
+@Service
+public class BulkImportService {
+
+    private static final int MAX_REPORTED_FAILURES = 100;
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    private static final String REJECTS_SUFFIX = ".rejects";
+
+    DistributedTransactionManager manager;
+
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    TransactionTracker transactionTracker;
+
+    @Autowired
+    OrderService orderService;
+
+    @Value("${bulk-import.base-dir:imports}")
+    private String baseDir;
+
+    @Value("${bulk-import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${bulk-import.parallelism:4}")
+    private int parallelism;
+
+    @Value("${bulk-import.max-in-flight-chunks:8}")
+    private int maxInFlightChunks;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor();
+
+    public BulkImportService(DistributedTransactionManager manager, ObjectMapper objectMapper) {
+        this.manager = manager;
+        this.objectMapper = objectMapper;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * Queue an import and return immediately
+     *
+     * @param request The import request
+     * @return The initial report, carrying the job ID to poll
+     */
+    public BulkImportReportDto startImport(BulkImportRequestDto request) throws CustomException {
+        ImportJob job = createJob(request);
+        jobs.put(job.id, job);
+        jobExecutor.execute(() -> run(job));
+        return job.report();
+    }
+
+    /**
+     * Run an import on the calling thread
+     *
+     * @param request The import request
+     * @return The final report
+     */
+    public BulkImportReportDto runImport(BulkImportRequestDto request) throws CustomException {
+        ImportJob job = createJob(request);
+        jobs.put(job.id, job);
+        run(job);
+        return job.report();
+    }
+
+    // Current report of a queued, running or finished import
+    public BulkImportReportDto getImport(String jobId) throws CustomException {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new CustomException("No bulk import: " + jobId, 9400);
+        }
+        return job.report();
+    }
+
+    private ImportJob createJob(BulkImportRequestDto request) {
+        String entity = request.getEntity() != null ? request.getEntity().toLowerCase() : "";
+        if (!entity.equals("product") && !entity.equals("order")) {
+            throw new CustomException("entity must be product or order", 9400);
+        }
+        Path base = Paths.get(baseDir).toAbsolutePath().normalize();
+        Path file = request.getFile() != null ? base.resolve(request.getFile()).normalize() : base;
+        if (!file.startsWith(base) || !Files.isRegularFile(file)) {
+            throw new CustomException("No such file in bulk-import.base-dir: " + request.getFile(), 9400);
+        }
+        String format = request.getFormat() != null ? request.getFormat().toLowerCase()
+            : file.getFileName().toString().toLowerCase().endsWith(".csv") ? "csv" : "ndjson";
+        if (!format.equals("csv") && !format.equals("ndjson")) {
+            throw new CustomException("format must be csv or ndjson", 9400);
+        }
+        return new ImportJob(UUID.randomUUID().toString(), entity, file, format, request.isResume());
+    }
+
+    private void run(ImportJob job) {
+        job.startedAt = System.nanoTime();
+        job.status = "RUNNING";
+        Path checkpointFile = job.file.resolveSibling(job.file.getFileName() + CHECKPOINT_SUFFIX);
+        Path rejectsFile = job.file.resolveSibling(job.file.getFileName() + REJECTS_SUFFIX);
+        long resumeAfter = job.resume ? readCheckpoint(checkpointFile) : 0;
+        job.checkpoint.line = resumeAfter;
+
+        ExecutorService writers = Executors.newFixedThreadPool(parallelism);
+        Semaphore inFlight = new Semaphore(maxInFlightChunks);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(job.file), StandardCharsets.UTF_8), 1 << 16);
+             Rejects rejects = new Rejects(rejectsFile, resumeAfter)) {
+            RowParser parser = job.format.equals("csv") ? csvParser(job.entity, reader.readLine()) : ndjsonParser(job.entity);
+            List<Object> chunk = new ArrayList<>(chunkSize);
+            long sequence = 0;
+            long line = 0;
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (line <= resumeAfter) {
+                    job.rowsSkipped.increment();
+                    continue;
+                }
+                if (text.isBlank()) {
+                    continue;
+                }
+                job.rowsRead.increment();
+                try {
+                    chunk.add(parser.parse(text));
+                } catch (RuntimeException e) {
+                    job.fail(1, "Line " + line + ": " + e.getMessage());
+                    rejects.add(line, text);
+                }
+                if (chunk.size() >= chunkSize) {
+                    // The checkpoint may pass the rejected lines once the chunk commits
+                    rejects.flush();
+                    submitChunk(job, chunk, sequence++, line, checkpointFile, writers, inFlight);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            // Also submitted when empty, so that the checkpoint reaches the end of the file
+            rejects.flush();
+            submitChunk(job, chunk, sequence, line, checkpointFile, writers, inFlight);
+            inFlight.acquire(maxInFlightChunks);
+            job.status = "COMPLETED";
+            if (job.rowsFailed.sum() == 0) {
+                Files.deleteIfExists(checkpointFile);
+            }
+            if (rejects.count() > 0) {
+                job.rejectsFile = rejectsFile.getFileName().toString();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.status = "FAILED";
+            job.fail(0, "Interrupted");
+        } catch (Exception e) {
+            log.error("Bulk import of {} failed", job.file, e);
+            job.status = "FAILED";
+            job.fail(0, e.getMessage());
+        } finally {
+            awaitWriters(writers);
+            rebuildOrderTotals(job);
+            job.finishedAt = System.nanoTime();
+        }
+        BulkImportReportDto report = job.report();
+        log.info("Bulk import {} of {}: {} rows imported, {} failed, {} rows/s",
+            report.getStatus(), job.file.getFileName(), report.getRowsImported(), report.getRowsFailed(),
+            String.format("%.1f", report.getRowsPerSecond()));
+    }
+
+    // Blocks while max-in-flight-chunks chunks are pending, which throttles the reader
+    private void submitChunk(ImportJob job, List<Object> rows, long sequence, long lastLine, Path checkpointFile,
+                             ExecutorService writers, Semaphore inFlight) throws InterruptedException {
+        inFlight.acquire();
+        writers.execute(() -> {
+            try {
+                boolean committed = writeChunk(job, rows, lastLine);
+                // Saved under the checkpoint's lock so that writers cannot persist it out of order
+                synchronized (job.checkpoint) {
+                    long checkpoint = job.checkpoint.complete(sequence, lastLine, committed);
+                    if (checkpoint >= 0) {
+                        saveCheckpoint(checkpointFile, checkpoint);
+                    }
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    // Wait for the submitted chunks also when reading failed or was interrupted, so that no chunk
+    // is still committing while the order totals are rebuilt; each chunk is bounded by its
+    // transaction's deadline
+    private static void awaitWriters(ExecutorService writers) {
+        writers.shutdown();
+        boolean interrupted = false;
+        while (!writers.isTerminated()) {
+            try {
+                writers.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Also after a failed import, since its committed chunks skipped the totals as well
+    private void rebuildOrderTotals(ImportJob job) {
+        if (!job.entity.equals("order") || !orderRepository.isOrderTotalsEnabled() || job.rowsImported.sum() == 0) {
+            return;
+        }
+        try {
+            orderService.rebuildProductOrderTotals();
+        } catch (RuntimeException e) {
+            log.error("Rebuilding product_order_total after bulk import of {} failed", job.file, e);
+            job.fail(0, "Rebuilding product_order_total failed, run POST /order/totals/rebuild: " + e.getMessage());
+        }
+    }
+
+    private boolean writeChunk(ImportJob job, List<Object> rows, long lastLine) {
+        if (rows.isEmpty()) {
+            return true;
+        }
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            transactionTracker.track(transaction, "bulk-import " + job.file.getFileName());
+            for (Object row : rows) {
+                if (row instanceof Product product) {
+                    productRepository.upsertProduct(transaction, product);
+                } else {
+                    orderRepository.upsertOrder(transaction, (Order) row, false);
+                }
+            }
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            job.rowsImported.add(rows.size());
+            return true;
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            if (transaction != null) {
+                try {
+                    transaction.rollback();
+                } catch (RollbackException ex) {
+                    log.error(ex.getMessage(), ex);
+                }
+                transactionTracker.complete(transaction.getId(), false);
+            }
+            job.fail(rows.size(), "Chunk ending at line " + lastLine + " (" + rows.size() + " rows): " + e.getMessage());
+            return false;
+        }
+    }
+
+    private long readCheckpoint(Path checkpointFile) {
+        try {
+            return Files.exists(checkpointFile) ? Long.parseLong(Files.readString(checkpointFile).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Ignoring unreadable checkpoint {}", checkpointFile, e);
+            return 0;
+        }
+    }
+
+    private void saveCheckpoint(Path checkpointFile, long line) {
+        try {
+            Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+            Files.writeString(temp, Long.toString(line));
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save checkpoint {}", checkpointFile, e);
+        }
+    }
+
+    private RowParser csvParser(String entity, String header) {
+        if (header == null) {
+            throw new CustomException("Empty CSV file", 9400);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        String[] names = splitCsv(header);
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].trim().toLowerCase(), i);
+        }
+        if (entity.equals("product")) {
+            int id = requireColumn(columns, Product.ID);
+            int name = requireColumn(columns, Product.PRODUCT_NAME);
+            int stock = requireColumn(columns, Product.STOCK);
+            return line -> {
+                String[] fields = splitCsv(line);
+                return Product.builder()
+                    .id(Integer.parseInt(fields[id].trim()))
+                    .productName(fields[name])
+                    .stock(Integer.parseInt(fields[stock].trim()))
+                    .build();
+            };
+        }
+        int id = requireColumn(columns, Order.ID);
+        int productId = requireColumn(columns, Order.PRODUCT_ID);
+        int orderQty = requireColumn(columns, Order.ORDER_QTY);
+        int orderDatetime = requireColumn(columns, Order.ORDER_DATETIME);
+        return line -> {
+            String[] fields = splitCsv(line);
+            return Order.builder()
+                .id(fields[id])
+                .productId(Integer.parseInt(fields[productId].trim()))
+                .orderQty(Integer.parseInt(fields[orderQty].trim()))
+                .orderDatetime(LocalDateTime.parse(fields[orderDatetime].trim()))
+                .build();
+        };
+    }
+
+    private RowParser ndjsonParser(String entity) {
+        if (entity.equals("product")) {
+            return line -> {
+                ProductDto dto = readJson(line, ProductDto.class);
+                return Product.builder().id(dto.getId()).productName(dto.getProductName()).stock(dto.getStock()).build();
+            };
+        }
+        return line -> {
+            OrderDto dto = readJson(line, OrderDto.class);
+            return Order.builder().id(dto.getId()).productId(dto.getProductId())
+                .orderQty(dto.getOrderQty()).orderDatetime(dto.getOrderDatetime()).build();
+        };
+    }
+
+    private <T> T readJson(String line, Class<T> type) {
+        try {
+            return objectMapper.readValue(line, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e.getOriginalMessage(), e);
+        }
+    }
+
+    private static int requireColumn(Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null) {
+            throw new CustomException("CSV header is missing column " + name, 9400);
+        }
+        return index;
+    }
+
+    // Split one CSV line; fields may be quoted, with "" as an escaped quote
+    static String[] splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private interface RowParser {
+        Object parse(String line);
+    }
+
+    private static class ImportJob {
+        private final String id;
+        private final String entity;
+        private final Path file;
+        private final String format;
+        private final boolean resume;
+        private final LongAdder rowsRead = new LongAdder();
+        private final LongAdder rowsSkipped = new LongAdder();
+        private final LongAdder rowsImported = new LongAdder();
+        private final LongAdder rowsFailed = new LongAdder();
+        private final List<String> failures = new ArrayList<>();
+        private final Checkpoint checkpoint = new Checkpoint();
+        private volatile String status = "QUEUED";
+        private volatile String rejectsFile;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+
+        private ImportJob(String id, String entity, Path file, String format, boolean resume) {
+            this.id = id;
+            this.entity = entity;
+            this.file = file;
+            this.format = format;
+            this.resume = resume;
+        }
+
+        private void fail(long rows, String message) {
+            rowsFailed.add(rows);
+            synchronized (failures) {
+                if (failures.size() < MAX_REPORTED_FAILURES) {
+                    failures.add(message);
+                }
+            }
+        }
+
+        private BulkImportReportDto report() {
+            long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+            long elapsedMillis = startedAt != 0 ? (end - startedAt) / 1_000_000 : 0;
+            long imported = rowsImported.sum();
+            List<String> failureList;
+            synchronized (failures) {
+                failureList = new ArrayList<>(failures);
+            }
+            return BulkImportReportDto.builder()
+                .jobId(id)
+                .entity(entity)
+                .file(file.getFileName().toString())
+                .status(status)
+                .rowsRead(rowsRead.sum())
+                .rowsSkipped(rowsSkipped.sum())
+                .rowsImported(imported)
+                .rowsFailed(rowsFailed.sum())
+                .elapsedMillis(elapsedMillis)
+                .rowsPerSecond(elapsedMillis > 0 ? imported * 1000.0 / elapsedMillis : 0)
+                .checkpointLine(checkpoint.current())
+                .rejectsFile(rejectsFile)
+                .failures(failureList)
+                .build();
+        }
+    }
+
+    // Highest line up to which every chunk has been committed; a failed chunk holds it back
+    static class Checkpoint {
+        // Chunks committed ahead of an earlier chunk that is still being written
+        private final TreeMap<Long, Long> committed = new TreeMap<>();
+        private long nextSequence;
+        private long firstFailed = Long.MAX_VALUE;
+        private long line;
+
+        // Returns the new checkpoint line if it advanced, otherwise -1
+        synchronized long complete(long sequence, long lastLine, boolean success) {
+            if (!success) {
+                firstFailed = Math.min(firstFailed, sequence);
+                // The checkpoint can never pass the failed chunk in this run
+                committed.tailMap(firstFailed).clear();
+            } else if (sequence < firstFailed) {
+                committed.put(sequence, lastLine);
+            }
+            long before = line;
+            while (committed.containsKey(nextSequence)) {
+                line = committed.remove(nextSequence++);
+            }
+            return line != before ? line : -1;
+        }
+
+        synchronized long current() {
+            return line;
+        }
+
+        synchronized int pending() {
+            return committed.size();
+        }
+    }
+
+    // Rows that failed to parse, one "<line number><TAB><line>" entry each
+    private static class Rejects implements Closeable {
+        private final Path file;
+        private BufferedWriter writer;
+        private long count;
+
+        // Keeps the entries of a previous run up to the checkpoint, since those lines are not read again
+        private Rejects(Path file, long keepThroughLine) throws IOException {
+            this.file = file;
+            List<String> kept = new ArrayList<>();
+            if (keepThroughLine > 0 && Files.exists(file)) {
+                for (String entry : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    int tab = entry.indexOf('\t');
+                    if (tab > 0 && Long.parseLong(entry.substring(0, tab)) <= keepThroughLine) {
+                        kept.add(entry);
+                    }
+                }
+            }
+            Files.deleteIfExists(file);
+            for (String entry : kept) {
+                write(entry);
+            }
+        }
+
+        private void add(long line, String text) throws IOException {
+            write(line + "\t" + text);
+        }
+
+        private void write(String entry) throws IOException {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            }
+            writer.write(entry);
+            writer.newLine();
+            count++;
+        }
+
+        private long count() {
+            return count;
+        }
+
+        private void flush() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.ChangeBatchDto;
+import com.example.demo_multiple_services.dto.ChangeEventDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.TransactionCrudOperable;
+import com.scalar.db.api.TwoPhaseCommitTransaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Change Log of committed product and order mutations
+ *
+ * The repositories stage every mutation under its transaction ID. When the TransactionTracker
+ * reports the transaction committed, the staged mutations are appended to a local append-only
+ * log in commit order and assigned consecutive offsets; on rollback they are discarded.
+ *
+ * The log is a sequence of segment files of JSON lines in change-log.dir, named after the offset
+ * of their first entry and rolled every change-log.segment-size entries. Consumers read it
+ * incrementally by offset through a long-poll instead of re-scanning the tables.
+ *
+ * Appends run on the committing thread, so a long-poll woken by an append reads its batch on
+ * the change-log.reader-threads pool rather than on that thread or inside the log lock.
+ *
+ * Only transactions completed on this node are logged: mutations made by a 1PC participant for
+ * a coordinator on another node are dropped after change-log.staging-ttl-ms.
+ */
+@Slf4j
+@Component
+public class ChangeLog {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, StagedChanges> staged = new ConcurrentHashMap<>();
+
+    // Base offset -> segment file
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private final List<Waiter> waiters = new CopyOnWriteArrayList<>();
+
+    @Value("${change-log.enabled:false}")
+    private boolean enabled;
+
+    @Value("${change-log.dir:change-log}")
+    private String directory;
+
+    @Value("${change-log.segment-size:100000}")
+    private long segmentSize;
+
+    @Value("${change-log.fsync:true}")
+    private boolean fsync;
+
+    @Value("${change-log.staging-ttl-ms:60000}")
+    private long stagingTtlMillis;
+
+    @Value("${change-log.reader-threads:2}")
+    private int readerThreads;
+
+    // Reads the batches of woken long-polls
+    private ExecutorService readers;
+
+    private FileChannel channel;
+    private long activeBaseOffset;
+    private volatile long nextOffset;
+
+    public ChangeLog(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        readers = Executors.newFixedThreadPool(readerThreads);
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .forEach(file -> segments.put(baseOffsetOf(file), file));
+        }
+        if (segments.isEmpty()) {
+            openSegment(0);
+            return;
+        }
+        Map.Entry<Long, Path> last = segments.lastEntry();
+        activeBaseOffset = last.getKey();
+        channel = FileChannel.open(last.getValue(), StandardOpenOption.WRITE, StandardOpenOption.READ);
+        nextOffset = activeBaseOffset + recoverEntryCount(channel);
+        log.info("Change log opened at offset {} ({} segments)", nextOffset, segments.size());
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (readers != null) {
+            readers.shutdownNow();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Stage a mutation made through a one-phase or two-phase commit transaction
+     *
+     * @see #stage(String, String, String, String, Object, Supplier)
+     */
+    public void stage(TransactionCrudOperable transaction, String namespace, String table, String operation, Object key, Supplier<Object> data) {
+        if (transaction instanceof DistributedTransaction distributedTransaction) {
+            stage(distributedTransaction.getId(), namespace, table, operation, key, data);
+        } else if (transaction instanceof TwoPhaseCommitTransaction twoPhaseCommitTransaction) {
+            stage(twoPhaseCommitTransaction.getId(), namespace, table, operation, key, data);
+        }
+    }
+
+    /**
+     * Stage a mutation until its transaction completes
+     *
+     * @param transactionId The transaction the mutation belongs to
+     * @param namespace The ScalarDB namespace
+     * @param table The ScalarDB table
+     * @param operation INSERT, UPDATE, UPSERT or DELETE
+     * @param key The partition key value(s)
+     * @param data Supplies the written record (only called when the log is enabled), or null for deletes
+     */
+    public void stage(String transactionId, String namespace, String table, String operation, Object key, Supplier<Object> data) {
+        if (!enabled) {
+            return;
+        }
+        ChangeEventDto change = ChangeEventDto.builder()
+            .transactionId(transactionId)
+            .namespace(namespace)
+            .table(table)
+            .operation(operation)
+            .key(key)
+            .data(data != null ? data.get() : null)
+            .build();
+        staged.computeIfAbsent(transactionId, id -> new StagedChanges()).changes.add(change);
+    }
+
+    @EventListener
+    public void onTransactionCompleted(TransactionCompletedEvent event) {
+        StagedChanges changes = staged.remove(event.getTransactionId());
+        if (changes != null && event.isCommitted()) {
+            append(changes.changes);
+        }
+    }
+
+    /**
+     * Drop staged mutations of transactions that were never completed on this node
+     */
+    @Scheduled(fixedDelayString = "${change-log.staging-sweep-interval-ms:5000}")
+    public void evictExpiredStaging() {
+        long now = System.currentTimeMillis();
+        staged.entrySet().removeIf(entry -> now - entry.getValue().stagedAt >= stagingTtlMillis);
+    }
+
+    /**
+     * Read committed changes starting at an offset, waiting for new ones if there are none yet
+     *
+     * @param offset The first offset to return
+     * @param max Maximum number of changes to return
+     * @param waitMillis How long to wait when no change at or after offset exists yet
+     * @return Future completing with the changes (possibly none) and the next offset to poll
+     */
+    public CompletableFuture<ChangeBatchDto> poll(long offset, int max, long waitMillis) {
+        if (!enabled) {
+            throw new CustomException("Change log is disabled (change-log.enabled=false)", 9400);
+        }
+        if (offset < nextOffset || waitMillis <= 0) {
+            return CompletableFuture.completedFuture(read(offset, max));
+        }
+        Waiter waiter = new Waiter(offset);
+        waiters.add(waiter);
+        // An append may have happened between the check and the registration
+        if (offset < nextOffset) {
+            waiter.future.complete(null);
+        }
+        return waiter.future
+            .completeOnTimeout(null, waitMillis, TimeUnit.MILLISECONDS)
+            // Not on the completing thread: that is a committing request or the JDK's timeout thread
+            .thenApplyAsync(ignored -> {
+                waiters.remove(waiter);
+                return read(offset, max);
+            }, readers);
+    }
+
+    /**
+     * Read committed changes starting at an offset
+     *
+     * @param offset The first offset to return
+     * @param max Maximum number of changes to return
+     * @return The changes and the next offset to read
+     */
+    public ChangeBatchDto read(long offset, int max) {
+        long end = nextOffset;
+        List<ChangeEventDto> changes = new ArrayList<>();
+        long position = Math.max(offset, firstOffset());
+        while (position < end && changes.size() < max) {
+            Map.Entry<Long, Path> segment;
+            synchronized (this) {
+                segment = segments.floorEntry(position);
+            }
+            if (segment == null) {
+                break;
+            }
+            int before = changes.size();
+            readSegment(segment.getValue(), segment.getKey(), position, end, max, changes);
+            if (changes.size() == before) {
+                break;
+            }
+            position = changes.get(changes.size() - 1).getOffset() + 1;
+        }
+        return ChangeBatchDto.builder()
+            .changes(changes)
+            .nextOffset(changes.isEmpty() ? Math.max(offset, Math.min(end, firstOffset())) : position)
+            .build();
+    }
+
+    private void append(List<ChangeEventDto> changes) {
+        long end;
+        synchronized (this) {
+            if (!writeChanges(changes)) {
+                return;
+            }
+            end = nextOffset;
+        }
+        // Outside the lock, so that the next commit does not wait for the woken consumers
+        for (Waiter waiter : waiters) {
+            if (waiter.offset < end) {
+                waiter.future.complete(null);
+            }
+        }
+    }
+
+    // Returns false if the changes could not be written
+    private boolean writeChanges(List<ChangeEventDto> changes) {
+        long committedAt = System.currentTimeMillis();
+        try {
+            StringBuilder lines = new StringBuilder();
+            long offset = nextOffset;
+            for (ChangeEventDto change : changes) {
+                if (offset - activeBaseOffset >= segmentSize && lines.length() > 0) {
+                    write(lines);
+                    lines.setLength(0);
+                }
+                if (offset - activeBaseOffset >= segmentSize) {
+                    openSegment(offset);
+                }
+                change.setOffset(offset++);
+                change.setCommittedAt(committedAt);
+                lines.append(objectMapper.writeValueAsString(change)).append('\n');
+            }
+            write(lines);
+            nextOffset = offset;
+        } catch (IOException e) {
+            // The transaction is already committed; the consumer will miss these changes
+            log.error("Failed to append {} committed changes to the change log", changes.size(), e);
+            return false;
+        }
+        return true;
+    }
+
+    private void write(StringBuilder lines) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsync) {
+            channel.force(false);
+        }
+    }
+
+    private void openSegment(long baseOffset) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path file = Paths.get(directory, String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segments.put(baseOffset, file);
+        activeBaseOffset = baseOffset;
+        nextOffset = baseOffset;
+    }
+
+    // Count complete lines and cut off a partially written last line left by a crash
+    private long recoverEntryCount(FileChannel file) throws IOException {
+        long entries = 0;
+        long lastNewline = -1;
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        while (file.read(buffer, position) > 0) {
+            buffer.flip();
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    entries++;
+                    lastNewline = position + i;
+                }
+            }
+            position += buffer.limit();
+            buffer.clear();
+        }
+        file.truncate(lastNewline + 1);
+        file.position(lastNewline + 1);
+        return entries;
+    }
+
+    private void readSegment(Path file, long baseOffset, long from, long end, int max, List<ChangeEventDto> changes) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long offset = baseOffset;
+            String line;
+            while (offset < end && changes.size() < max && (line = reader.readLine()) != null) {
+                if (offset >= from) {
+                    changes.add(objectMapper.readValue(line, ChangeEventDto.class));
+                }
+                offset++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized long firstOffset() {
+        return segments.isEmpty() ? 0 : segments.firstKey();
+    }
+
+    private static long baseOffsetOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static class StagedChanges {
+        private final long stagedAt = System.currentTimeMillis();
+        private final List<ChangeEventDto> changes = new CopyOnWriteArrayList<>();
+    }
+
+    private static class Waiter {
+        private final long offset;
+        private final CompletableFuture<ChangeBatchDto> future = new CompletableFuture<>();
+
+        private Waiter(long offset) {
+            this.offset = offset;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo_multiple_services.service;
 
+import com.example.demo_multiple_services.dto.ColumnarResultDto;
 import com.example.demo_multiple_services.dto.SqlCommandDto;
 import com.example.demo_multiple_services.exception.CustomException;
 import com.example.demo_multiple_services.util.GenericSqlUtil;
@@ -10,6 +11,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -22,6 +24,16 @@ public class GenericSqlService {
 
     // Execute SQL Command (Generic - returns Map)
     public List<Map<String, Object>> executeSQLGeneric(SqlCommandDto sqlCommandDto) throws CustomException {
+        return inSqlTransaction(genericSqlUtil -> genericSqlUtil.executeQuery(sqlCommandDto.getSqlCommand()));
+    }
+
+    // Execute SQL Command (Generic - returns column header + row arrays)
+    public ColumnarResultDto executeSQLColumnar(SqlCommandDto sqlCommandDto) throws CustomException {
+        return inSqlTransaction(genericSqlUtil -> genericSqlUtil.executeQueryColumnar(sqlCommandDto.getSqlCommand()));
+    }
+
+    // Run the work in a transaction of a new SQL session, rolling it back on failure
+    private <T> T inSqlTransaction(Function<GenericSqlUtil, T> work) throws CustomException {
         SqlSession sqlSession = null;
 
         try {
@@ -31,10 +43,10 @@ public class GenericSqlService {
             // Begin a transaction
             sqlSession.begin();
 
-            List<Map<String, Object>> resultList = genericSqlUtil.executeQuery(sqlCommandDto.getSqlCommand());
+            T result = work.apply(genericSqlUtil);
 
             sqlSession.commit();
-            return resultList;
+            return result;
         } catch (Exception e) {
             handleSqlSessionException(e, sqlSession);
             throw new CustomException(e, determineErrorCode(e));
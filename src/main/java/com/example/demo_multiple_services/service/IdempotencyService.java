@@ -0,0 +1,370 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.model.IdempotencyRecord;
+import com.example.demo_multiple_services.repository.IdempotencyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.api.TransactionCrudOperable;
+import com.scalar.db.exception.transaction.CrudException;
+import com.scalar.db.exception.transaction.RollbackException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency Service for BFF write endpoints
+ *
+ * Makes client retries of BFF writes cheap and safe. Requests carrying the same Idempotency-Key
+ * (scoped by endpoint) are handled as follows:
+ * - Completed: the stored ResponseStatusDto is returned without touching the database
+ * - In flight: the retry waits on the same future as the original request instead of starting
+ *   a second distributed transaction
+ * - Failed: nothing is stored, so the next retry runs the operation again
+ * - Different request body: rejected with error code 9900 (422), since replaying the result of
+ *   another request would silently drop the new one
+ *
+ * Completed results are kept in a bounded in-memory LRU, which only deduplicates retries that
+ * reach the same node. When idempotency.store.scalardb.enabled is set the key is also inserted
+ * into the bff.idempotency_key table by the business transaction itself (see stage), so the
+ * record commits or aborts together with the write. Concurrent retries on different nodes then
+ * conflict on that insert; the loser aborts and answers with the winner's stored result.
+ *
+ * Exported metrics: bff.idempotency.replayed, bff.idempotency.coalesced
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    public static final int FINGERPRINT_MISMATCH = 9900;
+
+    /** Reactor Context key carrying the Claim of the reactive request being executed */
+    public static final String CLAIM_CONTEXT_KEY = IdempotencyService.class.getName() + ".claim";
+
+    private static final ResponseStatusDto SUCCESS = ResponseStatusDto.builder().code(0).message("").build();
+
+    DistributedTransactionManager manager;
+
+    @Autowired
+    IdempotencyRepository idempotencyRepository;
+
+    @Autowired
+    Scheduler scalarDbScheduler;
+
+    @Value("${idempotency.store.scalardb.enabled:false}")
+    private boolean scalarDbStoreEnabled;
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, StoredResult> completed;
+
+    private final Map<String, Claim> inFlight = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Claim> currentClaim = new ThreadLocal<>();
+
+    private final Counter replayed;
+    private final Counter coalesced;
+
+    public IdempotencyService(DistributedTransactionManager manager, MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                              @Value("${idempotency.cache.max-size:10000}") int maxSize) {
+        this.manager = manager;
+        this.objectMapper = objectMapper;
+        this.completed = Collections.synchronizedMap(new LinkedHashMap<String, StoredResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResult> eldest) {
+                return size() > maxSize;
+            }
+        });
+        this.replayed = Counter.builder("bff.idempotency.replayed")
+            .description("Requests answered from a stored idempotent result")
+            .register(meterRegistry);
+        this.coalesced = Counter.builder("bff.idempotency.coalesced")
+            .description("Requests that joined an in-flight request with the same idempotency key")
+            .register(meterRegistry);
+    }
+
+    /**
+     * An idempotency key claimed by the request currently executing its action
+     */
+    @Getter
+    public static class Claim {
+        private final String key;
+        private final String fingerprint;
+        private final CompletableFuture<ResponseStatusDto> future = new CompletableFuture<>();
+        private volatile boolean staged;
+
+        Claim(String key, String fingerprint) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private record StoredResult(String fingerprint, ResponseStatusDto result) {
+    }
+
+    /**
+     * Run the action at most once per idempotency key
+     *
+     * @param scope The endpoint the key belongs to (e.g. "POST /place-order-one-pc-bff")
+     * @param idempotencyKey The client supplied key, or null to run the action unconditionally
+     * @param request The request body (or path variable) the key was sent with
+     * @param action The write operation
+     * @return The result of the action, or the stored result of an earlier run with the same key
+     */
+    public ResponseStatusDto execute(String scope, String idempotencyKey, Object request, Supplier<ResponseStatusDto> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return action.get();
+        }
+        String key = scope + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+
+        ResponseStatusDto stored = replay(findCompleted(key), key, fingerprint);
+        if (stored != null) {
+            return stored;
+        }
+
+        Claim claim = new Claim(key, fingerprint);
+        Claim existing = inFlight.putIfAbsent(key, claim);
+        if (existing != null) {
+            checkFingerprint(key, fingerprint, existing.fingerprint);
+            coalesced.increment();
+            return await(existing.future);
+        }
+
+        Claim previous = currentClaim.get();
+        currentClaim.set(claim);
+        try {
+            // The original request may have completed between the lookup and putIfAbsent
+            stored = replay(completed.get(key), key, fingerprint);
+            ResponseStatusDto result = stored != null ? stored : runOnce(claim, action);
+            claim.future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            claim.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (previous != null) {
+                currentClaim.set(previous);
+            } else {
+                currentClaim.remove();
+            }
+            inFlight.remove(key, claim);
+        }
+    }
+
+    /**
+     * Reactive variant of execute. The Claim is passed to the action through the Reactor Context
+     * under CLAIM_CONTEXT_KEY, so that the reactive transaction can stage it before committing.
+     */
+    public Mono<ResponseStatusDto> executeReactive(String scope, String idempotencyKey, Object request,
+                                                   Supplier<Mono<ResponseStatusDto>> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return Mono.defer(action);
+        }
+        String key = scope + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+
+        return lookupReactive(key)
+            .map(stored -> replay(stored, key, fingerprint))
+            .switchIfEmpty(Mono.defer(() -> {
+                Claim claim = new Claim(key, fingerprint);
+                Claim existing = inFlight.putIfAbsent(key, claim);
+                if (existing != null) {
+                    checkFingerprint(key, fingerprint, existing.fingerprint);
+                    coalesced.increment();
+                    return Mono.fromFuture(existing.future);
+                }
+                return Mono.defer(action)
+                    .contextWrite(ctx -> ctx.put(CLAIM_CONTEXT_KEY, claim))
+                    .publishOn(scalarDbScheduler)
+                    .doOnNext(result -> remember(claim, result))
+                    .onErrorResume(RuntimeException.class, e -> Mono.fromCallable(() -> recoverFromDurable(claim, e)))
+                    .doOnNext(claim.future::complete)
+                    .doOnError(claim.future::completeExceptionally)
+                    .doFinally(signal -> inFlight.remove(key, claim));
+            }));
+    }
+
+    /**
+     * Record the idempotency key of the request executing on this thread in the given transaction,
+     * so that it commits or aborts together with the write. A no-op without a claimed key or when
+     * the durable store is disabled.
+     */
+    public void stage(TransactionCrudOperable transaction) throws CrudException {
+        stage(transaction, currentClaim.get(), SUCCESS);
+    }
+
+    public void stage(TransactionCrudOperable transaction, ResponseStatusDto result) throws CrudException {
+        stage(transaction, currentClaim.get(), result);
+    }
+
+    public void stage(TransactionCrudOperable transaction, Claim claim) throws CrudException {
+        stage(transaction, claim, SUCCESS);
+    }
+
+    public void stage(TransactionCrudOperable transaction, Claim claim, ResponseStatusDto result) throws CrudException {
+        if (claim == null || !scalarDbStoreEnabled) {
+            return;
+        }
+        idempotencyRepository.insertIdempotencyRecord(transaction, buildRecord(claim, result));
+        claim.staged = true;
+    }
+
+    private ResponseStatusDto runOnce(Claim claim, Supplier<ResponseStatusDto> action) {
+        ResponseStatusDto result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            return recoverFromDurable(claim, e);
+        }
+        remember(claim, result);
+        return result;
+    }
+
+    // A transaction that lost the insert of the idempotency record to a concurrent retry on
+    // another node aborts; answer with the winner's result once it is committed
+    private ResponseStatusDto recoverFromDurable(Claim claim, RuntimeException e) {
+        if (!scalarDbStoreEnabled) {
+            throw e;
+        }
+        StoredResult stored = findDurable(claim.key);
+        if (stored == null) {
+            throw e;
+        }
+        return replay(stored, claim.key, claim.fingerprint);
+    }
+
+    private ResponseStatusDto replay(StoredResult stored, String key, String fingerprint) {
+        if (stored == null) {
+            return null;
+        }
+        checkFingerprint(key, fingerprint, stored.fingerprint);
+        replayed.increment();
+        return stored.result;
+    }
+
+    private void checkFingerprint(String key, String fingerprint, String storedFingerprint) {
+        // Records written before fingerprints were stored match any request
+        if (storedFingerprint != null && !storedFingerprint.equals(fingerprint)) {
+            throw new CustomException("Idempotency-Key " + key + " was already used with a different request", FINGERPRINT_MISMATCH);
+        }
+    }
+
+    private Mono<StoredResult> lookupReactive(String key) {
+        StoredResult stored = completed.get(key);
+        if (stored != null || !scalarDbStoreEnabled) {
+            return Mono.justOrEmpty(stored);
+        }
+        return Mono.fromCallable(() -> findDurable(key)).subscribeOn(scalarDbScheduler);
+    }
+
+    private StoredResult findCompleted(String key) {
+        StoredResult stored = completed.get(key);
+        if (stored != null || !scalarDbStoreEnabled) {
+            return stored;
+        }
+        return findDurable(key);
+    }
+
+    private StoredResult findDurable(String key) {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            Optional<IdempotencyRecord> record = idempotencyRepository.getIdempotencyRecord(transaction, key);
+            transaction.commit();
+            if (record.isEmpty()) {
+                return null;
+            }
+            ResponseStatusDto result = ResponseStatusDto.builder().code(record.get().getCode()).message(record.get().getMessage()).build();
+            StoredResult stored = new StoredResult(record.get().getFingerprint(), result);
+            completed.put(key, stored);
+            return stored;
+        } catch (Exception e) {
+            // The store is an optimization; fall back to running the operation
+            handleTransactionException(e, transaction);
+            return null;
+        }
+    }
+
+    private void remember(Claim claim, ResponseStatusDto result) {
+        completed.put(claim.key, new StoredResult(claim.fingerprint, result));
+        if (!scalarDbStoreEnabled || claim.staged) {
+            return;
+        }
+
+        // The action did not run a transaction that staged the key (e.g. it failed before
+        // starting one and returned an error status); record it on its own
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            idempotencyRepository.upsertIdempotencyRecord(transaction, buildRecord(claim, result));
+            transaction.commit();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+        }
+    }
+
+    private IdempotencyRecord buildRecord(Claim claim, ResponseStatusDto result) {
+        return IdempotencyRecord.builder()
+            .idempotencyKey(claim.key)
+            .code(result.getCode())
+            .message(result.getMessage())
+            .fingerprint(claim.fingerprint)
+            .createdAt(System.currentTimeMillis())
+            .build();
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] body = request == null ? new byte[0]
+                : request instanceof String s ? s.getBytes(StandardCharsets.UTF_8)
+                : objectMapper.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new CustomException(e, 9400);
+        }
+    }
+
+    private ResponseStatusDto await(CompletableFuture<ResponseStatusDto> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void handleTransactionException(Exception e, DistributedTransaction transaction) {
+        log.error(e.getMessage(), e);
+        if (transaction != null) {
+            try {
+                transaction.rollback();
+            } catch (RollbackException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+        }
+    }
+}
@@ -10,7 +10,6 @@ import com.scalar.db.api.DistributedTransactionManager;
 import com.scalar.db.exception.transaction.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -39,11 +38,6 @@ import java.util.List;
 @Service
 public class OrderOnePCBffService extends BaseOnePCBffService {
 
-    @Value("${server.port:8080}")
-    private String serverPort;
-
-    private static final String BASE_URL = "http://localhost:";
-
     public OrderOnePCBffService(DistributedTransactionManager manager) throws InstantiationException, IllegalAccessException {
         super(manager);
     }
@@ -52,7 +46,7 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
     public ResponseStatusDto insertOrder(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -60,10 +54,10 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/order-one-pc";
+            String url = "/order-one-pc";
             executePost(url, orderDto, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -78,7 +72,7 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
     public ResponseStatusDto upsertOrder(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -86,10 +80,10 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/order-one-pc/upsert";
+            String url = "/order-one-pc/upsert";
             executePost(url, orderDto, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -103,7 +97,7 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
     public OrderDto getOrder(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -111,10 +105,10 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/order-one-pc" + "/" + orderDto.getId();
+            String url = "/order-one-pc" + "/" + orderDto.getId();
             OrderDto result = executeGet(url, headers, new ParameterizedTypeReference<ApiResponse<OrderDto>>() {});
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return result;
@@ -128,7 +122,7 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
     public ResponseStatusDto updateOrder(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -136,10 +130,10 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/order-one-pc";
+            String url = "/order-one-pc";
             executePut(url, orderDto, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -153,7 +147,7 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
     public ResponseStatusDto deleteOrder(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -161,10 +155,10 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/order-one-pc" + "/" + orderDto.getId();
+            String url = "/order-one-pc" + "/" + orderDto.getId();
             executeDelete(url, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -178,7 +172,7 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
     public List<OrderDto> getOrderListAll() throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -186,10 +180,10 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/order-one-pc/scan-all";
+            String url = "/order-one-pc/scan-all";
             List<OrderDto> result = executeGet(url, headers, new ParameterizedTypeReference<ApiResponse<List<OrderDto>>>() {});
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return result;
@@ -203,7 +197,7 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
     public List<OrderDto> getOrderListByPk(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -211,10 +205,10 @@ public class OrderOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/order-one-pc/scan-by-pk" + "/" + orderDto.getId();
+            String url = "/order-one-pc/scan-by-pk" + "/" + orderDto.getId();
             List<OrderDto> result = executeGet(url, headers, new ParameterizedTypeReference<ApiResponse<List<OrderDto>>>() {});
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return result;
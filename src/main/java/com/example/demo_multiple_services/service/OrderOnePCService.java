@@ -2,10 +2,14 @@ package com.example.demo_multiple_services.service;
 
 import com.example.demo_multiple_services.model.Order;
 import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.BatchOperationDto;
+import com.example.demo_multiple_services.dto.BatchResultDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
 import com.example.demo_multiple_services.mapper.OrderMapper;
 import com.example.demo_multiple_services.repository.OrderRepository;
+import com.example.demo_multiple_services.util.RequestDeadline;
 import com.scalar.db.api.DistributedTransaction;
 import com.scalar.db.api.DistributedTransactionManager;
 import com.scalar.db.io.Key;
@@ -24,10 +28,11 @@ import java.util.List;
  *
  * Key differences from standard service:
  * - All methods accept a transaction ID parameter
- * - Uses manager.resume(transactionId) instead of manager.start()
+ * - Uses manager.resume(transactionId) instead of manager.start(), cached per transaction ID
  * - Does NOT commit the transaction (caller is responsible)
  * - No SQL execution methods (pure CRUD operations only)
  * - Transaction lifecycle is managed by the orchestrating BFF service
+ * - Fails fast once the time budget propagated by the BFF (Request-Budget-Ms header) has expired
  */
 @Slf4j
 @Service
@@ -37,6 +42,9 @@ public class OrderOnePCService {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    ResumedTransactionCache resumedTransactionCache;
+
     public OrderOnePCService(DistributedTransactionManager manager) throws InstantiationException, IllegalAccessException {
         this.manager = manager;
     }
@@ -46,7 +54,9 @@ public class OrderOnePCService {
         DistributedTransaction transaction = null;
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             order = orderRepository.insertOrder(transaction, order);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -61,7 +71,9 @@ public class OrderOnePCService {
         DistributedTransaction transaction = null;
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             order = orderRepository.upsertOrder(transaction, order);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -76,7 +88,9 @@ public class OrderOnePCService {
         DistributedTransaction transaction = null;
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             order = orderRepository.getOrder(transaction, order);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return OrderMapper.mapToOrderDto(order);
@@ -91,7 +105,9 @@ public class OrderOnePCService {
         DistributedTransaction transaction = null;
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             order = orderRepository.updateOrder(transaction, order);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -106,7 +122,9 @@ public class OrderOnePCService {
         DistributedTransaction transaction = null;
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             orderRepository.deleteOrder(transaction, order);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -121,7 +139,9 @@ public class OrderOnePCService {
         DistributedTransaction transaction = null;
         List<Order> orderList = new ArrayList<>();
         try {
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             orderList = orderRepository.getOrderListAll(transaction);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return OrderMapper.mapToOrderDtoList(orderList);
@@ -138,7 +158,9 @@ public class OrderOnePCService {
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
             Key partitionKey = order.getPartitionKey();
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             orderList = orderRepository.getOrderListByPk(transaction, partitionKey);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return OrderMapper.mapToOrderDtoList(orderList);
@@ -148,6 +170,57 @@ public class OrderOnePCService {
         }
     }
 
+    // Execute Operations in order with a single resume
+    // Stops at the first failure, which rolls the transaction back like a failed single operation;
+    // the results then report every operation as rolled back, failed or not executed
+    public List<BatchResultDto<OrderDto>> executeBatch(List<BatchOperationDto<OrderDto>> operations, String transactionId) throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+
+        List<BatchResultDto<OrderDto>> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            String operation = operations.get(i).getOperation() != null ? operations.get(i).getOperation().toLowerCase() : "";
+            try {
+                RequestDeadline.check();
+                Order order = OrderMapper.mapToOrder(operations.get(i).getData());
+                OrderDto data = switch (operation) {
+                    case "get" -> OrderMapper.mapToOrderDto(orderRepository.getOrder(transaction, order));
+                    case "insert" -> {
+                        orderRepository.insertOrder(transaction, order);
+                        yield null;
+                    }
+                    case "upsert" -> {
+                        orderRepository.upsertOrder(transaction, order);
+                        yield null;
+                    }
+                    case "update" -> {
+                        orderRepository.updateOrder(transaction, order);
+                        yield null;
+                    }
+                    case "delete" -> {
+                        orderRepository.deleteOrder(transaction, order);
+                        yield null;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown batch operation: " + operation);
+                };
+                results.add(BatchResultDto.success(i, operation, data));
+            } catch (Exception e) {
+                handleTransactionException(e, transaction);
+                results.add(BatchResultDto.failure(i, operation, determineErrorCode(e), e.getMessage()));
+                BatchResultDto.abort(results, operations);
+                break;
+            }
+        }
+        // Note: Do NOT commit - transaction is managed by the caller (BFF)
+        return results;
+    }
+
     private void handleTransactionException(Exception e, DistributedTransaction transaction) {
         log.error(e.getMessage(), e);
         if (transaction != null) {
@@ -156,10 +229,12 @@ public class OrderOnePCService {
             } catch (RollbackException ex) {
                 log.error(ex.getMessage(), ex);
             }
+            resumedTransactionCache.evict(transaction.getId());
         }
     }
 
     private int determineErrorCode(Exception e) {
+        if (e instanceof DeadlineExceededException) return 9600;
         if (e instanceof UnsatisfiedConditionException) return 9100;
         if (e instanceof UnknownTransactionStatusException) return 9200;
         if (e instanceof TransactionException) return 9300;
@@ -0,0 +1,365 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.OrderSagaDto;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.model.Order;
+import com.example.demo_multiple_services.model.OrderSaga;
+import com.example.demo_multiple_services.repository.OrderRepository;
+import com.example.demo_multiple_services.repository.OrderSagaRepository;
+import com.example.demo_multiple_services.repository.ProductRepository;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.exception.transaction.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saga-based asynchronous order placement
+ *
+ * Alternative to PlaceOrderOnePCBffService.placeOrder that does not hold a distributed
+ * transaction open across HTTP hops. The request only records the order as a PENDING saga in
+ * the order_saga table and returns; a bounded worker pool then settles it in separate local
+ * transactions, each of which also advances the saga record:
+ * 1. Reserve stock (PENDING -> STOCK_RESERVED, or FAILED when out of stock)
+ * 2. Record the order (STOCK_RESERVED -> COMPLETED, or COMPENSATING on failure)
+ * 3. Compensate by releasing the stock (COMPENSATING -> COMPENSATED)
+ *
+ * A step that fails with a transaction error (e.g. a conflict) is retried; after
+ * saga.max-attempts a PENDING saga fails and a STOCK_RESERVED saga is compensated. Sagas that
+ * did not fit into the worker queue, or were interrupted by a restart, are picked up again by a
+ * periodic recovery sweep, so the table is the source of truth rather than the queue.
+ *
+ * Exported metrics:
+ * - saga.order.settle: time from acceptance to a final status, tagged by status
+ * - saga.order.queue: sagas waiting for a worker
+ */
+@Slf4j
+@Service
+public class OrderSagaService {
+    DistributedTransactionManager manager;
+
+    @Autowired
+    OrderSagaRepository orderSagaRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    StockEscrowService stockEscrowService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    TransactionTracker transactionTracker;
+
+    @Autowired
+    IdempotencyService idempotencyService;
+
+    @Value("${saga.enabled:false}")
+    private boolean enabled;
+
+    @Value("${saga.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${saga.retry-delay-ms:1000}")
+    private long retryDelayMillis;
+
+    @Value("${saga.recovery-batch-size:100}")
+    private int recoveryBatchSize;
+
+    private final ThreadPoolExecutor workers;
+
+    // Sagas queued or being advanced on this node, so the recovery sweep does not queue them twice
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final MeterRegistry meterRegistry;
+
+    public OrderSagaService(DistributedTransactionManager manager, MeterRegistry meterRegistry,
+                            @Value("${saga.worker-threads:8}") int workerThreads,
+                            @Value("${saga.queue-capacity:10000}") int queueCapacity) {
+        this.manager = manager;
+        this.meterRegistry = meterRegistry;
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity));
+        Gauge.builder("saga.order.queue", workers, executor -> executor.getQueue().size())
+            .description("Order sagas waiting for a worker")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    // Accept an order: record it as a PENDING saga and queue it for settlement
+    public ResponseStatusDto submit(OrderDto orderDto) throws CustomException {
+        if (!enabled) {
+            throw new CustomException("Saga placement is disabled (saga.enabled=false)", 9400);
+        }
+        ResponseStatusDto accepted = ResponseStatusDto.builder().code(0).message("Order accepted: " + orderDto.getId()).build();
+        DistributedTransaction transaction = null;
+        try {
+            long now = System.currentTimeMillis();
+            OrderSaga saga = OrderSaga.builder()
+                .orderId(orderDto.getId())
+                .productId(orderDto.getProductId())
+                .orderQty(orderDto.getOrderQty())
+                .orderDatetime(orderDto.getOrderDatetime() != null ? orderDto.getOrderDatetime() : LocalDateTime.now())
+                .status(OrderSaga.Status.PENDING)
+                .message("")
+                .attempts(0)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+            transaction = manager.start();
+            transactionTracker.track(transaction);
+            orderSagaRepository.insertOrderSaga(transaction, saga);
+            idempotencyService.stage(transaction, accepted);
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+        enqueue(orderDto.getId());
+        return accepted;
+    }
+
+    // Retrieve the saga of an order
+    public OrderSagaDto getOrderSaga(String orderId) throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction);
+            Optional<OrderSaga> saga = orderSagaRepository.getOrderSaga(transaction, orderId);
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            if (saga.isEmpty()) {
+                throw new RuntimeException("No saga found for order " + orderId);
+            }
+            return toDto(saga.get());
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    /**
+     * Re-queue unsettled sagas that no worker on this node is handling
+     *
+     * Only sagas that have not been touched for saga.retry-delay-ms are picked up, which also
+     * spaces out the retries of a failing step.
+     */
+    @Scheduled(fixedDelayString = "${saga.recovery-interval-ms:5000}")
+    public void recoverSagas() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - retryDelayMillis;
+        for (OrderSaga.Status status : List.of(OrderSaga.Status.PENDING, OrderSaga.Status.STOCK_RESERVED, OrderSaga.Status.COMPENSATING)) {
+            DistributedTransaction transaction = null;
+            try {
+                transaction = manager.startReadOnly();
+                List<OrderSaga> sagas = orderSagaRepository.getOrderSagaListByStatus(transaction, status, recoveryBatchSize);
+                transaction.commit();
+                for (OrderSaga saga : sagas) {
+                    if (saga.getUpdatedAt() <= cutoff) {
+                        enqueue(saga.getOrderId());
+                    }
+                }
+            } catch (Exception e) {
+                handleTransactionException(e, transaction);
+            }
+        }
+    }
+
+    private void enqueue(String orderId) {
+        if (!inFlight.add(orderId)) {
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    advance(orderId);
+                } finally {
+                    inFlight.remove(orderId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Left in the table; the recovery sweep queues it once there is room
+            inFlight.remove(orderId);
+            log.warn("Saga queue full, order {} will be settled by the recovery sweep", orderId);
+        }
+    }
+
+    // Run the saga's steps until it settles or a step has to be retried later
+    private void advance(String orderId) {
+        while (true) {
+            OrderSaga.Status status = step(orderId);
+            if (status == null || status.isTerminal()) {
+                return;
+            }
+        }
+    }
+
+    // Run the next step in its own transaction; returns the new status, or null to retry later
+    private OrderSaga.Status step(String orderId) {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            transactionTracker.track(transaction, "saga " + orderId);
+            Optional<OrderSaga> found = orderSagaRepository.getOrderSaga(transaction, orderId);
+            if (found.isEmpty() || found.get().getStatus().isTerminal()) {
+                transaction.commit();
+                transactionTracker.complete(transaction.getId(), true);
+                return null;
+            }
+            OrderSaga saga = found.get();
+            switch (saga.getStatus()) {
+                case PENDING -> {
+                    StockReservationDto reservation = stockEscrowService.isEnabled()
+                        ? stockEscrowService.consume(transaction, saga.getProductId(), saga.getOrderQty())
+                        : productRepository.reserveStock(transaction, saga.getProductId(), saga.getOrderQty());
+                    if (reservation.isReserved()) {
+                        saga.setStatus(OrderSaga.Status.STOCK_RESERVED);
+                    } else {
+                        saga.setStatus(OrderSaga.Status.FAILED);
+                        saga.setMessage("We are out of stock.");
+                    }
+                }
+                case STOCK_RESERVED -> {
+                    orderRepository.insertOrder(transaction, Order.builder()
+                        .id(saga.getOrderId())
+                        .productId(saga.getProductId())
+                        .orderQty(saga.getOrderQty())
+                        .orderDatetime(saga.getOrderDatetime())
+                        .build());
+                    saga.setStatus(OrderSaga.Status.COMPLETED);
+                }
+                case COMPENSATING -> {
+                    productRepository.releaseStock(transaction, saga.getProductId(), saga.getOrderQty());
+                    saga.setStatus(OrderSaga.Status.COMPENSATED);
+                }
+                default -> throw new IllegalStateException("Unexpected saga status " + saga.getStatus());
+            }
+            saga.setAttempts(0);
+            saga.setUpdatedAt(System.currentTimeMillis());
+            orderSagaRepository.updateOrderSaga(transaction, saga);
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            if (saga.getStatus().isTerminal()) {
+                recordSettled(saga);
+            }
+            return saga.getStatus();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            recordFailedAttempt(orderId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Count a failed step, and give up on the forward path once saga.max-attempts is reached
+     *
+     * Errors other than transaction errors (e.g. the product does not exist) are not worth
+     * retrying and give up immediately. Compensation is never given up.
+     */
+    private void recordFailedAttempt(String orderId, Exception cause) {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            transactionTracker.track(transaction, "saga " + orderId);
+            Optional<OrderSaga> found = orderSagaRepository.getOrderSaga(transaction, orderId);
+            if (found.isEmpty() || found.get().getStatus().isTerminal()) {
+                transaction.commit();
+                transactionTracker.complete(transaction.getId(), true);
+                return;
+            }
+            OrderSaga saga = found.get();
+            saga.setAttempts(saga.getAttempts() + 1);
+            saga.setMessage(cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName());
+            saga.setUpdatedAt(System.currentTimeMillis());
+            boolean giveUp = !(cause instanceof TransactionException) || saga.getAttempts() >= maxAttempts;
+            if (giveUp && saga.getStatus() == OrderSaga.Status.PENDING) {
+                saga.setStatus(OrderSaga.Status.FAILED);
+            } else if (giveUp && saga.getStatus() == OrderSaga.Status.STOCK_RESERVED) {
+                saga.setStatus(OrderSaga.Status.COMPENSATING);
+                saga.setAttempts(0);
+            }
+            orderSagaRepository.updateOrderSaga(transaction, saga);
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            if (saga.getStatus().isTerminal()) {
+                recordSettled(saga);
+            } else if (saga.getStatus() == OrderSaga.Status.COMPENSATING) {
+                // Compensate right away instead of waiting for the recovery sweep
+                advance(orderId);
+            }
+        } catch (Exception e) {
+            // The saga stays as it is and is retried by the recovery sweep
+            handleTransactionException(e, transaction);
+        }
+    }
+
+    private void recordSettled(OrderSaga saga) {
+        Timer.builder("saga.order.settle")
+            .description("Time from accepting an order saga to its final status")
+            .tag("status", saga.getStatus().name())
+            .register(meterRegistry)
+            .record(saga.getUpdatedAt() - saga.getCreatedAt(), TimeUnit.MILLISECONDS);
+    }
+
+    private OrderSagaDto toDto(OrderSaga saga) {
+        return OrderSagaDto.builder()
+            .orderId(saga.getOrderId())
+            .productId(saga.getProductId())
+            .orderQty(saga.getOrderQty())
+            .status(saga.getStatus().name())
+            .message(saga.getMessage())
+            .attempts(saga.getAttempts())
+            .createdAt(saga.getCreatedAt())
+            .updatedAt(saga.getUpdatedAt())
+            .build();
+    }
+
+    private void handleTransactionException(Exception e, DistributedTransaction transaction) {
+        log.error(e.getMessage(), e);
+        if (transaction != null) {
+            try {
+                transaction.rollback();
+            } catch (RollbackException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+            transactionTracker.complete(transaction.getId(), false);
+        }
+    }
+
+    private int determineErrorCode(Exception e) {
+        if (e instanceof UnsatisfiedConditionException) return 9100;
+        if (e instanceof UnknownTransactionStatusException) return 9200;
+        if (e instanceof TransactionException) return 9300;
+        if (e instanceof RuntimeException) return 9400;
+        return 9500;
+    }
+}
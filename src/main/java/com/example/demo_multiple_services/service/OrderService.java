@@ -1,13 +1,21 @@
 package com.example.demo_multiple_services.service;
 
 import com.example.demo_multiple_services.model.Order;
+import com.example.demo_multiple_services.model.ProductOrderTotal;
 import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.OrderPageDto;
+import com.example.demo_multiple_services.dto.OrderQtyAggregateDto;
+import com.example.demo_multiple_services.dto.OrderTotalsCheckDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.dto.SqlCommandDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
 import com.example.demo_multiple_services.mapper.OrderMapper;
+import com.example.demo_multiple_services.repository.OrderByTimeRepository;
 import com.example.demo_multiple_services.repository.OrderRepository;
+import com.example.demo_multiple_services.repository.ProductOrderTotalRepository;
 import com.example.demo_multiple_services.util.ExecuteSqlUtil;
+import com.example.demo_multiple_services.util.RequestDeadline;
 import com.scalar.db.api.DistributedTransaction;
 import com.scalar.db.api.DistributedTransactionManager;
 import com.scalar.db.io.Key;
@@ -17,8 +25,11 @@ import com.scalar.db.sql.SqlSession;
 import com.scalar.db.sql.SqlSessionFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +42,29 @@ public class OrderService {
     @Autowired
     OrderRepository orderRepository;
 
+    @Autowired
+    ProductOrderTotalRepository productOrderTotalRepository;
+
+    @Autowired
+    OrderByTimeRepository orderByTimeRepository;
+
+    @Autowired
+    TransactionTracker transactionTracker;
+
+    // Deadline of the full-table aggregation transactions, 0 = none
+    @Value("${aggregates.transaction-timeout-ms:0}")
+    private long aggregateTimeoutMillis;
+
+    @Value("${order-by-time.migration-chunk-size:500}")
+    private int migrationChunkSize;
+
+    // Deadline of the migration's full-table scan transaction, 0 = none
+    @Value("${order-by-time.migration-timeout-ms:0}")
+    private long migrationTimeoutMillis;
+
+    @Autowired
+    ReadCoalescer readCoalescer;
+
     public OrderService(DistributedTransactionManager manager, SqlSessionFactory sqlSessionFactory) throws InstantiationException, IllegalAccessException {
         this.manager = manager;
         this.sqlSessionFactory = sqlSessionFactory;
@@ -82,8 +116,11 @@ public class OrderService {
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             order = orderRepository.insertOrder(transaction, order);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ResponseStatusDto.builder().code(0).message("").build();
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -97,8 +134,11 @@ public class OrderService {
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             order = orderRepository.upsertOrder(transaction, order);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ResponseStatusDto.builder().code(0).message("").build();
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -106,14 +146,22 @@ public class OrderService {
         }
     }
 
-    // Retrieve Record
+    // Retrieve Record (concurrent reads of the same key share one Get)
     public OrderDto getOrder(OrderDto orderDto) throws CustomException {
+        return readCoalescer.execute(Order.NAMESPACE, Order.TABLE, orderDto.getId(), () -> loadOrder(orderDto),
+            dto -> dto.toBuilder().build());
+    }
+
+    private OrderDto loadOrder(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             order = orderRepository.getOrder(transaction, order);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return OrderMapper.mapToOrderDto(order);
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -127,8 +175,11 @@ public class OrderService {
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             order = orderRepository.updateOrder(transaction, order);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ResponseStatusDto.builder().code(0).message("").build();
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -142,8 +193,11 @@ public class OrderService {
         try {
             Order order = OrderMapper.mapToOrder(orderDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             orderRepository.deleteOrder(transaction, order);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ResponseStatusDto.builder().code(0).message("").build();
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -157,8 +211,11 @@ public class OrderService {
         List<Order> orderList = new ArrayList<>();
         try {
             transaction = manager.start();
+            transactionTracker.track(transaction);
             orderList = orderRepository.getOrderListAll(transaction);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return OrderMapper.mapToOrderDtoList(orderList);
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -166,6 +223,116 @@ public class OrderService {
         }
     }
 
+    // Aggregate over the whole table in a read-only transaction, exempt from the request transaction deadline
+    public List<OrderQtyAggregateDto> aggregateQtyByProduct() throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction, transactionTracker.currentOrigin(), aggregateTimeoutMillis);
+            List<OrderQtyAggregateDto> result = orderRepository.aggregateQtyByProduct(transaction);
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            return result;
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Retrieve the maintained order totals of one product (single Get, no scan)
+    public OrderQtyAggregateDto getProductOrderTotal(Integer productId) throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction);
+            ProductOrderTotal total = productOrderTotalRepository.getProductOrderTotal(transaction, productId)
+                .orElse(new ProductOrderTotal(productId, 0L, 0L));
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            return toAggregateDto(total);
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Recompute the product_order_total table from the order table (backfill or repair)
+    public List<OrderQtyAggregateDto> rebuildProductOrderTotals() throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            transactionTracker.track(transaction, transactionTracker.currentOrigin(), aggregateTimeoutMillis);
+            List<OrderQtyAggregateDto> expected = orderRepository.aggregateQtyByProduct(transaction);
+            Map<Integer, OrderQtyAggregateDto> expectedByProduct = new HashMap<>();
+            for (OrderQtyAggregateDto aggregate : expected) {
+                expectedByProduct.put(aggregate.getProductId(), aggregate);
+                productOrderTotalRepository.upsertProductOrderTotal(transaction,
+                    new ProductOrderTotal(aggregate.getProductId(), aggregate.getOrderCount(), aggregate.getTotalQty()));
+            }
+            for (ProductOrderTotal stale : productOrderTotalRepository.getProductOrderTotalListAll(transaction)) {
+                if (!expectedByProduct.containsKey(stale.getProductId())) {
+                    productOrderTotalRepository.deleteProductOrderTotal(transaction, stale.getProductId());
+                }
+            }
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            return expected;
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Compare the product_order_total table with totals computed from the order table
+    public OrderTotalsCheckDto checkProductOrderTotals() throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction, transactionTracker.currentOrigin(), aggregateTimeoutMillis);
+            List<OrderQtyAggregateDto> expected = orderRepository.aggregateQtyByProduct(transaction);
+            Map<Integer, OrderQtyAggregateDto> actualByProduct = new HashMap<>();
+            for (ProductOrderTotal total : productOrderTotalRepository.getProductOrderTotalListAll(transaction)) {
+                actualByProduct.put(total.getProductId(), toAggregateDto(total));
+            }
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+
+            List<OrderTotalsCheckDto.Mismatch> mismatches = new ArrayList<>();
+            for (OrderQtyAggregateDto aggregate : expected) {
+                OrderQtyAggregateDto actual = actualByProduct.remove(aggregate.getProductId());
+                if (!aggregate.equals(actual)) {
+                    mismatches.add(new OrderTotalsCheckDto.Mismatch(aggregate.getProductId(), aggregate, actual));
+                }
+            }
+            // Summary rows left over belong to products without orders; only zero rows are consistent
+            for (OrderQtyAggregateDto actual : actualByProduct.values()) {
+                if (actual.getOrderCount() != 0 || actual.getTotalQty() != 0) {
+                    mismatches.add(new OrderTotalsCheckDto.Mismatch(actual.getProductId(), null, actual));
+                }
+            }
+            return OrderTotalsCheckDto.builder()
+                .consistent(mismatches.isEmpty())
+                .checkedProducts(expected.size())
+                .mismatches(mismatches)
+                .build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    private OrderQtyAggregateDto toAggregateDto(ProductOrderTotal total) {
+        return OrderQtyAggregateDto.builder()
+            .productId(total.getProductId())
+            .orderCount(total.getOrderCount())
+            .totalQty(total.getTotalQty())
+            .build();
+    }
+
     // Retrieve Records by Partition Key
     public List<OrderDto> getOrderListByPk(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
@@ -174,8 +341,54 @@ public class OrderService {
             Order order = OrderMapper.mapToOrder(orderDto);
             Key partitionKey = order.getPartitionKey();
             transaction = manager.start();
+            transactionTracker.track(transaction);
             orderList = orderRepository.getOrderListByPk(transaction, partitionKey);
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            return OrderMapper.mapToOrderDtoList(orderList);
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Retrieve one page of the orders of a product through the product_id index
+    public OrderPageDto getOrderListByProductId(Integer productId, int page, int size) throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            if (page < 0 || size < 1 || size > orderRepository.getScanLimit()) {
+                throw new IllegalArgumentException("page must be >= 0 and size between 1 and " + orderRepository.getScanLimit());
+            }
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction);
+            List<Order> orderList = orderRepository.getOrderListByProductId(transaction, productId, page, size);
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            boolean hasNext = orderList.size() > size;
+            return OrderPageDto.builder()
+                .orders(OrderMapper.mapToOrderDtoList(hasNext ? orderList.subList(0, size) : orderList))
+                .page(page)
+                .size(size)
+                .hasNext(hasNext)
+                .build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Retrieve orders with from <= order_datetime < to from the time-bucketed table
+    public List<OrderDto> getOrderListByTimeRange(LocalDateTime from, LocalDateTime to) throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction);
+            List<Order> orderList = orderByTimeRepository.getOrderListByTimeRange(transaction, from, to, orderRepository.getScanLimit());
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return OrderMapper.mapToOrderDtoList(orderList);
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -183,6 +396,57 @@ public class OrderService {
         }
     }
 
+    // Copy every existing order into the time-bucketed table
+    // Enable order-by-time.dual-write first so that orders written during the copy are not missed;
+    // the copy uses upserts and can be re-run safely
+    public long migrateOrdersByTime() throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction, transactionTracker.currentOrigin(), migrationTimeoutMillis);
+            List<Order> chunk = new ArrayList<>(migrationChunkSize);
+            long[] migrated = {0};
+            orderRepository.forEachOrder(transaction, order -> {
+                chunk.add(order);
+                if (chunk.size() >= migrationChunkSize) {
+                    migrated[0] += writeOrdersByTime(chunk);
+                    chunk.clear();
+                }
+            });
+            migrated[0] += writeOrdersByTime(chunk);
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            log.info("Migrated {} orders to {}", migrated[0], "order_by_time");
+            return migrated[0];
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Write one chunk of the migration in its own transaction
+    private int writeOrdersByTime(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            transactionTracker.track(transaction);
+            for (Order order : orders) {
+                orderByTimeRepository.upsertOrderByTime(transaction, order);
+            }
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            return orders.size();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
     private void handleTransactionException(Exception e, DistributedTransaction transaction) {
         log.error(e.getMessage(), e);
         if (transaction != null) {
@@ -191,6 +455,7 @@ public class OrderService {
             } catch (RollbackException ex) {
                 log.error(ex.getMessage(), ex);
             }
+            transactionTracker.complete(transaction.getId(), false);
         }
     }
 
@@ -206,6 +471,7 @@ public class OrderService {
     }
 
     private int determineErrorCode(Exception e) {
+        if (e instanceof DeadlineExceededException) return 9600;
         if (e instanceof UnsatisfiedConditionException) return 9100;
         if (e instanceof UnknownTransactionStatusException) return 9200;
         if (e instanceof TransactionException) return 9300;
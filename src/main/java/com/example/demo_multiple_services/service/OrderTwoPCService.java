@@ -0,0 +1,213 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.model.Order;
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
+import com.example.demo_multiple_services.mapper.OrderMapper;
+import com.example.demo_multiple_services.repository.OrderRepository;
+import com.example.demo_multiple_services.util.RequestDeadline;
+import com.scalar.db.api.TwoPhaseCommitTransaction;
+import com.scalar.db.api.TwoPhaseCommitTransactionManager;
+import com.scalar.db.exception.transaction.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Two-Phase Commit (2PC) participant Service for Order
+ *
+ * This service participates in two-phase commit transactions coordinated by a BFF layer.
+ * The first call for a transaction ID joins the transaction; later calls resume it.
+ *
+ * Key differences from the 1PC service:
+ * - Uses its own TwoPhaseCommitTransactionManager, so the participant does not need to share a
+ *   transaction manager with the coordinator
+ * - The coordinator drives prepare, validate, commit and rollback through this service
+ * - A failed CRUD operation rolls back only this participant's part of the transaction
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "two-phase-commit.enabled", havingValue = "true")
+public class OrderTwoPCService {
+    TwoPhaseCommitTransactionManager manager;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    public OrderTwoPCService(@Qualifier("orderTwoPhaseCommitManager") TwoPhaseCommitTransactionManager manager) {
+        this.manager = manager;
+    }
+
+    // Create Record
+    public ResponseStatusDto insertOrder(OrderDto orderDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Order order = OrderMapper.mapToOrder(orderDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            orderRepository.insertOrder(transaction, order);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Upsert Record
+    public ResponseStatusDto upsertOrder(OrderDto orderDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Order order = OrderMapper.mapToOrder(orderDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            orderRepository.upsertOrder(transaction, order);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Retrieve Record
+    public OrderDto getOrder(OrderDto orderDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Order order = OrderMapper.mapToOrder(orderDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            order = orderRepository.getOrder(transaction, order);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return OrderMapper.mapToOrderDto(order);
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Update Record
+    public ResponseStatusDto updateOrder(OrderDto orderDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Order order = OrderMapper.mapToOrder(orderDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            orderRepository.updateOrder(transaction, order);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Delete Record
+    public ResponseStatusDto deleteOrder(OrderDto orderDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Order order = OrderMapper.mapToOrder(orderDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            orderRepository.deleteOrder(transaction, order);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Prepare
+    public ResponseStatusDto prepare(String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            RequestDeadline.check();
+            transaction = manager.resume(transactionId);
+            transaction.prepare();
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Validate (only needed with the EXTRA_READ serializable strategy)
+    public ResponseStatusDto validate(String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            RequestDeadline.check();
+            transaction = manager.resume(transactionId);
+            transaction.validate();
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Commit
+    // Not rolled back on failure: the coordinator has already committed, so the records are recovered lazily
+    public ResponseStatusDto commit(String transactionId) throws CustomException {
+        try {
+            TwoPhaseCommitTransaction transaction = manager.resume(transactionId);
+            transaction.commit();
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Rollback
+    // A transaction this participant never joined (or already rolled back) has nothing to undo
+    public ResponseStatusDto rollback(String transactionId) throws CustomException {
+        try {
+            TwoPhaseCommitTransaction transaction = manager.resume(transactionId);
+            transaction.rollback();
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (TransactionNotFoundException e) {
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    private TwoPhaseCommitTransaction joinOrResume(String transactionId) throws TransactionException {
+        try {
+            return manager.resume(transactionId);
+        } catch (TransactionNotFoundException e) {
+            return manager.join(transactionId);
+        }
+    }
+
+    private void handleTransactionException(Exception e, TwoPhaseCommitTransaction transaction) {
+        log.error(e.getMessage(), e);
+        if (transaction != null) {
+            try {
+                transaction.rollback();
+            } catch (RollbackException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private int determineErrorCode(Exception e) {
+        if (e instanceof DeadlineExceededException) return 9600;
+        if (e instanceof UnsatisfiedConditionException) return 9100;
+        if (e instanceof UnknownTransactionStatusException) return 9200;
+        if (e instanceof TransactionException) return 9300;
+        if (e instanceof RuntimeException) return 9400;
+        return 9500;
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.exception.ParticipantUnavailableException;
+import com.example.demo_multiple_services.util.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Per-participant bulkheads and circuit breakers for the BFF services
+ *
+ * Every participant service (product, order) gets its own bounded number of concurrent calls
+ * (participants.bulkhead.max-concurrent-calls, overridable per service with
+ * participants.&lt;service&gt;.bulkhead.max-concurrent-calls) and its own {@link CircuitBreaker}.
+ * A call that finds the bulkhead full or the breaker open is refused immediately with
+ * ParticipantUnavailableException, so the BFF rolls the transaction back instead of parking a
+ * thread on a participant that is already slow. Flows that only touch healthy participants keep
+ * their threads and their throughput.
+ *
+ * Only transport failures, timeouts and 502-504 responses count against a participant; business
+ * errors such as an out-of-stock reservation do not.
+ *
+ * Exported metrics (tagged by service):
+ * - participants.bulkhead.inflight: calls currently holding a bulkhead permit
+ * - participants.circuit.state: 0 closed, 1 half-open, 2 open
+ * - participants.rejected: calls refused, tagged reason=bulkhead or reason=circuit_open
+ */
+@Slf4j
+@Component
+public class ParticipantIsolation {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Isolation> isolations = new ConcurrentHashMap<>();
+
+    @Value("${participants.bulkhead.max-concurrent-calls:50}")
+    private int maxConcurrentCalls;
+
+    @Value("${participants.circuit-breaker.window-size:50}")
+    private int windowSize;
+
+    @Value("${participants.circuit-breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${participants.circuit-breaker.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${participants.circuit-breaker.slow-call-ms:2000}")
+    private long slowCallMillis;
+
+    @Value("${participants.circuit-breaker.slow-call-rate-threshold:0.8}")
+    private double slowCallRateThreshold;
+
+    @Value("${participants.circuit-breaker.open-ms:10000}")
+    private long openMillis;
+
+    public ParticipantIsolation(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Take a permit for a call to the participant service, without waiting
+     *
+     * @param service The participant service (e.g. "product")
+     * @return The permit, to be handed back to {@link #release} exactly once
+     * @throws ParticipantUnavailableException if the breaker is open or the bulkhead is full
+     */
+    public Permit acquire(String service) {
+        Isolation isolation = isolations.computeIfAbsent(service, this::createIsolation);
+        if (!isolation.bulkhead.tryAcquire()) {
+            meterRegistry.counter("participants.rejected", "service", service, "reason", "bulkhead").increment();
+            throw new ParticipantUnavailableException("Too many concurrent calls to " + service);
+        }
+        long generation = isolation.breaker.tryAcquire();
+        if (generation < 0) {
+            isolation.bulkhead.release();
+            meterRegistry.counter("participants.rejected", "service", service, "reason", "circuit_open").increment();
+            throw new ParticipantUnavailableException("Circuit breaker for " + service + " is open");
+        }
+        return new Permit(service, isolation, generation);
+    }
+
+    /**
+     * Hand back a permit and record the outcome of the call
+     *
+     * @param permit The permit from {@link #acquire}, or null for a call made without one
+     * @param latencyNanos The call duration
+     * @param error The error of the call, or null if it succeeded
+     */
+    public void release(Permit permit, long latencyNanos, Throwable error) {
+        if (permit == null) {
+            return;
+        }
+        CircuitBreaker.State before = permit.isolation.breaker.getState();
+        permit.isolation.breaker.onResult(permit.generation, latencyNanos, ParticipantLoadBalancer.isInstanceFailure(error));
+        permit.isolation.bulkhead.release();
+        CircuitBreaker.State after = permit.isolation.breaker.getState();
+        if (before != after) {
+            log.warn("Circuit breaker for participant {} changed from {} to {}", permit.service, before, after);
+        }
+    }
+
+    /**
+     * Hand back a permit whose call was cancelled before it completed, without recording an outcome
+     *
+     * @param permit The permit from {@link #acquire}, or null for a call made without one
+     */
+    public void cancel(Permit permit) {
+        if (permit == null) {
+            return;
+        }
+        permit.isolation.breaker.onCancel(permit.generation);
+        permit.isolation.bulkhead.release();
+    }
+
+    private Isolation createIsolation(String service) {
+        int limit = environment.getProperty("participants." + service + ".bulkhead.max-concurrent-calls",
+            Integer.class, maxConcurrentCalls);
+        Isolation isolation = new Isolation(new Semaphore(limit), new CircuitBreaker(windowSize, minimumCalls,
+            failureRateThreshold, slowCallRateThreshold, slowCallMillis, openMillis));
+        Gauge.builder("participants.bulkhead.inflight", isolation, i -> limit - i.bulkhead.availablePermits())
+            .description("Calls to a participant service currently holding a bulkhead permit")
+            .tag("service", service)
+            .register(meterRegistry);
+        Gauge.builder("participants.circuit.state", isolation, i -> i.breaker.getState().ordinal())
+            .description("Circuit breaker state of a participant service (0 closed, 1 half-open, 2 open)")
+            .tag("service", service)
+            .register(meterRegistry);
+        return isolation;
+    }
+
+    public static class Permit {
+        private final String service;
+        private final Isolation isolation;
+        private final long generation;
+
+        private Permit(String service, Isolation isolation, long generation) {
+            this.service = service;
+            this.isolation = isolation;
+            this.generation = generation;
+        }
+    }
+
+    private static class Isolation {
+        private final Semaphore bulkhead;
+        private final CircuitBreaker breaker;
+
+        private Isolation(Semaphore bulkhead, CircuitBreaker breaker) {
+            this.bulkhead = bulkhead;
+            this.breaker = breaker;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
+import com.example.demo_multiple_services.exception.ParticipantUnavailableException;
+import com.example.demo_multiple_services.util.RequestDeadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.PropertySource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client-side load balancer for the participant services
+ *
+ * The BFF services address participants by relative path (e.g. /product-one-pc/1); the service
+ * is the first path segment up to the first '-' ("product", "order"), and its instances are
+ * listed in participants.instances.&lt;service&gt; as comma-separated base URLs. Without a list,
+ * the service is this application itself (http://localhost:${server.port}). A list without any
+ * URL (e.g. ",") fails startup, or, when it cannot be seen at startup, every call to the service
+ * with ParticipantUnavailableException.
+ *
+ * Instances are picked by power-of-two-choices: two random healthy instances are compared and
+ * the one with the lower EWMA latency, weighted by its in-flight calls, wins. An instance is
+ * ejected for participants.ejection.duration-ms when it fails
+ * participants.ejection.consecutive-failures calls in a row (I/O errors, timeouts, 502-504), or
+ * when its latency exceeds participants.ejection.latency-factor times that of the fastest
+ * healthy peer. Periodic health probes eject instances that stop answering and bring recovered
+ * ones back early. If every instance is ejected, all of them are used.
+ *
+ * Calls made within a distributed transaction stick to one instance per service: the first call
+ * of the transaction picks its instance by power-of-two-choices like any other call, and every
+ * later call of the transaction to that service goes to the same instance, where the transaction
+ * is already resumed. If that instance is ejected, the transaction is moved to a newly picked
+ * instance, which its remaining calls then stick to. The pins are released when the
+ * TransactionTracker reports the transaction completed. Disable with
+ * participants.affinity.enabled=false.
+ *
+ * Exported metrics:
+ * - participants.instance.latency: EWMA latency per instance, in milliseconds
+ * - participants.instance.ejected: 1 while an instance is ejected
+ * - participants.ejections: ejections per service
+ * - participants.affinity: calls per service that followed a transaction's earlier calls, tagged
+ *   result=hit (pinned instance) or result=fallback (pinned instance ejected, transaction moved)
+ */
+@Slf4j
+@Component
+public class ParticipantLoadBalancer {
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    // Samples an instance needs before it can be ejected for latency
+    private static final long MIN_LATENCY_SAMPLES = 20;
+
+    private static final String INSTANCES_PREFIX = "participants.instances.";
+
+    private final Environment environment;
+    private final RestTemplate restTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, List<Instance>> services = new ConcurrentHashMap<>();
+
+    // Instance per service that each open transaction is pinned to, by transaction ID
+    private final Map<String, Map<String, Instance>> pinned = new ConcurrentHashMap<>();
+
+    @Value("${server.port:8080}")
+    private String serverPort;
+
+    @Value("${participants.affinity.enabled:true}")
+    private boolean affinityEnabled;
+
+    @Value("${participants.ejection.consecutive-failures:5}")
+    private int ejectionFailures;
+
+    @Value("${participants.ejection.latency-factor:5.0}")
+    private double ejectionLatencyFactor;
+
+    @Value("${participants.ejection.duration-ms:30000}")
+    private long ejectionMillis;
+
+    @Value("${participants.health.path:/actuator/health}")
+    private String healthPath;
+
+    @Value("${participants.health.timeout-ms:1000}")
+    private long healthTimeoutMillis;
+
+    public ParticipantLoadBalancer(Environment environment, RestTemplate restTemplate, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.restTemplate = restTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Fail startup on a participants.instances.<service> list without any URL
+    @PostConstruct
+    void validateInstances() {
+        if (!(environment instanceof ConfigurableEnvironment configurable)) {
+            return;
+        }
+        for (PropertySource<?> source : configurable.getPropertySources()) {
+            if (source instanceof EnumerablePropertySource<?> enumerable) {
+                for (String property : enumerable.getPropertyNames()) {
+                    if (property.startsWith(INSTANCES_PREFIX)) {
+                        instancesOf(property.substring(INSTANCES_PREFIX.length()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick the instance to send a call for the given relative path to
+     *
+     * @param path The relative participant path, e.g. /product-one-pc/1
+     * @return The chosen instance
+     */
+    public Instance select(String path) {
+        List<Instance> instances = instancesOf(serviceOf(path));
+        if (instances.size() == 1) {
+            return instances.get(0);
+        }
+        long now = System.currentTimeMillis();
+        List<Instance> healthy = new ArrayList<>(instances.size());
+        for (Instance instance : instances) {
+            if (!instance.isEjected(now)) {
+                healthy.add(instance);
+            }
+        }
+        List<Instance> candidates = healthy.isEmpty() ? instances : healthy;
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Instance a = candidates.get(first);
+        Instance b = candidates.get(second);
+        return a.score() <= b.score() ? a : b;
+    }
+
+    /**
+     * Pick the instance to send a call for the given relative path to, keeping all calls with the
+     * same affinity key on the same instance while it is healthy
+     *
+     * @param path The relative participant path, e.g. /product-one-pc/1
+     * @param affinityKey The transaction ID, or null to pick by latency
+     * @return The chosen instance
+     */
+    public Instance select(String path, String affinityKey) {
+        if (!affinityEnabled || affinityKey == null) {
+            return select(path);
+        }
+        String service = serviceOf(path);
+        if (instancesOf(service).size() == 1) {
+            return select(path);
+        }
+        Map<String, Instance> byService = pinned.computeIfAbsent(affinityKey, key -> new ConcurrentHashMap<>());
+        Instance current = byService.get(service);
+        if (current == null) {
+            // First call of the transaction to this service: pick by latency, then stay there
+            Instance chosen = select(path);
+            Instance raced = byService.putIfAbsent(service, chosen);
+            return raced != null ? raced : chosen;
+        }
+        if (!current.isEjected(System.currentTimeMillis())) {
+            meterRegistry.counter("participants.affinity", "service", service, "result", "hit").increment();
+            return current;
+        }
+        Instance moved = select(path);
+        byService.put(service, moved);
+        meterRegistry.counter("participants.affinity", "service", service, "result", "fallback").increment();
+        return moved;
+    }
+
+    @EventListener
+    public void onTransactionCompleted(TransactionCompletedEvent event) {
+        pinned.remove(event.getTransactionId());
+    }
+
+    /**
+     * Find the configured instance an absolute URL points to
+     *
+     * @param url An absolute participant URL
+     * @return The instance, or null if the URL is not under any configured instance
+     */
+    public Instance find(String url) {
+        for (List<Instance> instances : services.values()) {
+            for (Instance instance : instances) {
+                if (url.startsWith(instance.baseUrl + "/")) {
+                    return instance;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Mark a call to the instance as started
+    public void start(Instance instance) {
+        if (instance != null) {
+            instance.inFlight.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record the outcome of a call started with {@link #start(Instance)}
+     *
+     * @param instance The instance called, or null for an unmanaged URL
+     * @param latencyNanos The call duration
+     * @param error The error of the call, or null if it succeeded
+     */
+    public void record(Instance instance, long latencyNanos, Throwable error) {
+        if (instance == null) {
+            return;
+        }
+        instance.inFlight.decrementAndGet();
+        if (isInstanceFailure(error)) {
+            if (instance.consecutiveFailures.incrementAndGet() >= ejectionFailures) {
+                eject(instance, instance.consecutiveFailures.get() + " consecutive failures");
+            }
+            return;
+        }
+        instance.consecutiveFailures.set(0);
+        instance.update(latencyNanos);
+
+        if (instance.samples >= MIN_LATENCY_SAMPLES) {
+            double fastestPeer = Double.MAX_VALUE;
+            long now = System.currentTimeMillis();
+            for (Instance peer : instancesOf(instance.service)) {
+                if (peer != instance && !peer.isEjected(now) && peer.samples >= MIN_LATENCY_SAMPLES) {
+                    fastestPeer = Math.min(fastestPeer, peer.ewmaNanos);
+                }
+            }
+            if (fastestPeer != Double.MAX_VALUE && instance.ewmaNanos > fastestPeer * ejectionLatencyFactor) {
+                eject(instance, String.format("latency %.1f ms vs %.1f ms", instance.ewmaNanos / 1e6, fastestPeer / 1e6));
+            }
+        }
+    }
+
+    // Mark a call started with start(Instance) as abandoned, without recording an outcome
+    public void cancel(Instance instance) {
+        if (instance != null) {
+            instance.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Probe every instance of the services with more than one instance
+     *
+     * A failed probe ejects the instance; a successful probe of an ejected instance brings it back.
+     */
+    @Scheduled(fixedDelayString = "${participants.health.interval-ms:5000}")
+    public void probeInstances() {
+        for (List<Instance> instances : services.values()) {
+            if (instances.size() < 2) {
+                continue;
+            }
+            for (Instance instance : instances) {
+                boolean up;
+                try {
+                    up = RequestDeadline.callWithin(healthTimeoutMillis,
+                        () -> restTemplate.getForEntity(instance.baseUrl + healthPath, String.class)).getStatusCode().is2xxSuccessful();
+                } catch (RuntimeException e) {
+                    up = false;
+                }
+                long now = System.currentTimeMillis();
+                if (!up && !instance.isEjected(now)) {
+                    eject(instance, "health probe failed");
+                } else if (up && instance.isEjected(now)) {
+                    log.info("Participant instance {} is healthy again", instance.baseUrl);
+                    instance.restore();
+                }
+            }
+        }
+    }
+
+    // Errors that say something about the instance rather than about the request or the data
+    public static boolean isInstanceFailure(Throwable error) {
+        if (error == null) {
+            return false;
+        }
+        if (error instanceof ResourceAccessException || error instanceof WebClientRequestException
+                || error instanceof DeadlineExceededException) {
+            return true;
+        }
+        if (error instanceof HttpStatusCodeException statusError) {
+            int status = statusError.getStatusCode().value();
+            return status == 502 || status == 503 || status == 504;
+        }
+        return false;
+    }
+
+    private void eject(Instance instance, String reason) {
+        log.warn("Ejecting participant instance {} for {} ms: {}", instance.baseUrl, ejectionMillis, reason);
+        instance.ejectedUntil = System.currentTimeMillis() + ejectionMillis;
+        instance.consecutiveFailures.set(0);
+        Counter.builder("participants.ejections")
+            .description("Participant instances ejected from load balancing")
+            .tag("service", instance.service)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private List<Instance> instancesOf(String service) {
+        return services.computeIfAbsent(service, name -> {
+            String configured = environment.getProperty(INSTANCES_PREFIX + name, "");
+            List<String> urls = configured.isBlank()
+                ? List.of("http://localhost:" + serverPort)
+                : Arrays.stream(configured.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+            if (urls.isEmpty()) {
+                // Not cached, so that the error is reported on every call instead of an empty list
+                throw new ParticipantUnavailableException("No instances configured for participant service "
+                    + name + ": " + INSTANCES_PREFIX + name + "=" + configured);
+            }
+            List<Instance> instances = new ArrayList<>(urls.size());
+            for (String url : urls) {
+                Instance instance = new Instance(name, url.endsWith("/") ? url.substring(0, url.length() - 1) : url);
+                Gauge.builder("participants.instance.latency", instance, i -> i.ewmaNanos / 1e6)
+                    .description("EWMA latency of calls to a participant instance")
+                    .baseUnit("milliseconds")
+                    .tags("service", name, "instance", instance.baseUrl)
+                    .register(meterRegistry);
+                Gauge.builder("participants.instance.ejected", instance, i -> i.isEjected(System.currentTimeMillis()) ? 1 : 0)
+                    .description("Whether a participant instance is currently ejected")
+                    .tags("service", name, "instance", instance.baseUrl)
+                    .register(meterRegistry);
+                instances.add(instance);
+            }
+            return List.copyOf(instances);
+        });
+    }
+
+    /**
+     * The participant service a URL belongs to
+     *
+     * @param url A relative participant path (e.g. /product-one-pc/1) or an absolute URL
+     * @return The first path segment up to its first '-' (e.g. "product")
+     */
+    public static String serviceOf(String url) {
+        String path = url.startsWith("/") ? url : URI.create(url).getPath();
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = start;
+        while (end < path.length() && path.charAt(end) != '-' && path.charAt(end) != '/') {
+            end++;
+        }
+        return path.substring(start, end);
+    }
+
+    public static class Instance {
+        private final String service;
+        private final String baseUrl;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile double ewmaNanos;
+        private volatile long samples;
+        private volatile long ejectedUntil;
+
+        private Instance(String service, String baseUrl) {
+            this.service = service;
+            this.baseUrl = baseUrl;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        private synchronized void update(long latencyNanos) {
+            ewmaNanos = samples == 0 ? latencyNanos : EWMA_ALPHA * latencyNanos + (1 - EWMA_ALPHA) * ewmaNanos;
+            samples++;
+        }
+
+        private synchronized void restore() {
+            ejectedUntil = 0;
+            consecutiveFailures.set(0);
+            // Start over, so that the old latency does not eject it again right away
+            ewmaNanos = 0;
+            samples = 0;
+        }
+
+        private boolean isEjected(long now) {
+            return ejectedUntil > now;
+        }
+
+        // Expected wait for a new call: latency weighted by the calls already in flight
+        private double score() {
+            return ewmaNanos * (inFlight.get() + 1);
+        }
+    }
+}
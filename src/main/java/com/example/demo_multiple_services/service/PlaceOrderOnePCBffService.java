@@ -4,11 +4,12 @@ import com.example.demo_multiple_services.dto.ApiResponse;
 import com.example.demo_multiple_services.dto.OrderDto;
 import com.example.demo_multiple_services.dto.ProductDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.model.Product;
 import com.scalar.db.api.DistributedTransaction;
 import com.scalar.db.api.DistributedTransactionManager;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -35,23 +36,22 @@ import java.util.List;
 @Service
 public class PlaceOrderOnePCBffService extends BaseOnePCBffService {
 
-    @Value("${server.port:8080}")
-    private String serverPort;
-
-    private static final String BASE_URL = "http://localhost:";
-
     public PlaceOrderOnePCBffService(DistributedTransactionManager manager) throws InstantiationException, IllegalAccessException {
         super(manager);
     }
 
-    // Place Order
+    // Place Order (orders for the same product from this node run one after another)
     public ResponseStatusDto placeOrder(OrderDto orderDto) throws CustomException {
+        return keySerializer.execute(Product.NAMESPACE, Product.TABLE, orderDto.getProductId(), () -> placeOrderInTransaction(orderDto));
+    }
+
+    private ResponseStatusDto placeOrderInTransaction(OrderDto orderDto) throws CustomException {
         DistributedTransaction transaction = null;
         ProductDto productDto = ProductDto.builder()
                 .id(orderDto.getProductId())
                 .build();
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -59,25 +59,20 @@ public class PlaceOrderOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            // Get Inventory Info
-            String urlGet = BASE_URL + serverPort + "/product-one-pc" + "/" + productDto.getId();
-            productDto = executeGet(urlGet, headers, new ParameterizedTypeReference<ApiResponse<ProductDto>>() {});
-
-            // Check Stock
-            if(productDto.getStock() < orderDto.getOrderQty()){
+            // Reserve Stock (conditional decrement in a single participant call)
+            String urlReserve = "/product-one-pc" + "/" + productDto.getId() + "/reserve";
+            StockReservationDto reservation = executePostForData(urlReserve,
+                StockReservationDto.builder().quantity(orderDto.getOrderQty()).build(), headers,
+                new ParameterizedTypeReference<ApiResponse<StockReservationDto>>() {});
+            if (reservation == null || !reservation.isReserved()) {
                 throw new RuntimeException("We are out of stock.");
             }
-            // Set new stock value
-            productDto.setStock(productDto.getStock() - orderDto.getOrderQty());
-
-            String urlPut = BASE_URL + serverPort + "/product-one-pc";
-            executePut(urlPut, productDto, headers);
 
             // Insert Order
-            String url = BASE_URL + serverPort + "/order-one-pc";
+            String url = "/order-one-pc";
             executePost(url, orderDto, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
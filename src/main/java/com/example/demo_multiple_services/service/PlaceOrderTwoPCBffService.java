@@ -0,0 +1,78 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.model.Product;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.api.TwoPhaseCommitTransaction;
+import com.scalar.db.api.TwoPhaseCommitTransactionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Two-Phase Commit BFF Service for placing an Order
+ *
+ * Same orchestration as PlaceOrderOnePCBffService (reserve stock, insert order), but the product
+ * and order participants join a two-phase commit transaction with their own transaction managers,
+ * and the BFF drives prepare and commit on both concurrently.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "two-phase-commit.enabled", havingValue = "true")
+public class PlaceOrderTwoPCBffService extends BaseTwoPCBffService {
+
+    public PlaceOrderTwoPCBffService(DistributedTransactionManager manager,
+                                     @Qualifier("twoPhaseCommitCoordinatorManager") TwoPhaseCommitTransactionManager coordinatorManager) {
+        super(manager, coordinatorManager);
+    }
+
+    // Place Order (orders for the same product from this node run one after another)
+    public ResponseStatusDto placeOrder(OrderDto orderDto) throws CustomException {
+        return keySerializer.execute(Product.NAMESPACE, Product.TABLE, orderDto.getProductId(), () -> placeOrderInTransaction(orderDto));
+    }
+
+    private ResponseStatusDto placeOrderInTransaction(OrderDto orderDto) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        String productUrl = pinParticipant("/product-two-pc");
+        String orderUrl = pinParticipant("/order-two-pc");
+        List<String> participants = List.of(productUrl, orderUrl);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        try {
+            transaction = startTwoPhaseTransaction();
+            String transactionId = transaction.getId();
+            log.info("Starting two-phase commit transaction: {}", transactionId);
+            headers.set("ScalarDB-Transaction-ID", transactionId);
+
+            // Reserve Stock (conditional decrement in a single participant call)
+            StockReservationDto reservation = executePostForData(productUrl + "/" + orderDto.getProductId() + "/reserve",
+                StockReservationDto.builder().quantity(orderDto.getOrderQty()).build(), headers,
+                new ParameterizedTypeReference<ApiResponse<StockReservationDto>>() {});
+            if (reservation == null || !reservation.isReserved()) {
+                throw new RuntimeException("We are out of stock.");
+            }
+
+            // Insert Order
+            executePost(orderUrl, orderDto, headers);
+
+            commitAll(transaction, participants, headers);
+            log.info("Two-phase commit transaction committed: {}", transactionId);
+
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            log.error("Transaction failed: {}", e.getMessage(), e);
+            rollbackAll(transaction, participants, headers);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.demo_multiple_services.service;
 import com.example.demo_multiple_services.model.Product;
 import com.example.demo_multiple_services.dto.ProductDto;
 import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.BatchResultDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.exception.CustomException;
 import com.scalar.db.api.DistributedTransaction;
@@ -10,7 +11,6 @@ import com.scalar.db.api.DistributedTransactionManager;
 import com.scalar.db.exception.transaction.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -39,11 +39,6 @@ import java.util.List;
 @Service
 public class ProductOnePCBffService extends BaseOnePCBffService {
 
-    @Value("${server.port:8080}")
-    private String serverPort;
-
-    private static final String BASE_URL = "http://localhost:";
-
     public ProductOnePCBffService(DistributedTransactionManager manager) throws InstantiationException, IllegalAccessException {
         super(manager);
     }
@@ -52,7 +47,7 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
     public ResponseStatusDto insertProduct(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -60,10 +55,10 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/product-one-pc";
+            String url = "/product-one-pc";
             executePost(url, productDto, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -78,7 +73,7 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
     public ResponseStatusDto upsertProduct(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -86,10 +81,40 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/product-one-pc/upsert";
+            String url = "/product-one-pc/upsert";
             executePost(url, productDto, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
+            log.info("Distributed transaction committed: {}", transactionId);
+
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Upsert Records (all in one transaction, sent to the participant as a single batch call)
+    public ResponseStatusDto upsertProducts(List<ProductDto> productDtos) throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = startTransaction();
+            String transactionId = transaction.getId();
+            log.info("Starting distributed transaction: {}", transactionId);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.set("ScalarDB-Transaction-ID", transactionId);
+
+            String url = "/product-one-pc/batch";
+            BatchBuilder<ProductDto> batch = batch(url, headers,
+                new ParameterizedTypeReference<ApiResponse<List<BatchResultDto<ProductDto>>>>() {});
+            for (ProductDto productDto : productDtos) {
+                batch.upsert(productDto);
+            }
+            batch.execute();
+
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -103,7 +128,7 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
     public ProductDto getProduct(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -111,10 +136,10 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/product-one-pc" + "/" + productDto.getId();
+            String url = "/product-one-pc" + "/" + productDto.getId();
             ProductDto result = executeGet(url, headers, new ParameterizedTypeReference<ApiResponse<ProductDto>>() {});
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return result;
@@ -124,11 +149,15 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
         }
     }
 
-    // Update Record
+    // Update Record (updates of the same product from this node run one after another)
     public ResponseStatusDto updateProduct(ProductDto productDto) throws CustomException {
+        return keySerializer.execute(Product.NAMESPACE, Product.TABLE, productDto.getId(), () -> storeProductUpdate(productDto));
+    }
+
+    private ResponseStatusDto storeProductUpdate(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -136,10 +165,10 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/product-one-pc";
+            String url = "/product-one-pc";
             executePut(url, productDto, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -153,7 +182,7 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
     public ResponseStatusDto deleteProduct(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -161,10 +190,10 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/product-one-pc" + "/" + productDto.getId();
+            String url = "/product-one-pc" + "/" + productDto.getId();
             executeDelete(url, headers);
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -178,7 +207,7 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
     public List<ProductDto> getProductListAll() throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -186,10 +215,10 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/product-one-pc/scan-all";
+            String url = "/product-one-pc/scan-all";
             List<ProductDto> result = executeGet(url, headers, new ParameterizedTypeReference<ApiResponse<List<ProductDto>>>() {});
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return result;
@@ -203,7 +232,7 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
     public List<ProductDto> getProductListByPk(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
-            transaction = manager.start();
+            transaction = startTransaction();
             String transactionId = transaction.getId();
             log.info("Starting distributed transaction: {}", transactionId);
 
@@ -211,10 +240,10 @@ public class ProductOnePCBffService extends BaseOnePCBffService {
             headers.setContentType(MediaType.APPLICATION_JSON);
             headers.set("ScalarDB-Transaction-ID", transactionId);
 
-            String url = BASE_URL + serverPort + "/product-one-pc/scan-by-pk" + "/" + productDto.getId();
+            String url = "/product-one-pc/scan-by-pk" + "/" + productDto.getId();
             List<ProductDto> result = executeGet(url, headers, new ParameterizedTypeReference<ApiResponse<List<ProductDto>>>() {});
 
-            transaction.commit();
+            commitTransaction(transaction);
             log.info("Distributed transaction committed: {}", transactionId);
 
             return result;
@@ -2,10 +2,15 @@ package com.example.demo_multiple_services.service;
 
 import com.example.demo_multiple_services.model.Product;
 import com.example.demo_multiple_services.dto.ProductDto;
+import com.example.demo_multiple_services.dto.BatchOperationDto;
+import com.example.demo_multiple_services.dto.BatchResultDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
 import com.example.demo_multiple_services.mapper.ProductMapper;
 import com.example.demo_multiple_services.repository.ProductRepository;
+import com.example.demo_multiple_services.util.RequestDeadline;
 import com.scalar.db.api.DistributedTransaction;
 import com.scalar.db.api.DistributedTransactionManager;
 import com.scalar.db.io.Key;
@@ -24,10 +29,11 @@ import java.util.List;
  *
  * Key differences from standard service:
  * - All methods accept a transaction ID parameter
- * - Uses manager.resume(transactionId) instead of manager.start()
+ * - Uses manager.resume(transactionId) instead of manager.start(), cached per transaction ID
  * - Does NOT commit the transaction (caller is responsible)
  * - No SQL execution methods (pure CRUD operations only)
  * - Transaction lifecycle is managed by the orchestrating BFF service
+ * - Fails fast once the time budget propagated by the BFF (Request-Budget-Ms header) has expired
  */
 @Slf4j
 @Service
@@ -37,6 +43,12 @@ public class ProductOnePCService {
     @Autowired
     ProductRepository productRepository;
 
+    @Autowired
+    ResumedTransactionCache resumedTransactionCache;
+
+    @Autowired
+    StockEscrowService stockEscrowService;
+
     public ProductOnePCService(DistributedTransactionManager manager) throws InstantiationException, IllegalAccessException {
         this.manager = manager;
     }
@@ -46,7 +58,9 @@ public class ProductOnePCService {
         DistributedTransaction transaction = null;
         try {
             Product product = ProductMapper.mapToProduct(productDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             product = productRepository.insertProduct(transaction, product);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -61,7 +75,9 @@ public class ProductOnePCService {
         DistributedTransaction transaction = null;
         try {
             Product product = ProductMapper.mapToProduct(productDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             product = productRepository.upsertProduct(transaction, product);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -76,7 +92,9 @@ public class ProductOnePCService {
         DistributedTransaction transaction = null;
         try {
             Product product = ProductMapper.mapToProduct(productDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             product = productRepository.getProduct(transaction, product);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ProductMapper.mapToProductDto(product);
@@ -91,7 +109,9 @@ public class ProductOnePCService {
         DistributedTransaction transaction = null;
         try {
             Product product = ProductMapper.mapToProduct(productDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             product = productRepository.updateProduct(transaction, product);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -106,7 +126,9 @@ public class ProductOnePCService {
         DistributedTransaction transaction = null;
         try {
             Product product = ProductMapper.mapToProduct(productDto);
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             productRepository.deleteProduct(transaction, product);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ResponseStatusDto.builder().code(0).message("").build();
@@ -116,12 +138,36 @@ public class ProductOnePCService {
         }
     }
 
+    // Reserve Stock (decrement if available; out of stock is reported, not thrown)
+    public StockReservationDto reserveStock(Integer productId, int quantity, String transactionId) throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("quantity must be positive");
+            }
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
+            // Taken from this node's escrow first, then from the product row and other nodes' escrow
+            StockReservationDto result = stockEscrowService.isEnabled()
+                ? stockEscrowService.consume(transaction, productId, quantity)
+                : productRepository.reserveStock(transaction, productId, quantity);
+            // Note: Do NOT commit - transaction is managed by the caller (BFF)
+            return result;
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
     // Retrieve All Records
     public List<ProductDto> getProductListAll(String transactionId) throws CustomException {
         DistributedTransaction transaction = null;
         List<Product> productList = new ArrayList<>();
         try {
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             productList = productRepository.getProductListAll(transaction);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ProductMapper.mapToProductDtoList(productList);
@@ -138,7 +184,9 @@ public class ProductOnePCService {
         try {
             Product product = ProductMapper.mapToProduct(productDto);
             Key partitionKey = product.getPartitionKey();
-            transaction = manager.resume(transactionId);
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+            RequestDeadline.check();
             productList = productRepository.getProductListByPk(transaction, partitionKey);
             // Note: Do NOT commit - transaction is managed by the caller (BFF)
             return ProductMapper.mapToProductDtoList(productList);
@@ -148,6 +196,57 @@ public class ProductOnePCService {
         }
     }
 
+    // Execute Operations in order with a single resume
+    // Stops at the first failure, which rolls the transaction back like a failed single operation;
+    // the results then report every operation as rolled back, failed or not executed
+    public List<BatchResultDto<ProductDto>> executeBatch(List<BatchOperationDto<ProductDto>> operations, String transactionId) throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            RequestDeadline.check();
+            transaction = resumedTransactionCache.resume(manager, transactionId);
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+
+        List<BatchResultDto<ProductDto>> results = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            String operation = operations.get(i).getOperation() != null ? operations.get(i).getOperation().toLowerCase() : "";
+            try {
+                RequestDeadline.check();
+                Product product = ProductMapper.mapToProduct(operations.get(i).getData());
+                ProductDto data = switch (operation) {
+                    case "get" -> ProductMapper.mapToProductDto(productRepository.getProduct(transaction, product));
+                    case "insert" -> {
+                        productRepository.insertProduct(transaction, product);
+                        yield null;
+                    }
+                    case "upsert" -> {
+                        productRepository.upsertProduct(transaction, product);
+                        yield null;
+                    }
+                    case "update" -> {
+                        productRepository.updateProduct(transaction, product);
+                        yield null;
+                    }
+                    case "delete" -> {
+                        productRepository.deleteProduct(transaction, product);
+                        yield null;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown batch operation: " + operation);
+                };
+                results.add(BatchResultDto.success(i, operation, data));
+            } catch (Exception e) {
+                handleTransactionException(e, transaction);
+                results.add(BatchResultDto.failure(i, operation, determineErrorCode(e), e.getMessage()));
+                BatchResultDto.abort(results, operations);
+                break;
+            }
+        }
+        // Note: Do NOT commit - transaction is managed by the caller (BFF)
+        return results;
+    }
+
     private void handleTransactionException(Exception e, DistributedTransaction transaction) {
         log.error(e.getMessage(), e);
         if (transaction != null) {
@@ -156,10 +255,12 @@ public class ProductOnePCService {
             } catch (RollbackException ex) {
                 log.error(ex.getMessage(), ex);
             }
+            resumedTransactionCache.evict(transaction.getId());
         }
     }
 
     private int determineErrorCode(Exception e) {
+        if (e instanceof DeadlineExceededException) return 9600;
         if (e instanceof UnsatisfiedConditionException) return 9100;
         if (e instanceof UnknownTransactionStatusException) return 9200;
         if (e instanceof TransactionException) return 9300;
@@ -2,12 +2,15 @@ package com.example.demo_multiple_services.service;
 
 import com.example.demo_multiple_services.model.Product;
 import com.example.demo_multiple_services.dto.ProductDto;
+import com.example.demo_multiple_services.dto.StockAggregateDto;
 import com.example.demo_multiple_services.dto.ResponseStatusDto;
 import com.example.demo_multiple_services.dto.SqlCommandDto;
 import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
 import com.example.demo_multiple_services.mapper.ProductMapper;
 import com.example.demo_multiple_services.repository.ProductRepository;
 import com.example.demo_multiple_services.util.ExecuteSqlUtil;
+import com.example.demo_multiple_services.util.RequestDeadline;
 import com.scalar.db.api.DistributedTransaction;
 import com.scalar.db.api.DistributedTransactionManager;
 import com.scalar.db.io.Key;
@@ -17,6 +20,7 @@ import com.scalar.db.sql.SqlSession;
 import com.scalar.db.sql.SqlSessionFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +35,19 @@ public class ProductService {
     @Autowired
     ProductRepository productRepository;
 
+    @Autowired
+    TransactionTracker transactionTracker;
+
+    @Autowired
+    ReadCoalescer readCoalescer;
+
+    @Autowired
+    KeySerializer keySerializer;
+
+    // Deadline of the full-table aggregation transactions, 0 = none
+    @Value("${aggregates.transaction-timeout-ms:0}")
+    private long aggregateTimeoutMillis;
+
     public ProductService(DistributedTransactionManager manager, SqlSessionFactory sqlSessionFactory) throws InstantiationException, IllegalAccessException {
         this.manager = manager;
         this.sqlSessionFactory = sqlSessionFactory;
@@ -82,8 +99,11 @@ public class ProductService {
         try {
             Product product = ProductMapper.mapToProduct(productDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             product = productRepository.insertProduct(transaction, product);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ResponseStatusDto.builder().code(0).message("").build();
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -97,8 +117,11 @@ public class ProductService {
         try {
             Product product = ProductMapper.mapToProduct(productDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             product = productRepository.upsertProduct(transaction, product);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ResponseStatusDto.builder().code(0).message("").build();
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -106,14 +129,22 @@ public class ProductService {
         }
     }
 
-    // Retrieve Record
+    // Retrieve Record (concurrent reads of the same key share one Get)
     public ProductDto getProduct(ProductDto productDto) throws CustomException {
+        return readCoalescer.execute(Product.NAMESPACE, Product.TABLE, productDto.getId(), () -> loadProduct(productDto),
+            dto -> dto.toBuilder().build());
+    }
+
+    private ProductDto loadProduct(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
             Product product = ProductMapper.mapToProduct(productDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             product = productRepository.getProduct(transaction, product);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ProductMapper.mapToProductDto(product);
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -121,14 +152,21 @@ public class ProductService {
         }
     }
 
-    // Update Record
+    // Update Record (updates of the same product from this node run one after another)
     public ResponseStatusDto updateProduct(ProductDto productDto) throws CustomException {
+        return keySerializer.execute(Product.NAMESPACE, Product.TABLE, productDto.getId(), () -> storeProductUpdate(productDto));
+    }
+
+    private ResponseStatusDto storeProductUpdate(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
         try {
             Product product = ProductMapper.mapToProduct(productDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             product = productRepository.updateProduct(transaction, product);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ResponseStatusDto.builder().code(0).message("").build();
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -142,8 +180,11 @@ public class ProductService {
         try {
             Product product = ProductMapper.mapToProduct(productDto);
             transaction = manager.start();
+            transactionTracker.track(transaction);
             productRepository.deleteProduct(transaction, product);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ResponseStatusDto.builder().code(0).message("").build();
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -157,8 +198,11 @@ public class ProductService {
         List<Product> productList = new ArrayList<>();
         try {
             transaction = manager.start();
+            transactionTracker.track(transaction);
             productList = productRepository.getProductListAll(transaction);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ProductMapper.mapToProductDtoList(productList);
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -166,6 +210,23 @@ public class ProductService {
         }
     }
 
+    // Aggregate over the whole table in a read-only transaction, exempt from the request transaction deadline
+    public StockAggregateDto aggregateStock() throws CustomException {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.startReadOnly();
+            transactionTracker.track(transaction, transactionTracker.currentOrigin(), aggregateTimeoutMillis);
+            StockAggregateDto result = productRepository.aggregateStock(transaction);
+            RequestDeadline.check();
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            return result;
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
     // Retrieve Records by Partition Key
     public List<ProductDto> getProductListByPk(ProductDto productDto) throws CustomException {
         DistributedTransaction transaction = null;
@@ -174,8 +235,11 @@ public class ProductService {
             Product product = ProductMapper.mapToProduct(productDto);
             Key partitionKey = product.getPartitionKey();
             transaction = manager.start();
+            transactionTracker.track(transaction);
             productList = productRepository.getProductListByPk(transaction, partitionKey);
+            RequestDeadline.check();
             transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
             return ProductMapper.mapToProductDtoList(productList);
         } catch (Exception e) {
             handleTransactionException(e, transaction);
@@ -191,6 +255,7 @@ public class ProductService {
             } catch (RollbackException ex) {
                 log.error(ex.getMessage(), ex);
             }
+            transactionTracker.complete(transaction.getId(), false);
         }
     }
 
@@ -206,6 +271,7 @@ public class ProductService {
     }
 
     private int determineErrorCode(Exception e) {
+        if (e instanceof DeadlineExceededException) return 9600;
         if (e instanceof UnsatisfiedConditionException) return 9100;
         if (e instanceof UnknownTransactionStatusException) return 9200;
         if (e instanceof TransactionException) return 9300;
@@ -0,0 +1,239 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.model.Product;
+import com.example.demo_multiple_services.dto.ProductDto;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
+import com.example.demo_multiple_services.mapper.ProductMapper;
+import com.example.demo_multiple_services.repository.ProductRepository;
+import com.example.demo_multiple_services.util.RequestDeadline;
+import com.scalar.db.api.TwoPhaseCommitTransaction;
+import com.scalar.db.api.TwoPhaseCommitTransactionManager;
+import com.scalar.db.exception.transaction.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Two-Phase Commit (2PC) participant Service for Product
+ *
+ * This service participates in two-phase commit transactions coordinated by a BFF layer.
+ * The first call for a transaction ID joins the transaction; later calls resume it.
+ *
+ * Key differences from the 1PC service:
+ * - Uses its own TwoPhaseCommitTransactionManager, so the participant does not need to share a
+ *   transaction manager with the coordinator
+ * - The coordinator drives prepare, validate, commit and rollback through this service
+ * - A failed CRUD operation rolls back only this participant's part of the transaction
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "two-phase-commit.enabled", havingValue = "true")
+public class ProductTwoPCService {
+    TwoPhaseCommitTransactionManager manager;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    StockEscrowService stockEscrowService;
+
+    public ProductTwoPCService(@Qualifier("productTwoPhaseCommitManager") TwoPhaseCommitTransactionManager manager) {
+        this.manager = manager;
+    }
+
+    // Create Record
+    public ResponseStatusDto insertProduct(ProductDto productDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Product product = ProductMapper.mapToProduct(productDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            productRepository.insertProduct(transaction, product);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Upsert Record
+    public ResponseStatusDto upsertProduct(ProductDto productDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Product product = ProductMapper.mapToProduct(productDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            productRepository.upsertProduct(transaction, product);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Retrieve Record
+    public ProductDto getProduct(ProductDto productDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Product product = ProductMapper.mapToProduct(productDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            product = productRepository.getProduct(transaction, product);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ProductMapper.mapToProductDto(product);
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Update Record
+    public ResponseStatusDto updateProduct(ProductDto productDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Product product = ProductMapper.mapToProduct(productDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            productRepository.updateProduct(transaction, product);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Delete Record
+    public ResponseStatusDto deleteProduct(ProductDto productDto, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            Product product = ProductMapper.mapToProduct(productDto);
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            productRepository.deleteProduct(transaction, product);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Reserve Stock (decrement if available; out of stock is reported, not thrown)
+    public StockReservationDto reserveStock(Integer productId, int quantity, String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            if (quantity <= 0) {
+                throw new IllegalArgumentException("quantity must be positive");
+            }
+            RequestDeadline.check();
+            transaction = joinOrResume(transactionId);
+            RequestDeadline.check();
+            // Taken from this node's escrow first, then from the product row and other nodes' escrow
+            StockReservationDto result = stockEscrowService.isEnabled()
+                ? stockEscrowService.consume(transaction, productId, quantity)
+                : productRepository.reserveStock(transaction, productId, quantity);
+            // Note: Do NOT commit - prepare and commit are driven by the coordinator (BFF)
+            return result;
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Prepare
+    public ResponseStatusDto prepare(String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            RequestDeadline.check();
+            transaction = manager.resume(transactionId);
+            transaction.prepare();
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Validate (only needed with the EXTRA_READ serializable strategy)
+    public ResponseStatusDto validate(String transactionId) throws CustomException {
+        TwoPhaseCommitTransaction transaction = null;
+        try {
+            RequestDeadline.check();
+            transaction = manager.resume(transactionId);
+            transaction.validate();
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Commit
+    // Not rolled back on failure: the coordinator has already committed, so the records are recovered lazily
+    public ResponseStatusDto commit(String transactionId) throws CustomException {
+        try {
+            TwoPhaseCommitTransaction transaction = manager.resume(transactionId);
+            transaction.commit();
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    // Rollback
+    // A transaction this participant never joined (or already rolled back) has nothing to undo
+    public ResponseStatusDto rollback(String transactionId) throws CustomException {
+        try {
+            TwoPhaseCommitTransaction transaction = manager.resume(transactionId);
+            transaction.rollback();
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (TransactionNotFoundException e) {
+            return ResponseStatusDto.builder().code(0).message("").build();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new CustomException(e, determineErrorCode(e));
+        }
+    }
+
+    private TwoPhaseCommitTransaction joinOrResume(String transactionId) throws TransactionException {
+        try {
+            return manager.resume(transactionId);
+        } catch (TransactionNotFoundException e) {
+            return manager.join(transactionId);
+        }
+    }
+
+    private void handleTransactionException(Exception e, TwoPhaseCommitTransaction transaction) {
+        log.error(e.getMessage(), e);
+        if (transaction != null) {
+            try {
+                transaction.rollback();
+            } catch (RollbackException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private int determineErrorCode(Exception e) {
+        if (e instanceof DeadlineExceededException) return 9600;
+        if (e instanceof UnsatisfiedConditionException) return 9100;
+        if (e instanceof UnknownTransactionStatusException) return 9200;
+        if (e instanceof TransactionException) return 9300;
+        if (e instanceof RuntimeException) return 9400;
+        return 9500;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.scalar.db.api.DistributedTransactionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive One-Phase Commit BFF Service for Order
+ *
+ * Non-blocking variant of {@link OrderOnePCBffService}. Each operation is a Mono pipeline that
+ * starts a distributed transaction, calls the 1PC endpoints with the propagated transaction ID
+ * through WebClient, and commits or rolls back once the participant calls complete.
+ */
+@Slf4j
+@Service
+public class ReactiveOrderOnePCBffService extends BaseReactiveOnePCBffService {
+
+    public ReactiveOrderOnePCBffService(DistributedTransactionManager manager) {
+        super(manager);
+    }
+
+    // Create Record
+    public Mono<ResponseStatusDto> insertOrder(OrderDto orderDto) {
+        String url = "/order-one-pc";
+        return inTransaction(transactionId -> executePost(url, orderDto, transactionId)
+            .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+
+    // Upsert Record
+    public Mono<ResponseStatusDto> upsertOrder(OrderDto orderDto) {
+        String url = "/order-one-pc/upsert";
+        return inTransaction(transactionId -> executePost(url, orderDto, transactionId)
+            .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+
+    // Retrieve Record
+    public Mono<OrderDto> getOrder(OrderDto orderDto) {
+        String url = "/order-one-pc" + "/" + orderDto.getId();
+        return inTransaction(transactionId ->
+            executeGet(url, transactionId, new ParameterizedTypeReference<ApiResponse<OrderDto>>() {}));
+    }
+
+    // Update Record
+    public Mono<ResponseStatusDto> updateOrder(OrderDto orderDto) {
+        String url = "/order-one-pc";
+        return inTransaction(transactionId -> executePut(url, orderDto, transactionId)
+            .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+
+    // Delete Record
+    public Mono<ResponseStatusDto> deleteOrder(OrderDto orderDto) {
+        String url = "/order-one-pc" + "/" + orderDto.getId();
+        return inTransaction(transactionId -> executeDelete(url, transactionId)
+            .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+
+    // Retrieve All Records
+    public Mono<List<OrderDto>> getOrderListAll() {
+        String url = "/order-one-pc/scan-all";
+        return inTransaction(transactionId ->
+            executeGet(url, transactionId, new ParameterizedTypeReference<ApiResponse<List<OrderDto>>>() {}));
+    }
+
+    // Retrieve Records by Partition Key
+    public Mono<List<OrderDto>> getOrderListByPk(OrderDto orderDto) {
+        String url = "/order-one-pc/scan-by-pk" + "/" + orderDto.getId();
+        return inTransaction(transactionId ->
+            executeGet(url, transactionId, new ParameterizedTypeReference<ApiResponse<List<OrderDto>>>() {}));
+    }
+}
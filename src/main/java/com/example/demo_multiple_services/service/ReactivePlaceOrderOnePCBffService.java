@@ -0,0 +1,44 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.scalar.db.api.DistributedTransactionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive One-Phase Commit BFF Service for placing an Order
+ *
+ * Non-blocking variant of {@link PlaceOrderOnePCBffService}. The stock reservation and the order
+ * insert are chained in one Mono pipeline inside a single distributed transaction, so the request
+ * holds no thread while waiting on the 1PC services.
+ */
+@Slf4j
+@Service
+public class ReactivePlaceOrderOnePCBffService extends BaseReactiveOnePCBffService {
+
+    public ReactivePlaceOrderOnePCBffService(DistributedTransactionManager manager) {
+        super(manager);
+    }
+
+    // Place Order
+    public Mono<ResponseStatusDto> placeOrder(OrderDto orderDto) {
+        String urlReserve = "/product-one-pc" + "/" + orderDto.getProductId() + "/reserve";
+        String url = "/order-one-pc";
+        StockReservationDto reservationRequest = StockReservationDto.builder().quantity(orderDto.getOrderQty()).build();
+
+        return inTransaction(transactionId ->
+            // Reserve Stock (conditional decrement in a single participant call)
+            executePostForData(urlReserve, reservationRequest, transactionId,
+                    new ParameterizedTypeReference<ApiResponse<StockReservationDto>>() {})
+                .filter(StockReservationDto::isReserved)
+                .switchIfEmpty(Mono.error(new RuntimeException("We are out of stock.")))
+                // Insert Order
+                .then(executePost(url, orderDto, transactionId))
+                .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.ProductDto;
+import com.example.demo_multiple_services.dto.ApiResponse;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.scalar.db.api.DistributedTransactionManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive One-Phase Commit BFF Service for Product
+ *
+ * Non-blocking variant of {@link ProductOnePCBffService}. Each operation is a Mono pipeline that
+ * starts a distributed transaction, calls the 1PC endpoints with the propagated transaction ID
+ * through WebClient, and commits or rolls back once the participant calls complete.
+ */
+@Slf4j
+@Service
+public class ReactiveProductOnePCBffService extends BaseReactiveOnePCBffService {
+
+    public ReactiveProductOnePCBffService(DistributedTransactionManager manager) {
+        super(manager);
+    }
+
+    // Create Record
+    public Mono<ResponseStatusDto> insertProduct(ProductDto productDto) {
+        String url = "/product-one-pc";
+        return inTransaction(transactionId -> executePost(url, productDto, transactionId)
+            .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+
+    // Upsert Record
+    public Mono<ResponseStatusDto> upsertProduct(ProductDto productDto) {
+        String url = "/product-one-pc/upsert";
+        return inTransaction(transactionId -> executePost(url, productDto, transactionId)
+            .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+
+    // Retrieve Record
+    public Mono<ProductDto> getProduct(ProductDto productDto) {
+        String url = "/product-one-pc" + "/" + productDto.getId();
+        return inTransaction(transactionId ->
+            executeGet(url, transactionId, new ParameterizedTypeReference<ApiResponse<ProductDto>>() {}));
+    }
+
+    // Update Record
+    public Mono<ResponseStatusDto> updateProduct(ProductDto productDto) {
+        String url = "/product-one-pc";
+        return inTransaction(transactionId -> executePut(url, productDto, transactionId)
+            .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+
+    // Delete Record
+    public Mono<ResponseStatusDto> deleteProduct(ProductDto productDto) {
+        String url = "/product-one-pc" + "/" + productDto.getId();
+        return inTransaction(transactionId -> executeDelete(url, transactionId)
+            .thenReturn(ResponseStatusDto.builder().code(0).message("").build()));
+    }
+
+    // Retrieve All Records
+    public Mono<List<ProductDto>> getProductListAll() {
+        String url = "/product-one-pc/scan-all";
+        return inTransaction(transactionId ->
+            executeGet(url, transactionId, new ParameterizedTypeReference<ApiResponse<List<ProductDto>>>() {}));
+    }
+
+    // Retrieve Records by Partition Key
+    public Mono<List<ProductDto>> getProductListByPk(ProductDto productDto) {
+        String url = "/product-one-pc/scan-by-pk" + "/" + productDto.getId();
+        return inTransaction(transactionId ->
+            executeGet(url, transactionId, new ParameterizedTypeReference<ApiResponse<List<ProductDto>>>() {}));
+    }
+}
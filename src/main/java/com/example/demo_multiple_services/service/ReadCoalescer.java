@@ -0,0 +1,80 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.util.SingleFlight;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read Coalescer for the standard (non-1PC) read endpoints
+ *
+ * Concurrent identical reads, keyed by "namespace.table:partition key", share one in-flight
+ * ScalarDB Get and its result instead of each starting its own transaction.
+ *
+ * A read only joins a Get that started after the caller's HTTP request arrived (recorded by the
+ * RequestDeadlineInterceptor), so a client reading back its own committed write never receives
+ * the result of a Get that started before that write. Every caller gets its own copy of the
+ * result, since the DTOs are mutable.
+ *
+ * Only used by the standard services, which run every read in a transaction of their own.
+ * The 1PC services must not use it: a read inside a caller's distributed transaction has to
+ * go through that transaction to keep its isolation guarantees.
+ *
+ * Exported metrics: standard.reads.issued, standard.reads.coalesced
+ */
+@Component
+public class ReadCoalescer {
+
+    // Request attribute holding the System.nanoTime() at which the request arrived
+    public static final String REQUEST_STARTED_AT = ReadCoalescer.class.getName() + ".requestStartedAt";
+
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+    @Value("${read-coalescing.enabled:true}")
+    private boolean enabled;
+
+    public ReadCoalescer(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("standard.reads.issued", singleFlight, SingleFlight::getIssuedCount)
+            .description("Reads executed against ScalarDB")
+            .register(meterRegistry);
+        FunctionCounter.builder("standard.reads.coalesced", singleFlight, SingleFlight::getCoalescedCount)
+            .description("Reads that shared the result of an identical in-flight read")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Run the read, sharing it with identical concurrent reads
+     *
+     * @param namespace The ScalarDB namespace
+     * @param table The ScalarDB table
+     * @param partitionKey The partition key value(s) being read
+     * @param read The read to execute
+     * @param copy Copies a result, so that callers sharing a read do not share the object
+     * @param <T> The result type
+     * @return The read result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String namespace, String table, Object partitionKey, Supplier<T> read, UnaryOperator<T> copy) {
+        if (!enabled) {
+            return read.get();
+        }
+        String key = namespace + "." + table + ":" + partitionKey;
+        T result = (T) singleFlight.execute(key, requestStartedAt(), read::get);
+        return copy.apply(result);
+    }
+
+    // Outside of an HTTP request only flights starting from now on may be joined
+    private static long requestStartedAt() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        Object startedAt = attributes != null
+            ? attributes.getAttribute(REQUEST_STARTED_AT, RequestAttributes.SCOPE_REQUEST)
+            : null;
+        return startedAt instanceof Long nanos ? nanos : System.nanoTime();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.demo_multiple_services.service;
+
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.exception.transaction.TransactionNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumed Transaction Cache
+ *
+ * Keeps the DistributedTransaction handles resumed by the 1PC services, keyed by transaction ID,
+ * so that repeated participation in the same distributed transaction (e.g. the three 1PC calls
+ * of a placeOrder) resumes it only once.
+ *
+ * Entries are evicted when:
+ * - The TransactionTracker reports the transaction committed or rolled back on this node
+ * - The 1PC service rolls the transaction back after a failure
+ * - They are older than the configured TTL (covers coordinators running on other nodes)
+ *
+ * The cache is bounded: once full, further transactions are resumed without being cached.
+ *
+ * Exported metrics: onepc.resume.cache.hits, onepc.resume.cache.misses, onepc.resume.cache.size
+ */
+@Component
+public class ResumedTransactionCache {
+
+    private final Map<String, CachedTransaction> cache = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    @Value("${onepc.resume-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${onepc.resume-cache.ttl-ms:60000}")
+    private long ttlMillis;
+
+    public ResumedTransactionCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("onepc.resume.cache.hits")
+            .description("1PC calls that reused an already resumed transaction")
+            .register(meterRegistry);
+        this.misses = Counter.builder("onepc.resume.cache.misses")
+            .description("1PC calls that had to resume the transaction")
+            .register(meterRegistry);
+        Gauge.builder("onepc.resume.cache.size", cache, Map::size)
+            .description("Resumed transactions currently cached")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Return the cached handle for the transaction, resuming it on a miss
+     *
+     * @param manager The transaction manager to resume from
+     * @param transactionId The transaction ID
+     * @return The resumed transaction
+     * @throws TransactionNotFoundException if the transaction cannot be resumed
+     */
+    public DistributedTransaction resume(DistributedTransactionManager manager, String transactionId) throws TransactionNotFoundException {
+        long now = System.currentTimeMillis();
+        CachedTransaction cached = cache.get(transactionId);
+        if (cached != null && now - cached.cachedAt < ttlMillis) {
+            hits.increment();
+            return cached.transaction;
+        }
+
+        misses.increment();
+        DistributedTransaction transaction = manager.resume(transactionId);
+        if (cache.size() < maxSize) {
+            cache.put(transactionId, new CachedTransaction(transaction, now));
+        }
+        return transaction;
+    }
+
+    public void evict(String transactionId) {
+        cache.remove(transactionId);
+    }
+
+    @EventListener
+    public void onTransactionCompleted(TransactionCompletedEvent event) {
+        evict(event.getTransactionId());
+    }
+
+    @Scheduled(fixedDelayString = "${onepc.resume-cache.sweep-interval-ms:5000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(cached -> now - cached.cachedAt >= ttlMillis);
+    }
+
+    private static class CachedTransaction {
+        private final DistributedTransaction transaction;
+        private final long cachedAt;
+
+        private CachedTransaction(DistributedTransaction transaction, long cachedAt) {
+            this.transaction = transaction;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
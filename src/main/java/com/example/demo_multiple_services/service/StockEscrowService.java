@@ -0,0 +1,366 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.example.demo_multiple_services.model.Product;
+import com.example.demo_multiple_services.model.StockEscrow;
+import com.example.demo_multiple_services.repository.ProductRepository;
+import com.example.demo_multiple_services.repository.StockEscrowRepository;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.api.TransactionCrudOperable;
+import com.scalar.db.exception.transaction.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Node-local stock escrow
+ *
+ * Every order otherwise commits a write to the single product row, which caps the order rate
+ * of a product at that row's commit rate. With escrow.enabled, each node moves a quota of
+ * stock (escrow.quota-size) from the product row into its own row of inventory.stock_escrow in
+ * one transaction, and stock reservations are then taken from that row instead. Orders on
+ * different nodes therefore write different rows.
+ *
+ * The quota is consumed inside the caller's transaction, so it is exactly as durable as the
+ * order itself: a crash cannot oversell, and the quota left in the table is picked up again when
+ * the node restarts with the same escrow.node-id.
+ *
+ * In the background:
+ * - Refill: once the quota drops below escrow.low-watermark (or cannot cover an order), more
+ *   stock is moved from the product row; an order that the quota cannot cover meanwhile uses
+ *   the rest of the quota and takes the shortfall from the product row, and from the quota of
+ *   other nodes once the product row has run out
+ * - Return: quota of products without orders for escrow.idle-return-ms, and all quota on
+ *   shutdown, is moved back to the product row
+ *
+ * Every node needs its own escrow.node-id; two nodes sharing an ID would consume and return the
+ * same quota row. Without an explicit ID the host name is used, and startup fails when there is
+ * none or it is "localhost".
+ *
+ * Stock semantics while escrow is enabled:
+ * - product.stock is the unescrowed part; the available stock of a product is product.stock plus
+ *   the quota of its inventory.stock_escrow rows (reads of the product row and table exports show
+ *   only the former, the stock aggregate reports the latter as escrowedStock)
+ * - Absolute writes of a product (update, upsert, delete) set the whole available stock, so they
+ *   reclaim the product's escrow in the same transaction (ProductRepository)
+ *
+ * Exported metrics: escrow.reservations (tagged source=escrow|product), escrow.refills,
+ * escrow.returns, escrow.products
+ */
+@Slf4j
+@Service
+public class StockEscrowService {
+    DistributedTransactionManager manager;
+
+    @Autowired
+    StockEscrowRepository stockEscrowRepository;
+
+    @Autowired
+    ProductRepository productRepository;
+
+    @Autowired
+    TransactionTracker transactionTracker;
+
+    @Value("${escrow.enabled:false}")
+    private boolean enabled;
+
+    @Value("${escrow.node-id:${HOSTNAME:}}")
+    private String nodeId;
+
+    @Value("${escrow.quota-size:100}")
+    private int quotaSize;
+
+    @Value("${escrow.low-watermark:20}")
+    private int lowWatermark;
+
+    @Value("${escrow.idle-return-ms:60000}")
+    private long idleReturnMillis;
+
+    private final ExecutorService refiller = Executors.newSingleThreadExecutor();
+
+    private final Set<Integer> refillsQueued = ConcurrentHashMap.newKeySet();
+
+    // Products this node holds escrow for, with the time an order last used it
+    private final Map<Integer, Long> lastUsed = new ConcurrentHashMap<>();
+
+    private final Counter fromEscrow;
+    private final Counter fromProduct;
+    private final Counter refills;
+    private final Counter returns;
+
+    public StockEscrowService(DistributedTransactionManager manager, MeterRegistry meterRegistry) {
+        this.manager = manager;
+        this.fromEscrow = Counter.builder("escrow.reservations")
+            .description("Stock reservations by where the stock was taken from")
+            .tag("source", "escrow")
+            .register(meterRegistry);
+        this.fromProduct = Counter.builder("escrow.reservations")
+            .description("Stock reservations by where the stock was taken from")
+            .tag("source", "product")
+            .register(meterRegistry);
+        this.refills = Counter.builder("escrow.refills")
+            .description("Quota moved from a product row into this node's escrow")
+            .register(meterRegistry);
+        this.returns = Counter.builder("escrow.returns")
+            .description("Quota moved from this node's escrow back to a product row")
+            .register(meterRegistry);
+        Gauge.builder("escrow.products", lastUsed, Map::size)
+            .description("Products this node holds escrow for")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void resolveNodeId() {
+        if (!enabled) {
+            return;
+        }
+        if (nodeId == null || nodeId.isBlank()) {
+            try {
+                nodeId = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                nodeId = null;
+            }
+        }
+        if (nodeId == null || nodeId.isBlank() || "localhost".equalsIgnoreCase(nodeId)) {
+            throw new IllegalStateException("escrow.enabled requires a unique escrow.node-id per node; "
+                + "set escrow.node-id or HOSTNAME");
+        }
+        log.info("Stock escrow node ID: {}", nodeId);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reserve the quantity within the caller's transaction, from this node's escrow first
+     *
+     * When the quota cannot cover the quantity, all of it is used and the shortfall is taken from
+     * the product row. When the row cannot cover the rest either, the stock still missing is taken
+     * from the quota other nodes hold, so an order is only refused when the product's whole
+     * available stock is short. Writing another node's row conflicts with that node's orders, but
+     * only happens once the stock outside escrow has run out.
+     *
+     * @param transaction The transaction reserving the stock
+     * @param productId The product ID
+     * @param quantity The quantity to reserve
+     * @return The reservation, with the node's remaining quota as remainingStock if it was taken
+     *         from escrow alone, otherwise with the product row's remaining stock
+     * @throws CrudException if the escrow or product rows cannot be read or written
+     */
+    public StockReservationDto consume(TransactionCrudOperable transaction, Integer productId, int quantity) throws CrudException {
+        lastUsed.put(productId, System.currentTimeMillis());
+        long now = System.currentTimeMillis();
+        StockEscrow escrow = stockEscrowRepository.getStockEscrow(transaction, productId, nodeId)
+            .orElse(new StockEscrow(productId, nodeId, 0, now));
+        int quota = escrow.getQuota();
+        if (quota >= quantity) {
+            escrow.setQuota(quota - quantity);
+            escrow.setUpdatedAt(now);
+            stockEscrowRepository.upsertStockEscrow(transaction, escrow);
+            if (escrow.getQuota() < lowWatermark) {
+                scheduleRefill(productId);
+            }
+            fromEscrow.increment();
+            return StockReservationDto.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .reserved(true)
+                .remainingStock(escrow.getQuota())
+                .build();
+        }
+        scheduleRefill(productId);
+
+        int stock = productRepository.getProduct(transaction, Product.builder().id(productId).build()).getStock();
+        int fromRow = Math.min(stock, quantity - quota);
+        int missing = quantity - quota - fromRow;
+        List<StockEscrow> reclaimed = new ArrayList<>();
+        if (missing > 0) {
+            for (StockEscrow other : stockEscrowRepository.getStockEscrowListByProduct(transaction, productId)) {
+                if (missing == 0) {
+                    break;
+                }
+                if (nodeId.equals(other.getNodeId()) || other.getQuota() <= 0) {
+                    continue;
+                }
+                int take = Math.min(other.getQuota(), missing);
+                other.setQuota(other.getQuota() - take);
+                other.setUpdatedAt(now);
+                reclaimed.add(other);
+                missing -= take;
+            }
+        }
+        if (missing > 0) {
+            return StockReservationDto.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .reserved(false)
+                .remainingStock(stock)
+                .build();
+        }
+
+        if (quota > 0) {
+            escrow.setQuota(0);
+            escrow.setUpdatedAt(now);
+            stockEscrowRepository.upsertStockEscrow(transaction, escrow);
+        }
+        if (fromRow > 0) {
+            productRepository.reserveStock(transaction, productId, fromRow);
+        }
+        for (StockEscrow other : reclaimed) {
+            stockEscrowRepository.upsertStockEscrow(transaction, other);
+        }
+        fromProduct.increment();
+        return StockReservationDto.builder()
+            .productId(productId)
+            .quantity(quantity)
+            .reserved(true)
+            .remainingStock(stock - fromRow)
+            .build();
+    }
+
+    // Pick up the quota this node left in the table before a restart
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverEscrow() {
+        if (!enabled) {
+            return;
+        }
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.startReadOnly();
+            List<StockEscrow> escrows = stockEscrowRepository.getStockEscrowListAll(transaction);
+            transaction.commit();
+            for (StockEscrow escrow : escrows) {
+                if (nodeId.equals(escrow.getNodeId()) && escrow.getQuota() > 0) {
+                    lastUsed.putIfAbsent(escrow.getProductId(), escrow.getUpdatedAt());
+                }
+            }
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+        }
+    }
+
+    // Return the quota of products that have not been ordered for escrow.idle-return-ms
+    @Scheduled(fixedDelayString = "${escrow.return-interval-ms:10000}")
+    public void returnIdleEscrow() {
+        if (!enabled) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - idleReturnMillis;
+        for (Map.Entry<Integer, Long> entry : lastUsed.entrySet()) {
+            if (entry.getValue() <= cutoff && returnEscrow(entry.getKey())) {
+                lastUsed.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refiller.shutdownNow();
+        if (!enabled) {
+            return;
+        }
+        for (Integer productId : new ArrayList<>(lastUsed.keySet())) {
+            returnEscrow(productId);
+        }
+    }
+
+    private void scheduleRefill(Integer productId) {
+        if (!refillsQueued.add(productId)) {
+            return;
+        }
+        refiller.execute(() -> {
+            try {
+                refillEscrow(productId);
+            } finally {
+                refillsQueued.remove(productId);
+            }
+        });
+    }
+
+    // Move stock from the product row until the escrow holds escrow.quota-size again
+    private void refillEscrow(Integer productId) {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            transactionTracker.track(transaction, "escrow refill " + productId);
+            StockEscrow escrow = stockEscrowRepository.getStockEscrow(transaction, productId, nodeId)
+                .orElse(new StockEscrow(productId, nodeId, 0, 0L));
+            Product product = productRepository.getProduct(transaction, Product.builder().id(productId).build());
+            int take = Math.min(quotaSize - escrow.getQuota(), product.getStock());
+            if (take > 0) {
+                productRepository.reserveStock(transaction, productId, take);
+                escrow.setQuota(escrow.getQuota() + take);
+                escrow.setUpdatedAt(System.currentTimeMillis());
+                stockEscrowRepository.upsertStockEscrow(transaction, escrow);
+            }
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            if (take > 0) {
+                refills.increment();
+            }
+        } catch (Exception e) {
+            // Retried on the next order that finds the quota low
+            handleTransactionException(e, transaction);
+        }
+    }
+
+    // Move the whole quota back to the product row; returns true if nothing is left in escrow
+    private boolean returnEscrow(Integer productId) {
+        DistributedTransaction transaction = null;
+        try {
+            transaction = manager.start();
+            transactionTracker.track(transaction, "escrow return " + productId);
+            Optional<StockEscrow> escrow = stockEscrowRepository.getStockEscrow(transaction, productId, nodeId);
+            int quota = escrow.map(StockEscrow::getQuota).orElse(0);
+            if (quota > 0) {
+                productRepository.releaseStock(transaction, productId, quota);
+                escrow.get().setQuota(0);
+                escrow.get().setUpdatedAt(System.currentTimeMillis());
+                stockEscrowRepository.upsertStockEscrow(transaction, escrow.get());
+            }
+            transaction.commit();
+            transactionTracker.complete(transaction.getId(), true);
+            if (quota > 0) {
+                returns.increment();
+            }
+            return true;
+        } catch (Exception e) {
+            handleTransactionException(e, transaction);
+            return false;
+        }
+    }
+
+    private void handleTransactionException(Exception e, DistributedTransaction transaction) {
+        log.error(e.getMessage(), e);
+        if (transaction != null) {
+            try {
+                transaction.rollback();
+            } catch (RollbackException ex) {
+                log.error(ex.getMessage(), ex);
+            }
+            transactionTracker.complete(transaction.getId(), false);
+        }
+    }
+}
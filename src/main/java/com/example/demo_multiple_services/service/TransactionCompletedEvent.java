@@ -0,0 +1,15 @@
+package com.example.demo_multiple_services.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the TransactionTracker when a distributed transaction started on this node has
+ * been committed or rolled back.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionCompletedEvent {
+    private final String transactionId;
+    private final boolean committed;
+}
@@ -0,0 +1,325 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.TransactionInfoDto;
+import com.example.demo_multiple_services.util.RequestDeadline;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.TwoPhaseCommitTransaction;
+import com.scalar.db.exception.transaction.RollbackException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transaction Tracker
+ *
+ * In-process registry of the distributed transactions started by the BFF services and the
+ * standard services. For every active transaction it records:
+ * - The origin endpoint (HTTP method and URI of the request that started it)
+ * - The start time, from which the age and the deadline are derived
+ * - The 1PC participant URLs called with its transaction ID
+ *
+ * A scheduled sweep expires transactions that outlive their deadline (transaction.tracker.timeout-ms,
+ * or a per-transaction timeout for long-running jobs). The sweep never rolls back a transaction
+ * that a thread is still working on, since that thread may be using or committing it at that
+ * moment: the thread that started it is bound to it as its RequestDeadline owner, and aborts the
+ * transaction itself at its next deadline check. Only orphaned transactions, whose owning thread
+ * has moved on without completing them, are rolled back directly by the sweep.
+ *
+ * Exported metrics:
+ * - scalardb.transactions.active: number of tracked transactions
+ * - scalardb.transactions.oldest.age: age of the oldest tracked transaction in milliseconds
+ * - scalardb.transactions.aborted.timeout: transactions expired by the deadline sweep
+ *
+ * Completion of every tracked transaction is published as a TransactionCompletedEvent.
+ */
+@Slf4j
+@Component
+public class TransactionTracker {
+
+    private final Map<String, TrackedTransaction> activeTransactions = new ConcurrentHashMap<>();
+
+    private final Counter abortedByTimeout;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${transaction.tracker.timeout-ms:30000}")
+    private long timeoutMillis;
+
+    public TransactionTracker(MeterRegistry meterRegistry, ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+        Gauge.builder("scalardb.transactions.active", activeTransactions, Map::size)
+            .description("Distributed transactions started by this node and not yet completed")
+            .register(meterRegistry);
+        Gauge.builder("scalardb.transactions.oldest.age", this, TransactionTracker::oldestAgeMillis)
+            .description("Age of the oldest active distributed transaction")
+            .baseUnit("milliseconds")
+            .register(meterRegistry);
+        this.abortedByTimeout = Counter.builder("scalardb.transactions.aborted.timeout")
+            .description("Distributed transactions expired because they exceeded the deadline")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Start tracking a transaction, using the current HTTP request as its origin
+     *
+     * @param transaction The transaction that has just been started
+     */
+    public void track(DistributedTransaction transaction) {
+        track(transaction, currentOrigin());
+    }
+
+    /**
+     * Start tracking a transaction owned by the current thread
+     *
+     * @param transaction The transaction that has just been started
+     * @param origin The endpoint that started the transaction
+     */
+    public void track(DistributedTransaction transaction, String origin) {
+        track(transaction.getId(), transaction::rollback, origin, timeoutMillis, true);
+    }
+
+    /**
+     * Start tracking a long-running transaction owned by the current thread with its own deadline
+     *
+     * @param transaction The transaction that has just been started
+     * @param origin The job that started the transaction
+     * @param timeoutMillis The deadline of this transaction, or 0 to never expire it
+     */
+    public void track(DistributedTransaction transaction, String origin, long timeoutMillis) {
+        track(transaction.getId(), transaction::rollback, origin, timeoutMillis, true);
+    }
+
+    /**
+     * Start tracking a transaction driven by a reactive pipeline rather than by one thread
+     *
+     * The pipeline checks {@link #isExpired} before each step instead of a thread-bound deadline.
+     *
+     * @param transaction The transaction that has just been started
+     * @param origin The endpoint that started the transaction
+     */
+    public void trackDetached(DistributedTransaction transaction, String origin) {
+        track(transaction.getId(), transaction::rollback, origin, timeoutMillis, false);
+    }
+
+    /**
+     * Start tracking a two-phase commit transaction started by this node as coordinator
+     *
+     * Only the coordinator's own transaction is expired by the deadline sweep; the
+     * participants' transactions expire on their side.
+     *
+     * @param transaction The transaction that has just been started
+     * @param origin The endpoint that started the transaction
+     */
+    public void track(TwoPhaseCommitTransaction transaction, String origin) {
+        track(transaction.getId(), transaction::rollback, origin, timeoutMillis, true);
+    }
+
+    private void track(String transactionId, Rollback rollback, String origin, long timeoutMillis, boolean bindToThread) {
+        TrackedTransaction tracked = new TrackedTransaction(transactionId, rollback, origin, System.currentTimeMillis(), timeoutMillis);
+        activeTransactions.put(transactionId, tracked);
+        if (bindToThread) {
+            RequestDeadline.bind(tracked);
+        }
+    }
+
+    /**
+     * Record a 1PC participant called with the transaction ID
+     *
+     * @param transactionId The transaction ID propagated to the participant
+     * @param url The participant URL
+     */
+    public void addParticipant(String transactionId, String url) {
+        if (transactionId == null) {
+            return;
+        }
+        TrackedTransaction tracked = activeTransactions.get(transactionId);
+        if (tracked != null) {
+            tracked.participants.add(url);
+        }
+    }
+
+    /**
+     * Time elapsed since a tracked transaction was started
+     *
+     * @param transactionId The transaction ID
+     * @return Elapsed milliseconds, or 0 if the transaction is not tracked
+     */
+    public long elapsedMillis(String transactionId) {
+        TrackedTransaction tracked = transactionId != null ? activeTransactions.get(transactionId) : null;
+        return tracked != null ? System.currentTimeMillis() - tracked.startedAt : 0;
+    }
+
+    /**
+     * Whether a tracked transaction has been expired by the sweep or aborted on demand
+     *
+     * @param transactionId The transaction ID
+     * @return true if the transaction must be rolled back by its owner
+     */
+    public boolean isExpired(String transactionId) {
+        TrackedTransaction tracked = transactionId != null ? activeTransactions.get(transactionId) : null;
+        return tracked != null && tracked.expired;
+    }
+
+    /**
+     * Stop tracking a transaction once it has been committed or rolled back
+     *
+     * @param transactionId The transaction ID
+     * @param committed Whether the transaction was committed
+     */
+    public void complete(String transactionId, boolean committed) {
+        TrackedTransaction tracked = activeTransactions.remove(transactionId);
+        if (tracked != null) {
+            RequestDeadline.unbind(tracked);
+            eventPublisher.publishEvent(new TransactionCompletedEvent(transactionId, committed));
+        }
+    }
+
+    /**
+     * Abort a tracked transaction on demand
+     *
+     * A transaction that a thread is still working on is expired, and that thread rolls it back
+     * at its next deadline check; an orphaned transaction is rolled back directly.
+     *
+     * @param transactionId The transaction ID
+     * @return true if the transaction was tracked
+     */
+    public boolean abort(String transactionId) {
+        TrackedTransaction tracked = activeTransactions.get(transactionId);
+        if (tracked == null) {
+            return false;
+        }
+        tracked.expired = true;
+        if (!tracked.owned) {
+            rollbackOrphan(tracked);
+        }
+        return true;
+    }
+
+    /**
+     * List the active transactions, oldest first
+     *
+     * @return Snapshot of the tracked transactions
+     */
+    public List<TransactionInfoDto> getActiveTransactions() {
+        long now = System.currentTimeMillis();
+        List<TransactionInfoDto> result = new ArrayList<>();
+        activeTransactions.values().stream()
+            .sorted(Comparator.comparingLong(tracked -> tracked.startedAt))
+            .forEach(tracked -> result.add(TransactionInfoDto.builder()
+                .transactionId(tracked.transactionId)
+                .origin(tracked.origin)
+                .participants(new ArrayList<>(tracked.participants))
+                .startedAt(tracked.startedAt)
+                .ageMillis(now - tracked.startedAt)
+                .build()));
+        return result;
+    }
+
+    /**
+     * Expire every transaction older than its deadline, and roll back the orphaned ones
+     */
+    @Scheduled(fixedDelayString = "${transaction.tracker.sweep-interval-ms:1000}")
+    public void abortExpiredTransactions() {
+        long now = System.currentTimeMillis();
+        for (TrackedTransaction tracked : activeTransactions.values()) {
+            if (!tracked.expired) {
+                if (tracked.timeoutMillis <= 0 || now - tracked.startedAt < tracked.timeoutMillis) {
+                    continue;
+                }
+                log.warn("Expiring transaction {} from {} after {} ms (participants: {})",
+                    tracked.transactionId, tracked.origin, now - tracked.startedAt, tracked.participants);
+                tracked.expired = true;
+                abortedByTimeout.increment();
+            }
+            if (!tracked.owned) {
+                rollbackOrphan(tracked);
+            }
+        }
+    }
+
+    /**
+     * Describe the HTTP request handled by the current thread
+     *
+     * @return "METHOD /uri", or "internal" outside of a request
+     */
+    public String currentOrigin() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            return request.getMethod() + " " + request.getRequestURI();
+        }
+        return "internal";
+    }
+
+    private double oldestAgeMillis() {
+        long now = System.currentTimeMillis();
+        return activeTransactions.values().stream()
+            .mapToLong(tracked -> now - tracked.startedAt)
+            .max()
+            .orElse(0);
+    }
+
+    // Roll back a transaction no thread is working on any more
+    private void rollbackOrphan(TrackedTransaction tracked) {
+        if (!activeTransactions.remove(tracked.transactionId, tracked)) {
+            return;
+        }
+        log.warn("Rolling back orphaned transaction {} from {}", tracked.transactionId, tracked.origin);
+        try {
+            tracked.rollback.rollback();
+        } catch (RollbackException ex) {
+            log.error(ex.getMessage(), ex);
+        }
+        eventPublisher.publishEvent(new TransactionCompletedEvent(tracked.transactionId, false));
+    }
+
+    @FunctionalInterface
+    private interface Rollback {
+        void rollback() throws RollbackException;
+    }
+
+    private static class TrackedTransaction implements RequestDeadline.Owner {
+        private final String transactionId;
+        private final Rollback rollback;
+        private final String origin;
+        private final long startedAt;
+        private final long timeoutMillis;
+        private final Set<String> participants = ConcurrentHashMap.newKeySet();
+        private volatile boolean expired;
+        private volatile boolean owned = true;
+
+        private TrackedTransaction(String transactionId, Rollback rollback, String origin, long startedAt, long timeoutMillis) {
+            this.transactionId = transactionId;
+            this.rollback = rollback;
+            this.origin = origin;
+            this.startedAt = startedAt;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return expired;
+        }
+
+        @Override
+        public void release() {
+            owned = false;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo_multiple_services.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive concurrency limiter using additive-increase / multiplicative-decrease
+ *
+ * The limit grows by roughly one for every "limit" requests that complete within the latency
+ * threshold while the limiter is busy, and is cut by the backoff ratio when a request is slower
+ * than the threshold or signals congestion. The cut is applied at most once per latency window
+ * (the threshold): the requests completing right after a slowdown all report the same event, and
+ * cutting once for each of them would collapse the limit to the minimum. Non-critical requests
+ * only get the part of the limit that is not held back for critical ones, so critical flows are
+ * still admitted when the rest is shed.
+ */
+public class AimdLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final double criticalReserve;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    private long lastDecreaseNanos;
+    private boolean decreased;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                       long latencyThresholdMillis, double criticalReserve) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000L;
+        this.criticalReserve = criticalReserve;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Try to admit a request
+     *
+     * @param critical Whether the request may use the capacity reserved for critical flows
+     * @return true if admitted; the caller must then call release exactly once
+     */
+    public boolean tryAcquire(boolean critical) {
+        int allowed = critical ? (int) limit : (int) Math.max(1, limit * (1 - criticalReserve));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release an admitted request and adjust the limit from its outcome
+     *
+     * @param latencyNanos Time the request spent in the application
+     * @param congested Whether the request timed out or was rejected for overload
+     */
+    public void release(long latencyNanos, boolean congested) {
+        release(latencyNanos, congested, System.nanoTime());
+    }
+
+    void release(long latencyNanos, boolean congested, long nowNanos) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (congested || latencyNanos > latencyThresholdNanos) {
+                if (!decreased || nowNanos - lastDecreaseNanos >= latencyThresholdNanos) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastDecreaseNanos = nowNanos;
+                    decreased = true;
+                }
+            } else if (current * 2 >= limit) {
+                // Only grow while the limit is actually being used
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+}
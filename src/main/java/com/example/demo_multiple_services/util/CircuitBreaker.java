@@ -0,0 +1,158 @@
+package com.example.demo_multiple_services.util;
+
+/**
+ * Count-based circuit breaker
+ *
+ * Outcomes of the last windowSize calls are kept in a ring. Once at least minimumCalls have been
+ * recorded, the breaker opens when the share of failed calls reaches failureRateThreshold or the
+ * share of calls slower than the slow-call threshold reaches slowCallRateThreshold. While open,
+ * every call is refused. After openMillis it lets a single trial call through (half-open): a
+ * successful, fast trial closes it with an empty window, anything else opens it again.
+ *
+ * Every state change starts a new generation, and a permit belongs to the generation it was
+ * granted in. Outcomes of permits from an earlier generation are ignored, so a slow call admitted
+ * while the breaker was closed can neither count against the fresh window nor decide the
+ * half-open trial.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openMillis;
+
+    // 1 = failed, 2 = slow, 0 = fine
+    private final byte[] outcomes;
+    private int recorded;
+    private int next;
+    private int failed;
+    private int slow;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long generation;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold,
+                          double slowCallRateThreshold, long slowCallMillis, long openMillis) {
+        this.outcomes = new byte[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallMillis * 1_000_000L;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Ask for permission to make a call
+     *
+     * @return The generation of the permit, or -1 if the call is refused; for a permit the caller
+     *     must then call onResult or onCancel exactly once
+     */
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return -1;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return -1;
+            }
+            trialInFlight = true;
+        }
+        return generation;
+    }
+
+    /**
+     * Record the outcome of a permitted call
+     *
+     * @param permitGeneration The generation returned by tryAcquire
+     * @param latencyNanos The call duration
+     * @param isFailure Whether the call failed in a way that counts against the participant
+     */
+    public synchronized void onResult(long permitGeneration, long latencyNanos, boolean isFailure) {
+        if (permitGeneration != generation) {
+            // Admitted before the last state change; says nothing about the current state
+            return;
+        }
+        boolean isSlow = latencyNanos > slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+            if (isFailure || isSlow) {
+                open();
+            } else {
+                reset();
+                transition(State.CLOSED);
+            }
+            return;
+        }
+
+        byte outcome = (byte) (isFailure ? 1 : isSlow ? 2 : 0);
+        if (recorded == outcomes.length) {
+            remove(outcomes[next]);
+        } else {
+            recorded++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        if (outcome == 1) {
+            failed++;
+        } else if (outcome == 2) {
+            slow++;
+        }
+
+        if (recorded >= minimumCalls
+                && ((double) failed / recorded >= failureRateThreshold || (double) slow / recorded >= slowCallRateThreshold)) {
+            open();
+        }
+    }
+
+    /**
+     * Hand back a permit whose call was abandoned without an outcome (e.g. cancelled by the caller)
+     *
+     * @param permitGeneration The generation returned by tryAcquire
+     */
+    public synchronized void onCancel(long permitGeneration) {
+        if (permitGeneration == generation && state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void remove(byte outcome) {
+        if (outcome == 1) {
+            failed--;
+        } else if (outcome == 2) {
+            slow--;
+        }
+    }
+
+    private void transition(State to) {
+        state = to;
+        generation++;
+    }
+
+    private void open() {
+        transition(State.OPEN);
+        openedAt = System.currentTimeMillis();
+        reset();
+    }
+
+    private void reset() {
+        recorded = 0;
+        next = 0;
+        failed = 0;
+        slow = 0;
+    }
+}
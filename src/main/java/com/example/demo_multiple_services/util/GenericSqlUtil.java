@@ -1,5 +1,6 @@
 package com.example.demo_multiple_services.util;
 
+import com.example.demo_multiple_services.dto.ColumnarResultDto;
 import com.scalar.db.sql.Record;
 import com.scalar.db.sql.*;
 
@@ -20,29 +21,54 @@ public class GenericSqlUtil {
         ColumnDefinitions columnDefinitions = resultSet.getColumnDefinitions();
         for (Record record : records) {
             Map<String, Object> row = new HashMap<>();
+            // The record's columns are in the order of the result set's column definitions
             for (int i = 0; i < columnDefinitions.size(); i++) {
                 String columnName = columnDefinitions.getColumnDefinition(i).getColumnName();
                 com.scalar.db.sql.DataType type = columnDefinitions.getColumnDefinition(i).getDataType();
-                row.put(columnName, getColumnValue(record, columnName, type));
+                row.put(columnName, getColumnValue(record, i, type));
             }
             results.add(row);
         }
         return results;
     }
 
-    private Object getColumnValue(Record resultSet, String columnName, com.scalar.db.sql.DataType type) {
+    // Columnar variant: one header, then one Object[] per row read by column index
+    public ColumnarResultDto executeQueryColumnar(String sql) {
+        ResultSet resultSet = sqlSession.execute(sql);
+        ColumnDefinitions columnDefinitions = resultSet.getColumnDefinitions();
+        int columnCount = columnDefinitions.size();
+        com.scalar.db.sql.DataType[] types = new com.scalar.db.sql.DataType[columnCount];
+        List<ColumnarResultDto.Column> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            ColumnDefinition columnDefinition = columnDefinitions.getColumnDefinition(i);
+            types[i] = columnDefinition.getDataType();
+            columns.add(new ColumnarResultDto.Column(columnDefinition.getColumnName(), types[i].name()));
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (Record record : resultSet) {
+            Object[] row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = record.isNull(i) ? null : getColumnValue(record, i, types[i]);
+            }
+            rows.add(row);
+        }
+        return ColumnarResultDto.builder().columns(columns).rows(rows).build();
+    }
+
+    private Object getColumnValue(Record resultSet, int i, com.scalar.db.sql.DataType type) {
         return switch (type) {
-            case BOOLEAN -> resultSet.getBoolean(columnName);
-            case INT -> resultSet.getInt(columnName);
-            case BIGINT -> resultSet.getBigInt(columnName);
-            case FLOAT -> resultSet.getFloat(columnName);
-            case DOUBLE -> resultSet.getDouble(columnName);
-            case TEXT -> resultSet.getText(columnName);
-            case BLOB -> resultSet.getBlobAsBytes(columnName);
-            case DATE -> resultSet.getDate(columnName);
-            case TIME -> resultSet.getTime(columnName);
-            case TIMESTAMP -> resultSet.getTimestamp(columnName);
-            case TIMESTAMPTZ -> resultSet.getTimestampTZ(columnName);
+            case BOOLEAN -> resultSet.getBoolean(i);
+            case INT -> resultSet.getInt(i);
+            case BIGINT -> resultSet.getBigInt(i);
+            case FLOAT -> resultSet.getFloat(i);
+            case DOUBLE -> resultSet.getDouble(i);
+            case TEXT -> resultSet.getText(i);
+            case BLOB -> resultSet.getBlobAsBytes(i);
+            case DATE -> resultSet.getDate(i);
+            case TIME -> resultSet.getTime(i);
+            case TIMESTAMP -> resultSet.getTimestamp(i);
+            case TIMESTAMPTZ -> resultSet.getTimestampTZ(i);
             default -> null; // Handle unknown types safely
         };
     }
@@ -0,0 +1,100 @@
+package com.example.demo_multiple_services.util;
+
+import com.example.demo_multiple_services.exception.DeadlineExceededException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread request deadline
+ *
+ * The BFF sends the remaining time budget of a distributed transaction to the 1PC services in the
+ * Request-Budget-Ms header. The receiving side turns it into an absolute deadline bound to the
+ * request thread, so that the service layer can fail fast once the caller has given up, and the
+ * outgoing RestTemplate calls can derive their timeouts from it.
+ *
+ * A thread working on a tracked transaction is also bound to it as its Owner. When the
+ * TransactionTracker expires the transaction, the deadline of the owning thread is treated as
+ * passed, so the thread aborts the transaction itself at its next check.
+ */
+public class RequestDeadline {
+
+    public static final String HEADER = "Request-Budget-Ms";
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    // Transactions the current thread is working on, innermost last
+    private static final ThreadLocal<Deque<Owner>> OWNERS = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Work a thread performs on behalf of a transaction that can be expired from another thread
+     */
+    public interface Owner {
+
+        // Whether the work has been asked to abort
+        boolean isExpired();
+
+        // Called when the thread stops working on it without completing it
+        void release();
+    }
+
+    private RequestDeadline() {
+    }
+
+    // Bind a deadline budgetMillis from now to the current thread
+    public static void start(long budgetMillis) {
+        DEADLINE.set(System.currentTimeMillis() + budgetMillis);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+        Deque<Owner> owners = OWNERS.get();
+        while (!owners.isEmpty()) {
+            owners.pollLast().release();
+        }
+    }
+
+    // Bind the work on a transaction to the current thread
+    public static void bind(Owner owner) {
+        OWNERS.get().addLast(owner);
+    }
+
+    // Unbind the work from the current thread once it has been completed
+    public static void unbind(Owner owner) {
+        OWNERS.get().removeLastOccurrence(owner);
+    }
+
+    // Remaining time in milliseconds, or Long.MAX_VALUE when no deadline is bound
+    public static long remainingMillis() {
+        for (Owner owner : OWNERS.get()) {
+            if (owner.isExpired()) {
+                return 0;
+            }
+        }
+        Long deadline = DEADLINE.get();
+        return deadline == null ? Long.MAX_VALUE : deadline - System.currentTimeMillis();
+    }
+
+    // Fail fast when the deadline bound to the current thread has passed
+    public static void check() {
+        if (remainingMillis() <= 0) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        }
+    }
+
+    // Run the call with a deadline budgetMillis from now, restoring the previous deadline afterwards
+    public static <T> T callWithin(long budgetMillis, Supplier<T> call) {
+        Long previous = DEADLINE.get();
+        start(budgetMillis);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                DEADLINE.remove();
+            } else {
+                DEADLINE.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo_multiple_services.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight call deduplication
+ *
+ * Concurrent calls with the same key share one execution of the supplier: the first caller
+ * runs it, and callers arriving while it is in flight wait for and receive the same result
+ * (or the same exception). Nothing is cached once the call completes.
+ *
+ * A caller can require a flight that started no earlier than a given time (e.g. when its request
+ * arrived, so that the shared read sees the caller's own earlier writes). An older flight is then
+ * not joined; the caller starts a newer one, which later callers join instead.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> calls = new ConcurrentHashMap<>();
+
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private record Flight<V>(long startedAtNanos, CompletableFuture<V> future) {
+    }
+
+    public V execute(K key, Supplier<V> supplier) {
+        return execute(key, null, supplier);
+    }
+
+    /**
+     * Run the supplier, or share a flight with the same key that started at or after notBeforeNanos
+     *
+     * @param key The call key
+     * @param notBeforeNanos Earliest System.nanoTime() at which a shared flight may have started,
+     *     or null to join any flight
+     * @param supplier The call
+     * @return The result of the call
+     */
+    public V execute(K key, Long notBeforeNanos, Supplier<V> supplier) {
+        Flight<V> mine = new Flight<>(System.nanoTime(), new CompletableFuture<>());
+        Flight<V> flight = calls.compute(key, (k, current) ->
+            current != null && (notBeforeNanos == null || current.startedAtNanos - notBeforeNanos >= 0) ? current : mine);
+        if (flight != mine) {
+            coalesced.increment();
+            try {
+                return flight.future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        issued.increment();
+        try {
+            V value = supplier.get();
+            mine.future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, mine);
+        }
+    }
+
+    // Number of calls that executed the supplier
+    public long getIssuedCount() {
+        return issued.sum();
+    }
+
+    // Number of calls that shared an in-flight execution
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo_multiple_services.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Striped per-key locks with bounded waits
+ *
+ * Keys are hashed onto a fixed number of fair (FIFO) locks, so memory does not grow with the
+ * number of keys. Different keys may share a stripe and then also run one after another;
+ * more stripes make that less likely.
+ */
+public class StripedLocks {
+
+    private final Semaphore[] stripes;
+    private final int mask;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    public StripedLocks(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new Semaphore[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Semaphore(1, true);
+        }
+    }
+
+    /**
+     * Acquire the stripe of the key, waiting at most timeoutMillis
+     *
+     * @return true if acquired; only then must the caller call {@link #unlock(Object)}
+     */
+    public boolean tryLock(Object key, long timeoutMillis) throws InterruptedException {
+        Semaphore stripe = stripeOf(key);
+        // The timed form honours fairness: it does not barge ahead of threads already queued
+        if (stripe.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+            return true;
+        }
+        waiting.incrementAndGet();
+        try {
+            return stripe.tryAcquire(Math.max(0, timeoutMillis), TimeUnit.MILLISECONDS);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void unlock(Object key) {
+        stripeOf(key).release();
+    }
+
+    // Threads currently queued behind another holder of their stripe
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    private Semaphore stripeOf(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.BulkImportReportDto;
+import com.example.demo_multiple_services.dto.BulkImportRequestDto;
+import com.example.demo_multiple_services.repository.OrderRepository;
+import com.example.demo_multiple_services.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkImportServiceTest {
+
+	@TempDir
+	Path dir;
+
+	private final DistributedTransactionManager manager = mock(DistributedTransactionManager.class);
+
+	private final ProductRepository productRepository = mock(ProductRepository.class);
+
+	private BulkImportService service;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		when(manager.start()).thenAnswer(invocation -> mock(DistributedTransaction.class));
+		service = new BulkImportService(manager, new ObjectMapper());
+		service.productRepository = productRepository;
+		service.orderRepository = mock(OrderRepository.class);
+		service.transactionTracker = mock(TransactionTracker.class);
+		ReflectionTestUtils.setField(service, "baseDir", dir.toString());
+		ReflectionTestUtils.setField(service, "chunkSize", 2);
+		ReflectionTestUtils.setField(service, "parallelism", 1);
+		ReflectionTestUtils.setField(service, "maxInFlightChunks", 2);
+	}
+
+	@Test
+	void splitCsvHandlesQuotedFields() {
+		assertThat(BulkImportService.splitCsv("1,\"a, \"\"b\"\"\",3"))
+			.containsExactly("1", "a, \"b\"", "3");
+		assertThat(BulkImportService.splitCsv("1,,")).containsExactly("1", "", "");
+	}
+
+	@Test
+	void checkpointWaitsForEarlierChunks() {
+		BulkImportService.Checkpoint checkpoint = new BulkImportService.Checkpoint();
+
+		assertThat(checkpoint.complete(1, 20, true)).isEqualTo(-1);
+		assertThat(checkpoint.complete(0, 10, true)).isEqualTo(20);
+		assertThat(checkpoint.current()).isEqualTo(20);
+	}
+
+	@Test
+	void failedChunkHoldsCheckpointWithoutKeepingLaterChunks() {
+		BulkImportService.Checkpoint checkpoint = new BulkImportService.Checkpoint();
+		checkpoint.complete(2, 30, true);
+
+		assertThat(checkpoint.complete(1, 20, false)).isEqualTo(-1);
+		for (long sequence = 3; sequence < 100; sequence++) {
+			checkpoint.complete(sequence, sequence * 10, true);
+		}
+		assertThat(checkpoint.complete(0, 10, true)).isEqualTo(10);
+
+		assertThat(checkpoint.current()).isEqualTo(10);
+		assertThat(checkpoint.pending()).isZero();
+	}
+
+	@Test
+	void rejectedRowsAreKeptAcrossResume() throws Exception {
+		Files.writeString(dir.resolve("products.csv"), "id,product_name,stock\n1,a,10\n2,b,x\n3,c,5\n");
+
+		BulkImportReportDto report = service.runImport(request(false));
+
+		assertThat(report.getRowsImported()).isEqualTo(2);
+		assertThat(report.getRowsFailed()).isEqualTo(1);
+		assertThat(report.getCheckpointLine()).isEqualTo(3);
+		assertThat(report.getRejectsFile()).isEqualTo("products.csv.rejects");
+		assertThat(Files.readAllLines(dir.resolve("products.csv.rejects"))).containsExactly("2\t2,b,x");
+
+		BulkImportReportDto resumed = service.runImport(request(true));
+
+		assertThat(resumed.getRowsSkipped()).isEqualTo(3);
+		assertThat(resumed.getRowsImported()).isZero();
+		assertThat(Files.readAllLines(dir.resolve("products.csv.rejects"))).containsExactly("2\t2,b,x");
+		verify(productRepository, times(2)).upsertProduct(any(), any());
+	}
+
+	private static BulkImportRequestDto request(boolean resume) {
+		return BulkImportRequestDto.builder().entity("product").file("products.csv").resume(resume).build();
+	}
+}
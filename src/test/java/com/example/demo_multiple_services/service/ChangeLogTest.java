@@ -0,0 +1,133 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.ChangeBatchDto;
+import com.example.demo_multiple_services.dto.ChangeEventDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeLogTest {
+
+	@TempDir
+	Path dir;
+
+	private ChangeLog changeLog;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		changeLog = open();
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		changeLog.close();
+	}
+
+	@Test
+	void rollsSegmentsAtSegmentSize() throws Exception {
+		commit("tx-1", 2);
+		commit("tx-2", 3);
+
+		try (var files = Files.list(dir)) {
+			assertThat(files.map(file -> file.getFileName().toString()).sorted())
+				.containsExactly("00000000000000000000.log", "00000000000000000003.log");
+		}
+		assertThat(offsetsOf(changeLog.read(0, 100))).containsExactly(0L, 1L, 2L, 3L, 4L);
+	}
+
+	@Test
+	void pagesByOffsetAcrossSegments() {
+		commit("tx-1", 5);
+
+		ChangeBatchDto first = changeLog.read(0, 2);
+		assertThat(offsetsOf(first)).containsExactly(0L, 1L);
+		assertThat(first.getNextOffset()).isEqualTo(2);
+
+		ChangeBatchDto second = changeLog.read(first.getNextOffset(), 10);
+		assertThat(offsetsOf(second)).containsExactly(2L, 3L, 4L);
+		assertThat(second.getNextOffset()).isEqualTo(5);
+
+		ChangeBatchDto empty = changeLog.read(second.getNextOffset(), 10);
+		assertThat(empty.getChanges()).isEmpty();
+		assertThat(empty.getNextOffset()).isEqualTo(5);
+	}
+
+	@Test
+	void rolledBackChangesAreNotLogged() {
+		changeLog.stage("tx-1", "sample", "product", "UPSERT", 1, () -> Map.of("id", 1));
+		changeLog.onTransactionCompleted(new TransactionCompletedEvent("tx-1", false));
+
+		assertThat(changeLog.read(0, 10).getChanges()).isEmpty();
+	}
+
+	@Test
+	void truncatesPartialLastLineOnOpen() throws Exception {
+		commit("tx-1", 4);
+		changeLog.close();
+		Files.writeString(dir.resolve("00000000000000000003.log"), "{\"offset\":4,\"transac",
+			StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+		changeLog = open();
+		commit("tx-2", 1);
+
+		ChangeBatchDto batch = changeLog.read(3, 10);
+		assertThat(offsetsOf(batch)).containsExactly(3L, 4L);
+		assertThat(batch.getChanges().get(1).getTransactionId()).isEqualTo("tx-2");
+	}
+
+	@Test
+	void longPollIsWokenByCommit() throws Exception {
+		commit("tx-1", 1);
+		CompletableFuture<ChangeBatchDto> poll = changeLog.poll(1, 10, 5000);
+		assertThat(poll).isNotDone();
+
+		commit("tx-2", 2);
+
+		assertThat(offsetsOf(poll.get(5, TimeUnit.SECONDS))).containsExactly(1L, 2L);
+	}
+
+	@Test
+	void longPollReturnsEmptyBatchOnTimeout() throws Exception {
+		ChangeBatchDto batch = changeLog.poll(0, 10, 20).get(5, TimeUnit.SECONDS);
+
+		assertThat(batch.getChanges()).isEmpty();
+		assertThat(batch.getNextOffset()).isZero();
+	}
+
+	private ChangeLog open() throws Exception {
+		ChangeLog log = new ChangeLog(new ObjectMapper());
+		ReflectionTestUtils.setField(log, "enabled", true);
+		ReflectionTestUtils.setField(log, "directory", dir.toString());
+		ReflectionTestUtils.setField(log, "segmentSize", 3L);
+		ReflectionTestUtils.setField(log, "fsync", false);
+		ReflectionTestUtils.setField(log, "stagingTtlMillis", 60_000L);
+		ReflectionTestUtils.setField(log, "readerThreads", 1);
+		log.open();
+		return log;
+	}
+
+	private void commit(String transactionId, int changes) {
+		for (int i = 0; i < changes; i++) {
+			int id = i;
+			changeLog.stage(transactionId, "sample", "product", "UPSERT", id, () -> Map.of("id", id));
+		}
+		changeLog.onTransactionCompleted(new TransactionCompletedEvent(transactionId, true));
+	}
+
+	private static Long[] offsetsOf(ChangeBatchDto batch) {
+		return batch.getChanges().stream().map(ChangeEventDto::getOffset).toArray(Long[]::new);
+	}
+}
@@ -0,0 +1,181 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.ProductDto;
+import com.example.demo_multiple_services.dto.ResponseStatusDto;
+import com.example.demo_multiple_services.exception.CustomException;
+import com.example.demo_multiple_services.model.IdempotencyRecord;
+import com.example.demo_multiple_services.repository.IdempotencyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+	private static final String SCOPE = "POST /product-one-pc-bff";
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final DistributedTransactionManager manager = mock(DistributedTransactionManager.class);
+
+	private final IdempotencyRepository repository = mock(IdempotencyRepository.class);
+
+	private IdempotencyService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new IdempotencyService(manager, meterRegistry, new ObjectMapper(), 100);
+		ReflectionTestUtils.setField(service, "idempotencyRepository", repository);
+	}
+
+	@Test
+	void replaysStoredResultForSameKeyAndRequest() {
+		AtomicInteger calls = new AtomicInteger();
+		ProductDto request = product(1, 100);
+
+		ResponseStatusDto first = service.execute(SCOPE, "key-1", request, () -> success(calls));
+		ResponseStatusDto second = service.execute(SCOPE, "key-1", product(1, 100), () -> success(calls));
+
+		assertThat(calls).hasValue(1);
+		assertThat(second).isSameAs(first);
+		assertThat(meterRegistry.counter("bff.idempotency.replayed").count()).isEqualTo(1.0);
+	}
+
+	@Test
+	void rejectsKeyReusedWithDifferentRequest() {
+		AtomicInteger calls = new AtomicInteger();
+		service.execute(SCOPE, "key-1", product(1, 100), () -> success(calls));
+
+		assertThatThrownBy(() -> service.execute(SCOPE, "key-1", product(1, 200), () -> success(calls)))
+			.isInstanceOfSatisfying(CustomException.class,
+				e -> assertThat(e.getErrorCode()).isEqualTo(IdempotencyService.FINGERPRINT_MISMATCH));
+		assertThat(calls).hasValue(1);
+	}
+
+	@Test
+	void coalescesConcurrentDuplicates() throws Exception {
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ProductDto request = product(1, 100);
+
+		CompletableFuture<ResponseStatusDto> leader = CompletableFuture.supplyAsync(() ->
+			service.execute(SCOPE, "key-1", request, () -> {
+				started.countDown();
+				await(release);
+				return success(calls);
+			}));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture<ResponseStatusDto> follower = CompletableFuture.supplyAsync(() ->
+			service.execute(SCOPE, "key-1", request, () -> success(calls)));
+		while (meterRegistry.counter("bff.idempotency.coalesced").count() < 1.0) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(leader.get(5, TimeUnit.SECONDS));
+		assertThat(calls).hasValue(1);
+	}
+
+	@Test
+	void failedRequestIsNotStored() {
+		AtomicInteger calls = new AtomicInteger();
+
+		assertThatThrownBy(() -> service.execute(SCOPE, "key-1", product(1, 100), () -> {
+			calls.incrementAndGet();
+			throw new CustomException("participant failed", 9300);
+		})).isInstanceOf(CustomException.class);
+		service.execute(SCOPE, "key-1", product(1, 100), () -> success(calls));
+
+		assertThat(calls).hasValue(2);
+	}
+
+	@Test
+	void stagesKeyInBusinessTransactionWhenStoreIsEnabled() throws Exception {
+		ReflectionTestUtils.setField(service, "scalarDbStoreEnabled", true);
+		DistributedTransaction lookup = mock(DistributedTransaction.class);
+		DistributedTransaction business = mock(DistributedTransaction.class);
+		when(manager.start()).thenReturn(lookup);
+		when(repository.getIdempotencyRecord(any(), anyString())).thenReturn(Optional.empty());
+		AtomicInteger calls = new AtomicInteger();
+
+		service.execute(SCOPE, "key-1", product(1, 100), () -> {
+			try {
+				service.stage(business);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+			return success(calls);
+		});
+
+		ArgumentCaptor<IdempotencyRecord> record = ArgumentCaptor.forClass(IdempotencyRecord.class);
+		verify(repository).insertIdempotencyRecord(eq(business), record.capture());
+		assertThat(record.getValue().getIdempotencyKey()).isEqualTo(SCOPE + ":key-1");
+		assertThat(record.getValue().getFingerprint()).hasSize(64);
+		verify(repository, never()).upsertIdempotencyRecord(any(), any());
+	}
+
+	@Test
+	void replaysWinnerWhenStagedInsertLosesToAnotherNode() throws Exception {
+		ReflectionTestUtils.setField(service, "scalarDbStoreEnabled", true);
+		when(manager.start()).thenReturn(mock(DistributedTransaction.class));
+		ProductDto request = product(1, 100);
+		AtomicInteger calls = new AtomicInteger();
+		// Record the winner's fingerprint by running the same request once on a scratch instance
+		IdempotencyService other = new IdempotencyService(manager, new SimpleMeterRegistry(), new ObjectMapper(), 100);
+		ReflectionTestUtils.setField(other, "idempotencyRepository", repository);
+		ReflectionTestUtils.setField(other, "scalarDbStoreEnabled", true);
+		when(repository.getIdempotencyRecord(any(), anyString())).thenReturn(Optional.empty());
+		ArgumentCaptor<IdempotencyRecord> winner = ArgumentCaptor.forClass(IdempotencyRecord.class);
+		other.execute(SCOPE, "key-1", request, () -> success(calls));
+		verify(repository).upsertIdempotencyRecord(any(), winner.capture());
+
+		when(repository.getIdempotencyRecord(any(), anyString()))
+			.thenReturn(Optional.empty())
+			.thenReturn(Optional.of(winner.getValue()));
+		ResponseStatusDto result = service.execute(SCOPE, "key-1", request, () -> {
+			throw new CustomException("conflict on bff.idempotency_key", 9200);
+		});
+
+		assertThat(result.getCode()).isZero();
+		assertThat(calls).hasValue(1);
+	}
+
+	private static ProductDto product(int id, int stock) {
+		return ProductDto.builder().id(id).stock(stock).build();
+	}
+
+	private static ResponseStatusDto success(AtomicInteger calls) {
+		calls.incrementAndGet();
+		return ResponseStatusDto.builder().code(0).message("").build();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
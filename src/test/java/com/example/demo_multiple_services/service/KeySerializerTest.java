@@ -0,0 +1,93 @@
+package com.example.demo_multiple_services.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeySerializerTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private KeySerializer serializer;
+
+	@BeforeEach
+	void setUp() {
+		serializer = new KeySerializer(meterRegistry, 1024);
+		ReflectionTestUtils.setField(serializer, "enabled", true);
+		ReflectionTestUtils.setField(serializer, "maxWaitMillis", 5000L);
+	}
+
+	@Test
+	void sameKeyRunsOneAfterAnother() throws Exception {
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		CompletableFuture<?>[] calls = new CompletableFuture<?>[8];
+		for (int i = 0; i < calls.length; i++) {
+			calls[i] = CompletableFuture.runAsync(() -> serializer.execute("ns", "product", 1, () -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				sleep(10);
+				return running.decrementAndGet();
+			}));
+		}
+		CompletableFuture.allOf(calls).get(10, TimeUnit.SECONDS);
+
+		assertThat(maxRunning).hasValue(1);
+		assertThat(meterRegistry.counter("key.lock.timeouts").count()).isZero();
+	}
+
+	@Test
+	void runsWithoutTurnAfterBoundedWait() throws Exception {
+		ReflectionTestUtils.setField(serializer, "maxWaitMillis", 20L);
+		CountDownLatch holding = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<String> holder = CompletableFuture.supplyAsync(() -> serializer.execute("ns", "product", 1, () -> {
+			holding.countDown();
+			await(release);
+			return "holder";
+		}));
+		assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(serializer.execute("ns", "product", 1, () -> "late")).isEqualTo("late");
+		assertThat(meterRegistry.counter("key.lock.timeouts").count()).isEqualTo(1.0);
+
+		release.countDown();
+		assertThat(holder.get(5, TimeUnit.SECONDS)).isEqualTo("holder");
+	}
+
+	@Test
+	void releasesTurnWhenTransactionFails() {
+		assertThatThrownBy(() -> serializer.execute("ns", "product", 1, () -> {
+			throw new IllegalStateException("aborted");
+		})).isInstanceOf(IllegalStateException.class);
+		// Without waiting, so that a turn still held by the failed transaction shows up as a timeout
+		ReflectionTestUtils.setField(serializer, "maxWaitMillis", 0L);
+
+		assertThat(serializer.execute("ns", "product", 1, () -> "next")).isEqualTo("next");
+		assertThat(meterRegistry.counter("key.lock.timeouts").count()).isZero();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,172 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.OrderDto;
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.example.demo_multiple_services.model.OrderSaga;
+import com.example.demo_multiple_services.repository.OrderRepository;
+import com.example.demo_multiple_services.repository.OrderSagaRepository;
+import com.example.demo_multiple_services.repository.ProductRepository;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import com.scalar.db.exception.transaction.CrudConflictException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderSagaServiceTest {
+
+	private final DistributedTransactionManager manager = mock(DistributedTransactionManager.class);
+
+	private final ProductRepository productRepository = mock(ProductRepository.class);
+
+	private final OrderRepository orderRepository = mock(OrderRepository.class);
+
+	// The order_saga table, holding copies so that the service cannot change a stored saga in place
+	private final Map<String, OrderSaga> sagas = new ConcurrentHashMap<>();
+
+	private OrderSagaService service;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		when(manager.start()).thenAnswer(invocation -> mock(DistributedTransaction.class));
+		when(manager.startReadOnly()).thenAnswer(invocation -> mock(DistributedTransaction.class));
+
+		OrderSagaRepository orderSagaRepository = mock(OrderSagaRepository.class);
+		when(orderSagaRepository.getOrderSaga(any(), anyString()))
+			.thenAnswer(invocation -> Optional.ofNullable(sagas.get(invocation.<String>getArgument(1))).map(OrderSagaServiceTest::copy));
+		when(orderSagaRepository.insertOrderSaga(any(), any())).thenAnswer(invocation -> store(invocation.getArgument(1)));
+		when(orderSagaRepository.updateOrderSaga(any(), any())).thenAnswer(invocation -> store(invocation.getArgument(1)));
+		when(orderSagaRepository.getOrderSagaListByStatus(any(), any(), anyInt())).thenAnswer(invocation ->
+			sagas.values().stream().filter(saga -> saga.getStatus() == invocation.getArgument(1)).map(OrderSagaServiceTest::copy).toList());
+
+		service = new OrderSagaService(manager, new SimpleMeterRegistry(), 1, 100);
+		service.orderSagaRepository = orderSagaRepository;
+		service.productRepository = productRepository;
+		service.orderRepository = orderRepository;
+		service.stockEscrowService = mock(StockEscrowService.class);
+		service.transactionTracker = mock(TransactionTracker.class);
+		service.idempotencyService = mock(IdempotencyService.class);
+		ReflectionTestUtils.setField(service, "enabled", true);
+		ReflectionTestUtils.setField(service, "maxAttempts", 2);
+		ReflectionTestUtils.setField(service, "retryDelayMillis", 0L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void reservesStockThenRecordsOrder() throws Exception {
+		when(productRepository.reserveStock(any(), eq(1), eq(3))).thenReturn(reservation(true));
+
+		service.submit(order("o-1"));
+
+		assertThat(awaitSettled("o-1").getStatus()).isEqualTo(OrderSaga.Status.COMPLETED);
+		verify(orderRepository).insertOrder(any(), any());
+		verify(productRepository, never()).releaseStock(any(), any(), anyInt());
+	}
+
+	@Test
+	void failsWithoutOrderWhenOutOfStock() throws Exception {
+		when(productRepository.reserveStock(any(), eq(1), eq(3))).thenReturn(reservation(false));
+
+		service.submit(order("o-1"));
+
+		OrderSaga saga = awaitSettled("o-1");
+		assertThat(saga.getStatus()).isEqualTo(OrderSaga.Status.FAILED);
+		assertThat(saga.getMessage()).isEqualTo("We are out of stock.");
+		verify(orderRepository, never()).insertOrder(any(), any());
+	}
+
+	@Test
+	void releasesStockWhenOrderCannotBeRecorded() throws Exception {
+		when(productRepository.reserveStock(any(), eq(1), eq(3))).thenReturn(reservation(true));
+		when(orderRepository.insertOrder(any(), any())).thenThrow(new IllegalArgumentException("invalid order"));
+
+		service.submit(order("o-1"));
+
+		assertThat(awaitSettled("o-1").getStatus()).isEqualTo(OrderSaga.Status.COMPENSATED);
+		verify(productRepository).releaseStock(any(), eq(1), eq(3));
+	}
+
+	@Test
+	void retriesConflictsUntilMaxAttempts() throws Exception {
+		when(productRepository.reserveStock(any(), eq(1), eq(3)))
+			.thenThrow(new CrudConflictException("conflict", "tx-1"));
+
+		service.submit(order("o-1"));
+		awaitAttempts("o-1", 1);
+		assertThat(sagas.get("o-1").getStatus()).isEqualTo(OrderSaga.Status.PENDING);
+
+		// The sweep skips the saga until its worker has let go of it
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!sagas.get("o-1").getStatus().isTerminal() && System.currentTimeMillis() < deadline) {
+			service.recoverSagas();
+			Thread.sleep(5);
+		}
+
+		OrderSaga saga = awaitSettled("o-1");
+		assertThat(saga.getStatus()).isEqualTo(OrderSaga.Status.FAILED);
+		assertThat(saga.getAttempts()).isEqualTo(2);
+	}
+
+	private OrderSaga awaitSettled(String orderId) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < deadline) {
+			OrderSaga saga = sagas.get(orderId);
+			if (saga != null && saga.getStatus().isTerminal()) {
+				return saga;
+			}
+			Thread.sleep(5);
+		}
+		throw new AssertionError("Saga " + orderId + " did not settle: " + sagas.get(orderId));
+	}
+
+	private void awaitAttempts(String orderId, int attempts) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < deadline) {
+			OrderSaga saga = sagas.get(orderId);
+			if (saga != null && saga.getAttempts() >= attempts) {
+				return;
+			}
+			Thread.sleep(5);
+		}
+		throw new AssertionError("Saga " + orderId + " did not reach " + attempts + " attempts: " + sagas.get(orderId));
+	}
+
+	private OrderSaga store(OrderSaga saga) {
+		sagas.put(saga.getOrderId(), copy(saga));
+		return saga;
+	}
+
+	private static OrderSaga copy(OrderSaga saga) {
+		return new OrderSaga(saga.getOrderId(), saga.getProductId(), saga.getOrderQty(), saga.getOrderDatetime(),
+			saga.getStatus(), saga.getMessage(), saga.getAttempts(), saga.getCreatedAt(), saga.getUpdatedAt());
+	}
+
+	private static OrderDto order(String id) {
+		return OrderDto.builder().id(id).productId(1).orderQty(3).orderDatetime(LocalDateTime.now()).build();
+	}
+
+	private static StockReservationDto reservation(boolean reserved) {
+		return StockReservationDto.builder().productId(1).quantity(3).reserved(reserved).build();
+	}
+}
@@ -0,0 +1,162 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.exception.ParticipantUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ParticipantLoadBalancerTest {
+
+	private static final String PATH = "/product-one-pc/1";
+
+	private static final long MILLIS = 1_000_000L;
+
+	@Test
+	void defaultsToThisApplication() {
+		ParticipantLoadBalancer balancer = balancer(new MockEnvironment());
+
+		assertThat(balancer.select(PATH).getBaseUrl()).isEqualTo("http://localhost:8080");
+	}
+
+	@Test
+	void instanceListWithoutUrlsFailsStartup() {
+		MockEnvironment environment = new MockEnvironment().withProperty("participants.instances.product", " , ");
+		ParticipantLoadBalancer balancer = balancer(environment);
+
+		assertThatThrownBy(balancer::validateInstances)
+			.isInstanceOf(ParticipantUnavailableException.class)
+			.hasMessageContaining("participants.instances.product");
+		assertThatThrownBy(() -> balancer.select(PATH)).isInstanceOf(ParticipantUnavailableException.class);
+	}
+
+	@Test
+	void powerOfTwoChoicesPrefersFasterInstance() {
+		ParticipantLoadBalancer balancer = balancer(instances("http://a:8080", "http://b:8080"));
+		// Keep the slow instance in rotation, so that only the choice between the two is tested
+		ReflectionTestUtils.setField(balancer, "ejectionLatencyFactor", 1000.0);
+		balancer.select(PATH);
+		ParticipantLoadBalancer.Instance fast = balancer.find("http://a:8080" + PATH);
+		ParticipantLoadBalancer.Instance slow = balancer.find("http://b:8080" + PATH);
+		for (int i = 0; i < 5; i++) {
+			call(balancer, fast, 1 * MILLIS, null);
+			call(balancer, slow, 100 * MILLIS, null);
+		}
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(balancer.select(PATH)).isSameAs(fast);
+		}
+	}
+
+	@Test
+	void consecutiveFailuresEjectInstance() {
+		ParticipantLoadBalancer balancer = balancer(instances("http://a:8080", "http://b:8080"));
+		balancer.select(PATH);
+		ParticipantLoadBalancer.Instance failing = balancer.find("http://a:8080" + PATH);
+		ParticipantLoadBalancer.Instance healthy = balancer.find("http://b:8080" + PATH);
+
+		for (int i = 0; i < 3; i++) {
+			call(balancer, failing, 1 * MILLIS, new ResourceAccessException("connection refused"));
+		}
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(balancer.select(PATH)).isSameAs(healthy);
+		}
+	}
+
+	@Test
+	void affinityKeepsTransactionOnOneInstance() {
+		ParticipantLoadBalancer balancer = balancer(instances("http://a:8080", "http://b:8080", "http://c:8080"));
+
+		ParticipantLoadBalancer.Instance preferred = balancer.select(PATH, "tx-1");
+		for (int i = 0; i < 20; i++) {
+			assertThat(balancer.select("/product-one-pc/" + i, "tx-1")).isSameAs(preferred);
+		}
+
+		Set<String> used = new HashSet<>();
+		for (int i = 0; i < 100; i++) {
+			used.add(balancer.select(PATH, "tx-" + i).getBaseUrl());
+		}
+		assertThat(used).hasSize(3);
+	}
+
+	@Test
+	void affinityMovesTransactionWhenPinnedInstanceIsEjected() {
+		ParticipantLoadBalancer balancer = balancer(instances("http://a:8080", "http://b:8080", "http://c:8080"));
+		ParticipantLoadBalancer.Instance preferred = balancer.select(PATH, "tx-1");
+
+		for (int i = 0; i < 3; i++) {
+			call(balancer, preferred, 1 * MILLIS, new ResourceAccessException("connection refused"));
+		}
+
+		ParticipantLoadBalancer.Instance fallback = balancer.select(PATH, "tx-1");
+		assertThat(fallback).isNotSameAs(preferred);
+		for (int i = 0; i < 20; i++) {
+			assertThat(balancer.select(PATH, "tx-1")).isSameAs(fallback);
+		}
+	}
+
+	@Test
+	void affinityPlacesNewTransactionsByLatency() {
+		ParticipantLoadBalancer balancer = balancer(instances("http://a:8080", "http://b:8080"));
+		ReflectionTestUtils.setField(balancer, "ejectionLatencyFactor", 1000.0);
+		balancer.select(PATH);
+		ParticipantLoadBalancer.Instance fast = balancer.find("http://a:8080" + PATH);
+		ParticipantLoadBalancer.Instance slow = balancer.find("http://b:8080" + PATH);
+		for (int i = 0; i < 5; i++) {
+			call(balancer, fast, 1 * MILLIS, null);
+			call(balancer, slow, 100 * MILLIS, null);
+		}
+
+		for (int i = 0; i < 20; i++) {
+			assertThat(balancer.select(PATH, "tx-" + i)).isSameAs(fast);
+		}
+	}
+
+	@Test
+	void completedTransactionReleasesItsInstance() {
+		ParticipantLoadBalancer balancer = balancer(instances("http://a:8080", "http://b:8080"));
+		ReflectionTestUtils.setField(balancer, "ejectionLatencyFactor", 1000.0);
+		ParticipantLoadBalancer.Instance pinned = balancer.select(PATH, "tx-1");
+		ParticipantLoadBalancer.Instance other = balancer.find(
+			(pinned.getBaseUrl().equals("http://a:8080") ? "http://b:8080" : "http://a:8080") + PATH);
+		for (int i = 0; i < 5; i++) {
+			call(balancer, pinned, 100 * MILLIS, null);
+			call(balancer, other, 1 * MILLIS, null);
+		}
+		assertThat(balancer.select(PATH, "tx-1")).isSameAs(pinned);
+
+		balancer.onTransactionCompleted(new TransactionCompletedEvent("tx-1", true));
+
+		assertThat(balancer.select(PATH, "tx-1")).isSameAs(other);
+	}
+
+	private static MockEnvironment instances(String... urls) {
+		return new MockEnvironment().withProperty("participants.instances.product", String.join(",", urls));
+	}
+
+	private static ParticipantLoadBalancer balancer(MockEnvironment environment) {
+		ParticipantLoadBalancer balancer = new ParticipantLoadBalancer(environment, mock(RestTemplate.class), new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(balancer, "serverPort", "8080");
+		ReflectionTestUtils.setField(balancer, "affinityEnabled", true);
+		ReflectionTestUtils.setField(balancer, "ejectionFailures", 3);
+		ReflectionTestUtils.setField(balancer, "ejectionLatencyFactor", 5.0);
+		ReflectionTestUtils.setField(balancer, "ejectionMillis", 30_000L);
+		return balancer;
+	}
+
+	private static void call(ParticipantLoadBalancer balancer, ParticipantLoadBalancer.Instance instance,
+							 long latencyNanos, Throwable error) {
+		balancer.start(instance);
+		balancer.record(instance, latencyNanos, error);
+	}
+}
@@ -0,0 +1,191 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.dto.StockReservationDto;
+import com.example.demo_multiple_services.model.Product;
+import com.example.demo_multiple_services.model.StockEscrow;
+import com.example.demo_multiple_services.repository.ProductRepository;
+import com.example.demo_multiple_services.repository.StockEscrowRepository;
+import com.scalar.db.api.DistributedTransaction;
+import com.scalar.db.api.DistributedTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockEscrowServiceTest {
+
+	private static final int PRODUCT_ID = 1;
+
+	private final DistributedTransactionManager manager = mock(DistributedTransactionManager.class);
+
+	private final ProductRepository productRepository = mock(ProductRepository.class);
+
+	private final StockEscrowRepository stockEscrowRepository = mock(StockEscrowRepository.class);
+
+	// product.stock of PRODUCT_ID, and the stock_escrow rows of PRODUCT_ID by node ID
+	private final int[] stock = new int[1];
+	private final Map<String, Integer> quotas = new ConcurrentHashMap<>();
+
+	// Holds back refills until a test lets them run
+	private final CountDownLatch refillsReleased = new CountDownLatch(1);
+	private final ExecutorService refiller = Executors.newSingleThreadExecutor();
+
+	private StockEscrowService service;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		when(manager.start()).thenAnswer(invocation -> mock(DistributedTransaction.class));
+
+		when(productRepository.getProduct(any(), any()))
+			.thenAnswer(invocation -> Product.builder().id(PRODUCT_ID).productName("p").stock(stock[0]).build());
+		when(productRepository.reserveStock(any(), eq(PRODUCT_ID), anyInt())).thenAnswer(invocation -> {
+			int quantity = invocation.getArgument(2);
+			boolean reserved = stock[0] >= quantity;
+			if (reserved) {
+				stock[0] -= quantity;
+			}
+			return StockReservationDto.builder().productId(PRODUCT_ID).quantity(quantity).reserved(reserved).remainingStock(stock[0]).build();
+		});
+		when(productRepository.releaseStock(any(), eq(PRODUCT_ID), anyInt())).thenAnswer(invocation -> {
+			stock[0] += invocation.<Integer>getArgument(2);
+			return Product.builder().id(PRODUCT_ID).productName("p").stock(stock[0]).build();
+		});
+
+		when(stockEscrowRepository.getStockEscrow(any(), eq(PRODUCT_ID), anyString()))
+			.thenAnswer(invocation -> Optional.ofNullable(quotas.get(invocation.<String>getArgument(2)))
+				.map(quota -> new StockEscrow(PRODUCT_ID, invocation.getArgument(2), quota, 0L)));
+		when(stockEscrowRepository.getStockEscrowListByProduct(any(), eq(PRODUCT_ID)))
+			.thenAnswer(invocation -> quotas.entrySet().stream()
+				.map(entry -> new StockEscrow(PRODUCT_ID, entry.getKey(), entry.getValue(), 0L)).toList());
+		when(stockEscrowRepository.upsertStockEscrow(any(), any())).thenAnswer(invocation -> {
+			StockEscrow escrow = invocation.getArgument(1);
+			quotas.put(escrow.getNodeId(), escrow.getQuota());
+			return escrow;
+		});
+
+		service = new StockEscrowService(manager, new SimpleMeterRegistry());
+		service.productRepository = productRepository;
+		service.stockEscrowRepository = stockEscrowRepository;
+		service.transactionTracker = mock(TransactionTracker.class);
+		ReflectionTestUtils.setField(service, "enabled", true);
+		ReflectionTestUtils.setField(service, "nodeId", "node-a");
+		ReflectionTestUtils.setField(service, "quotaSize", 10);
+		ReflectionTestUtils.setField(service, "lowWatermark", 2);
+		ReflectionTestUtils.setField(service, "idleReturnMillis", 60_000L);
+		refiller.execute(() -> {
+			try {
+				refillsReleased.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		ReflectionTestUtils.setField(service, "refiller", refiller);
+	}
+
+	@AfterEach
+	void tearDown() {
+		refiller.shutdownNow();
+	}
+
+	@Test
+	void takesOrderFromQuotaWhenItCovers() throws Exception {
+		stock[0] = 100;
+		quotas.put("node-a", 10);
+
+		StockReservationDto reservation = service.consume(mock(DistributedTransaction.class), PRODUCT_ID, 3);
+
+		assertThat(reservation.isReserved()).isTrue();
+		assertThat(reservation.getRemainingStock()).isEqualTo(7);
+		assertThat(quotas).containsEntry("node-a", 7);
+		assertThat(stock[0]).isEqualTo(100);
+		verify(productRepository, never()).reserveStock(any(), anyInt(), anyInt());
+	}
+
+	@Test
+	void takesShortfallFromProductRow() throws Exception {
+		stock[0] = 5;
+		quotas.put("node-a", 2);
+
+		StockReservationDto reservation = service.consume(mock(DistributedTransaction.class), PRODUCT_ID, 4);
+
+		assertThat(reservation.isReserved()).isTrue();
+		assertThat(reservation.getRemainingStock()).isEqualTo(3);
+		assertThat(quotas).containsEntry("node-a", 0);
+		assertThat(stock[0]).isEqualTo(3);
+	}
+
+	@Test
+	void takesRestFromOtherNodesOnceProductRowRunsOut() throws Exception {
+		stock[0] = 2;
+		quotas.put("node-a", 1);
+		quotas.put("node-b", 5);
+
+		StockReservationDto reservation = service.consume(mock(DistributedTransaction.class), PRODUCT_ID, 6);
+
+		assertThat(reservation.isReserved()).isTrue();
+		assertThat(quotas).containsEntry("node-a", 0).containsEntry("node-b", 2);
+		assertThat(stock[0]).isZero();
+	}
+
+	@Test
+	void refusesOnlyWhenAllAvailableStockIsShort() throws Exception {
+		stock[0] = 2;
+		quotas.put("node-a", 1);
+		quotas.put("node-b", 2);
+
+		StockReservationDto reservation = service.consume(mock(DistributedTransaction.class), PRODUCT_ID, 6);
+
+		assertThat(reservation.isReserved()).isFalse();
+		assertThat(quotas).containsEntry("node-a", 1).containsEntry("node-b", 2);
+		assertThat(stock[0]).isEqualTo(2);
+		verify(stockEscrowRepository, never()).upsertStockEscrow(any(), any());
+		verify(productRepository, never()).reserveStock(any(), anyInt(), anyInt());
+	}
+
+	@Test
+	void refillsQuotaFromProductRow() throws Exception {
+		stock[0] = 50;
+
+		service.consume(mock(DistributedTransaction.class), PRODUCT_ID, 5);
+		assertThat(stock[0]).isEqualTo(45);
+
+		refillsReleased.countDown();
+		refiller.shutdown();
+		assertThat(refiller.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThat(quotas).containsEntry("node-a", 10);
+		assertThat(stock[0]).isEqualTo(35);
+	}
+
+	@Test
+	void returnsIdleQuotaToProductRow() throws Exception {
+		stock[0] = 0;
+		quotas.put("node-a", 8);
+		service.consume(mock(DistributedTransaction.class), PRODUCT_ID, 1);
+
+		ReflectionTestUtils.setField(service, "idleReturnMillis", 0L);
+		service.returnIdleEscrow();
+
+		assertThat(quotas).containsEntry("node-a", 0);
+		assertThat(stock[0]).isEqualTo(7);
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.demo_multiple_services.service;
+
+import com.example.demo_multiple_services.util.RequestDeadline;
+import com.scalar.db.api.DistributedTransaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionTrackerTest {
+
+	private final List<Object> events = new ArrayList<>();
+
+	private TransactionTracker tracker;
+
+	@BeforeEach
+	void setUp() {
+		tracker = new TransactionTracker(new SimpleMeterRegistry(), events::add);
+		ReflectionTestUtils.setField(tracker, "timeoutMillis", 0L);
+	}
+
+	@AfterEach
+	void tearDown() {
+		RequestDeadline.clear();
+	}
+
+	@Test
+	void sweepExpiresOwnedTransactionWithoutRollingItBack() throws Exception {
+		ReflectionTestUtils.setField(tracker, "timeoutMillis", 1L);
+		DistributedTransaction transaction = transaction("tx-1");
+		tracker.track(transaction, "test");
+		Thread.sleep(5);
+
+		tracker.abortExpiredTransactions();
+
+		verify(transaction, never()).rollback();
+		assertThat(tracker.isExpired("tx-1")).isTrue();
+		assertThat(RequestDeadline.remainingMillis()).isZero();
+
+		tracker.complete("tx-1", false);
+		assertThat(tracker.getActiveTransactions()).isEmpty();
+		assertThat(RequestDeadline.remainingMillis()).isEqualTo(Long.MAX_VALUE);
+	}
+
+	@Test
+	void sweepRollsBackOrphanedTransaction() throws Exception {
+		ReflectionTestUtils.setField(tracker, "timeoutMillis", 1L);
+		DistributedTransaction transaction = transaction("tx-2");
+		tracker.track(transaction, "test");
+		// The request ends without completing the transaction
+		RequestDeadline.clear();
+		Thread.sleep(5);
+
+		tracker.abortExpiredTransactions();
+
+		verify(transaction).rollback();
+		assertThat(tracker.getActiveTransactions()).isEmpty();
+		assertThat(events).hasSize(1);
+	}
+
+	@Test
+	void transactionWithoutDeadlineIsNeverExpired() throws Exception {
+		ReflectionTestUtils.setField(tracker, "timeoutMillis", 1L);
+		DistributedTransaction transaction = transaction("tx-3");
+		tracker.track(transaction, "export", 0);
+		Thread.sleep(5);
+
+		tracker.abortExpiredTransactions();
+
+		assertThat(tracker.isExpired("tx-3")).isFalse();
+		assertThat(RequestDeadline.remainingMillis()).isEqualTo(Long.MAX_VALUE);
+	}
+
+	@Test
+	void abortExpiresOwnedTransaction() throws Exception {
+		DistributedTransaction transaction = transaction("tx-4");
+		tracker.track(transaction, "test");
+
+		assertThat(tracker.abort("tx-4")).isTrue();
+
+		verify(transaction, never()).rollback();
+		assertThatDeadlineExceeded();
+		assertThat(tracker.abort("unknown")).isFalse();
+	}
+
+	private static void assertThatDeadlineExceeded() {
+		assertThat(RequestDeadline.remainingMillis()).isLessThanOrEqualTo(0);
+	}
+
+	private static DistributedTransaction transaction(String id) {
+		DistributedTransaction transaction = mock(DistributedTransaction.class);
+		when(transaction.getId()).thenReturn(id);
+		return transaction;
+	}
+}
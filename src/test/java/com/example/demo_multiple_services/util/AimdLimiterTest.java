@@ -0,0 +1,72 @@
+package com.example.demo_multiple_services.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdLimiterTest {
+
+	private static final long MILLIS = 1_000_000L;
+
+	@Test
+	void rejectsOverLimitAndReservesShareForCriticalRequests() {
+		AimdLimiter limiter = new AimdLimiter(10, 1, 100, 0.5, 100, 0.2);
+
+		for (int i = 0; i < 8; i++) {
+			assertThat(limiter.tryAcquire(false)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(false)).isFalse();
+		assertThat(limiter.tryAcquire(true)).isTrue();
+		assertThat(limiter.tryAcquire(true)).isTrue();
+		assertThat(limiter.tryAcquire(true)).isFalse();
+		assertThat(limiter.getRejectedCount()).isEqualTo(2);
+	}
+
+	@Test
+	void decreasesAtMostOncePerLatencyWindow() {
+		AimdLimiter limiter = new AimdLimiter(16, 1, 100, 0.5, 100, 0.2);
+		for (int i = 0; i < 4; i++) {
+			limiter.tryAcquire(true);
+		}
+
+		long now = 1_000 * MILLIS;
+		limiter.release(500 * MILLIS, false, now);
+		limiter.release(500 * MILLIS, false, now + 10 * MILLIS);
+		limiter.release(1 * MILLIS, true, now + 50 * MILLIS);
+		assertThat(limiter.getLimit()).isEqualTo(8);
+
+		limiter.release(500 * MILLIS, false, now + 100 * MILLIS);
+		assertThat(limiter.getLimit()).isEqualTo(4);
+	}
+
+	@Test
+	void growsOnlyWhileLimitIsUsed() {
+		AimdLimiter limiter = new AimdLimiter(4, 1, 100, 0.5, 100, 0.2);
+
+		limiter.tryAcquire(true);
+		limiter.release(1 * MILLIS, false, 0);
+		assertThat(limiter.getLimit()).isEqualTo(4);
+
+		for (int round = 0; round < 8; round++) {
+			for (int i = 0; i < 4; i++) {
+				limiter.tryAcquire(true);
+			}
+			for (int i = 0; i < 4; i++) {
+				limiter.release(1 * MILLIS, false, 0);
+			}
+		}
+		assertThat(limiter.getLimit()).isGreaterThan(4);
+		assertThat(limiter.getInFlight()).isZero();
+	}
+
+	@Test
+	void neverDropsBelowMinimum() {
+		AimdLimiter limiter = new AimdLimiter(4, 2, 100, 0.1, 100, 0.2);
+
+		for (int i = 0; i < 5; i++) {
+			limiter.tryAcquire(true);
+			limiter.release(1 * MILLIS, true, i * 200 * MILLIS);
+		}
+		assertThat(limiter.getLimit()).isEqualTo(2);
+	}
+}
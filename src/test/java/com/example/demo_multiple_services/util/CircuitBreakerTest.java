@@ -0,0 +1,98 @@
+package com.example.demo_multiple_services.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+	private static final long FAST = 1_000_000L;
+
+	@Test
+	void opensWhenFailureRateReachesThreshold() {
+		CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 1.0, 100, 60_000);
+
+		record(breaker, false);
+		record(breaker, true);
+		record(breaker, false);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+		record(breaker, true);
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(breaker.tryAcquire()).isNegative();
+	}
+
+	@Test
+	void opensWhenSlowCallRateReachesThreshold() {
+		CircuitBreaker breaker = new CircuitBreaker(10, 2, 1.0, 0.5, 100, 60_000);
+
+		breaker.onResult(breaker.tryAcquire(), FAST, false);
+		breaker.onResult(breaker.tryAcquire(), 200 * FAST, false);
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void halfOpenAdmitsSingleTrialThatClosesOnSuccess() throws Exception {
+		CircuitBreaker breaker = openBreaker(20);
+		Thread.sleep(30);
+
+		long trial = breaker.tryAcquire();
+		assertThat(trial).isNotNegative();
+		assertThat(breaker.tryAcquire()).isNegative();
+		breaker.onResult(trial, FAST, false);
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	void failedTrialOpensAgain() throws Exception {
+		CircuitBreaker breaker = openBreaker(20);
+		Thread.sleep(30);
+
+		breaker.onResult(breaker.tryAcquire(), FAST, true);
+
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void staleCallDoesNotDecideHalfOpenTrial() throws Exception {
+		CircuitBreaker breaker = new CircuitBreaker(10, 2, 0.5, 1.0, 100, 20);
+		long stale = breaker.tryAcquire();
+		record(breaker, true);
+		record(breaker, true);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		Thread.sleep(30);
+
+		long trial = breaker.tryAcquire();
+		// The call admitted before the breaker opened succeeds only now
+		breaker.onResult(stale, FAST, false);
+		assertThat(breaker.tryAcquire()).isNegative();
+
+		breaker.onResult(trial, FAST, true);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	void cancelledTrialFreesHalfOpenSlot() throws Exception {
+		CircuitBreaker breaker = openBreaker(20);
+		Thread.sleep(30);
+
+		long trial = breaker.tryAcquire();
+		breaker.onCancel(trial);
+
+		assertThat(breaker.tryAcquire()).isNotNegative();
+	}
+
+	private static CircuitBreaker openBreaker(long openMillis) {
+		CircuitBreaker breaker = new CircuitBreaker(10, 2, 0.5, 1.0, 100, openMillis);
+		record(breaker, true);
+		record(breaker, true);
+		assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		return breaker;
+	}
+
+	private static void record(CircuitBreaker breaker, boolean failure) {
+		breaker.onResult(breaker.tryAcquire(), FAST, failure);
+	}
+}
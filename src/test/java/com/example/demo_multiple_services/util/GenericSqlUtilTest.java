@@ -0,0 +1,85 @@
+package com.example.demo_multiple_services.util;
+
+import com.example.demo_multiple_services.dto.ColumnarResultDto;
+import com.scalar.db.sql.ColumnDefinition;
+import com.scalar.db.sql.ColumnDefinitions;
+import com.scalar.db.sql.DataType;
+import com.scalar.db.sql.Record;
+import com.scalar.db.sql.ResultSet;
+import com.scalar.db.sql.SqlSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GenericSqlUtilTest {
+
+	@Test
+	void columnarResultSendsHeaderOnceAndRowsInHeaderOrder() {
+		Record first = mock(Record.class);
+		when(first.getInt(0)).thenReturn(1);
+		when(first.getText(1)).thenReturn("apple");
+		Record second = mock(Record.class);
+		when(second.getInt(0)).thenReturn(2);
+		when(second.isNull(1)).thenReturn(true);
+		SqlSession sqlSession = session("SELECT * FROM sample.product", List.of(first, second),
+			column("id", DataType.INT), column("product_name", DataType.TEXT));
+
+		ColumnarResultDto result = new GenericSqlUtil(sqlSession).executeQueryColumnar("SELECT * FROM sample.product");
+
+		assertThat(result.getColumns()).extracting(ColumnarResultDto.Column::getName).containsExactly("id", "product_name");
+		assertThat(result.getColumns()).extracting(ColumnarResultDto.Column::getType).containsExactly("INT", "TEXT");
+		assertThat(result.getRows()).hasSize(2);
+		assertThat(result.getRows().get(0)).containsExactly(1, "apple");
+		assertThat(result.getRows().get(1)).containsExactly(2, null);
+	}
+
+	@Test
+	void emptyResultKeepsHeader() {
+		SqlSession sqlSession = session("SELECT id FROM sample.product", List.of(), column("id", DataType.INT));
+
+		ColumnarResultDto result = new GenericSqlUtil(sqlSession).executeQueryColumnar("SELECT id FROM sample.product");
+
+		assertThat(result.getColumns()).hasSize(1);
+		assertThat(result.getRows()).isEmpty();
+	}
+
+	@Test
+	void mapResultKeysValuesByColumnName() {
+		Record record = mock(Record.class);
+		when(record.getInt(0)).thenReturn(1);
+		when(record.getText(1)).thenReturn("apple");
+		SqlSession sqlSession = session("SELECT * FROM sample.product", List.of(record),
+			column("id", DataType.INT), column("product_name", DataType.TEXT));
+
+		List<Map<String, Object>> result = new GenericSqlUtil(sqlSession).executeQuery("SELECT * FROM sample.product");
+
+		assertThat(result).containsExactly(Map.of("id", 1, "product_name", "apple"));
+	}
+
+	private static ColumnDefinition column(String name, DataType type) {
+		ColumnDefinition column = mock(ColumnDefinition.class);
+		when(column.getColumnName()).thenReturn(name);
+		when(column.getDataType()).thenReturn(type);
+		return column;
+	}
+
+	private static SqlSession session(String sql, List<Record> records, ColumnDefinition... columns) {
+		ColumnDefinitions definitions = mock(ColumnDefinitions.class);
+		when(definitions.size()).thenReturn(columns.length);
+		for (int i = 0; i < columns.length; i++) {
+			when(definitions.getColumnDefinition(i)).thenReturn(columns[i]);
+		}
+		ResultSet resultSet = mock(ResultSet.class);
+		when(resultSet.getColumnDefinitions()).thenReturn(definitions);
+		when(resultSet.iterator()).thenAnswer(invocation -> records.iterator());
+		when(resultSet.all()).thenReturn(records);
+		SqlSession sqlSession = mock(SqlSession.class);
+		when(sqlSession.execute(sql)).thenReturn(resultSet);
+		return sqlSession;
+	}
+}
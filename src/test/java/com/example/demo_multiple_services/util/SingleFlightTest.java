@@ -0,0 +1,142 @@
+package com.example.demo_multiple_services.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+	@Test
+	void concurrentCallsWithSameKeyShareOneExecution() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<Integer> leader = executor.submit(() -> singleFlight.execute("product:1", () -> {
+				executions.incrementAndGet();
+				leaderStarted.countDown();
+				await(release);
+				return 42;
+			}));
+			assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+			List<Future<Integer>> followers = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				followers.add(executor.submit(() -> singleFlight.execute("product:1", () -> {
+					executions.incrementAndGet();
+					return -1;
+				})));
+			}
+			while (singleFlight.getCoalescedCount() < 3) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+
+			assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+			for (Future<Integer> follower : followers) {
+				assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(42);
+			}
+			assertThat(executions.get()).isEqualTo(1);
+			assertThat(singleFlight.getIssuedCount()).isEqualTo(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void completedCallIsNotCached() {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+		assertThat(singleFlight.execute("product:1", () -> 1)).isEqualTo(1);
+		assertThat(singleFlight.execute("product:1", () -> 2)).isEqualTo(2);
+		assertThat(singleFlight.getIssuedCount()).isEqualTo(2);
+	}
+
+	@Test
+	void failureIsPropagatedAndKeyIsReleased() {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+		assertThatThrownBy(() -> singleFlight.execute("product:1", () -> {
+			throw new IllegalStateException("boom");
+		})).isInstanceOf(IllegalStateException.class).hasMessage("boom");
+		assertThat(singleFlight.execute("product:1", () -> 3)).isEqualTo(3);
+	}
+
+	@Test
+	void callerDoesNotJoinFlightStartedBeforeItsRequest() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> leader = executor.submit(() -> singleFlight.execute("product:1", () -> {
+				leaderStarted.countDown();
+				await(release);
+				return 1;
+			}));
+			assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+			// The caller's request arrived after the leader's read had started
+			long requestStartedAt = System.nanoTime();
+			assertThat(singleFlight.execute("product:1", requestStartedAt, () -> 2)).isEqualTo(2);
+			release.countDown();
+
+			assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+			assertThat(singleFlight.getCoalescedCount()).isZero();
+			assertThat(singleFlight.getIssuedCount()).isEqualTo(2);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void callerJoinsFlightStartedAfterItsRequest() throws Exception {
+		SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+		long requestStartedAt = System.nanoTime();
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			Future<Integer> leader = executor.submit(() -> singleFlight.execute("product:1", () -> {
+				leaderStarted.countDown();
+				await(release);
+				return 1;
+			}));
+			assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+			Future<Integer> follower = executor.submit(() -> singleFlight.execute("product:1", requestStartedAt, () -> 2));
+			while (singleFlight.getCoalescedCount() < 1) {
+				Thread.sleep(10);
+			}
+			release.countDown();
+
+			assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+			assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.demo_multiple_services.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedLocksTest {
+
+	@Test
+	void sameKeyWaitsForHolder() throws Exception {
+		StripedLocks locks = new StripedLocks(16);
+		assertThat(locks.tryLock("product:1", 0)).isTrue();
+
+		assertThat(CompletableFuture.supplyAsync(() -> tryLock(locks, "product:1", 20)).get(5, TimeUnit.SECONDS)).isFalse();
+
+		locks.unlock("product:1");
+		assertThat(CompletableFuture.supplyAsync(() -> tryLock(locks, "product:1", 20)).get(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	void waiterGetsStripeWhenHolderUnlocks() throws Exception {
+		StripedLocks locks = new StripedLocks(16);
+		locks.tryLock("product:1", 0);
+
+		CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> tryLock(locks, "product:1", 5000));
+		while (locks.getWaiting() == 0) {
+			Thread.sleep(1);
+		}
+		locks.unlock("product:1");
+
+		assertThat(waiter.get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(locks.getWaiting()).isZero();
+	}
+
+	@Test
+	void keysOnOtherStripesDoNotWait() throws Exception {
+		StripedLocks locks = new StripedLocks(1024);
+		assertThat(locks.tryLock("product:1", 0)).isTrue();
+
+		int free = 0;
+		for (int i = 2; i < 100; i++) {
+			if (locks.tryLock("product:" + i, 0)) {
+				free++;
+				locks.unlock("product:" + i);
+			}
+		}
+		assertThat(free).isGreaterThan(90);
+	}
+
+	private static boolean tryLock(StripedLocks locks, String key, long timeoutMillis) {
+		try {
+			return locks.tryLock(key, timeoutMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}